@@ -1,7 +1,7 @@
 package com.github.wnameless.json.jsonschemadatagenerator;
 
 /**
- * Controls whether the allOf keyword is merged during schema flattening.
+ * Controls whether, and when, the allOf keyword is merged.
  *
  * <p>
  * Some libraries (e.g., react-jsonschema-form) use allOf for conditional logic rather than schema
@@ -21,6 +21,14 @@ public enum AllOfOption {
    * Skip merging allOf schemas, leaving them as-is. Use this when allOf is used for conditional
    * logic (e.g., if/then/else patterns).
    */
-  SKIP;
+  SKIP,
+
+  /**
+   * Leave allOf in place during flattening and let {@link JsonSchemaDataGenerator} merge it when
+   * generation first reaches a schema. Each merge is memoized per schema node of the compiled
+   * schema, so only visited schemas are ever merged. Consumers other than the generator see the
+   * schema as with {@link #SKIP}.
+   */
+  LAZY;
 
 }
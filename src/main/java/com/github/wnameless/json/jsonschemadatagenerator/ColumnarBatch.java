@@ -0,0 +1,218 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.BigIntegerNode;
+import tools.jackson.databind.node.BooleanNode;
+import tools.jackson.databind.node.JsonNodeFactory;
+import tools.jackson.databind.node.ObjectNode;
+
+/**
+ * A batch of documents generated column by column, returned by
+ * {@link JsonSchemaDataGenerator#generateBatch(CompiledJsonSchema, int)}.
+ *
+ * <p>
+ * For an object schema whose properties every document gets, each property is a column filled
+ * for the whole batch at once: random integers, booleans and {@code enum}/{@code examples} picks
+ * into primitive arrays, other scalars by calling their value generator in a loop, and constant
+ * values once. Nested objects and arrays are generated per row into their column. A row is only
+ * assembled into an {@link ObjectNode} when {@link #row(int)} or {@link #rows()} asks for it.
+ *
+ * <p>
+ * Other schemas (a root that is not such an object, {@code maxProperties} choosing among optional
+ * properties, generated pattern or additional properties, or a limited {@link GenerationBudget})
+ * are generated document by document; {@link #isColumnar()} is then false and there are no
+ * columns.
+ *
+ * <p>
+ * Repeated {@code row(i)} calls build new row objects, but nested objects and arrays of a column
+ * are shared between them; {@link JsonNode#deepCopy() copy} a row before modifying it.
+ *
+ * @author Wei-Ming Wu
+ */
+public final class ColumnarBatch {
+
+  // The values of one property for every row of the batch
+  interface Column {
+
+    JsonNode get(int row);
+
+  }
+
+  // The same value in every row
+  record ConstantColumn(JsonNode value) implements Column {
+
+    @Override
+    public JsonNode get(int row) {
+      return value.deepCopy();
+    }
+
+  }
+
+  record NodeColumn(JsonNode[] values) implements Column {
+
+    @Override
+    public JsonNode get(int row) {
+      return values[row];
+    }
+
+  }
+
+  record LongColumn(long[] values) implements Column {
+
+    @Override
+    public JsonNode get(int row) {
+      return new BigIntegerNode(BigInteger.valueOf(values[row]));
+    }
+
+  }
+
+  record BooleanColumn(boolean[] values) implements Column {
+
+    @Override
+    public JsonNode get(int row) {
+      return BooleanNode.valueOf(values[row]);
+    }
+
+  }
+
+  // One of a fixed list of values, picked by index per row
+  record ChoiceColumn(JsonNode choices, int[] indexes) implements Column {
+
+    @Override
+    public JsonNode get(int row) {
+      return choices.get(indexes[row]).deepCopy();
+    }
+
+  }
+
+  private final int size;
+  private final List<String> columnNames;
+  private final Column[] columns;
+  private final Map<String, Integer> columnIndexes;
+  private final JsonNodeFactory nodeFactory;
+  // Non-null only for batches generated document by document
+  private final JsonNode[] documents;
+
+  ColumnarBatch(int size, String[] columnNames, Column[] columns, JsonNodeFactory nodeFactory) {
+    this.size = size;
+    this.columnNames = List.of(columnNames);
+    this.columns = columns;
+    this.nodeFactory = nodeFactory;
+    columnIndexes = new HashMap<>();
+    for (int i = 0; i < columnNames.length; i++) {
+      columnIndexes.put(columnNames[i], i);
+    }
+    documents = null;
+  }
+
+  ColumnarBatch(JsonNode[] documents) {
+    size = documents.length;
+    columnNames = Collections.emptyList();
+    columns = new Column[0];
+    columnIndexes = Collections.emptyMap();
+    nodeFactory = null;
+    this.documents = documents;
+  }
+
+  /**
+   * Returns the number of documents in this batch.
+   *
+   * @return the batch size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns whether this batch was generated column by column.
+   *
+   * @return true if the batch has columns
+   */
+  public boolean isColumnar() {
+    return documents == null;
+  }
+
+  /**
+   * Returns the property names of the columns, in the order the properties appear in each row.
+   *
+   * @return the column names, empty unless {@link #isColumnar()}
+   */
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  /**
+   * Returns the value of a property in one row, without assembling the row.
+   *
+   * @param row the row index
+   * @param column the property name
+   * @return the value, or null if the row has no such property
+   * @throws IndexOutOfBoundsException if the row index is out of range
+   */
+  public JsonNode get(int row, String column) {
+    checkRow(row);
+    if (documents != null) {
+      return documents[row].get(column);
+    }
+    Integer index = columnIndexes.get(column);
+    return index == null ? null : columns[index].get(row);
+  }
+
+  /**
+   * Assembles one document of the batch.
+   *
+   * @param row the row index
+   * @return the document
+   * @throws IndexOutOfBoundsException if the row index is out of range
+   */
+  public JsonNode row(int row) {
+    checkRow(row);
+    if (documents != null) {
+      return documents[row];
+    }
+    ObjectNode document = nodeFactory instanceof PresizedJsonNodeFactory presized
+        ? presized.objectNode(columns.length) : nodeFactory.objectNode();
+    for (int i = 0; i < columns.length; i++) {
+      document.set(columnNames.get(i), columns[i].get(row));
+    }
+    return document;
+  }
+
+  /**
+   * Returns the documents of the batch, assembling each row when it is accessed.
+   *
+   * @return an unmodifiable list view of the rows
+   */
+  public List<JsonNode> rows() {
+    if (documents != null) {
+      return Collections.unmodifiableList(Arrays.asList(documents));
+    }
+    return new AbstractList<>() {
+
+      @Override
+      public JsonNode get(int index) {
+        return row(index);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+    };
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + " out of range for batch size " + size);
+    }
+  }
+
+}
@@ -0,0 +1,144 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import tools.jackson.databind.JsonNode;
+
+/**
+ * A JSON Schema prepared once by {@link JsonSchemaDataGenerator#compile(String)} and reusable for
+ * any number of {@link JsonSchemaDataGenerator#generate(CompiledJsonSchema)} calls.
+ *
+ * <p>
+ * Compiling flattens the schema, prunes it with {@link JsonSchemaPruner} and converts it to a
+ * Jackson tree, so repeated generation skips all of those steps. Because pruning depends on the
+ * generator options, a compiled schema can only be used by a generator with the same options. Under
+ * {@link RefResolutionOption#LAZY} the schema is neither flattened nor pruned, and references keep
+ * being resolved on demand. Under {@link AllOfOption#LAZY}, the {@code allOf} merges made during
+ * generation are kept with the compiled schema and reused by later calls. When the generator
+ * options are {@linkplain JsonSchemaDataGenerator#isDeterministic() deterministic}, the generated
+ * document itself is kept and later calls return copies of it. Otherwise, the values of the
+ * deterministic subtrees found by {@link SchemaNodeIndex} are kept instead.
+ *
+ * <p>
+ * A compiled schema can be saved with {@link #writeSnapshot(File)} and loaded again with
+ * {@link #readSnapshot(File, JsonSchemaDataGenerator)}, which skips flattening, pruning and tree
+ * conversion entirely.
+ *
+ * <p>
+ * Instances are immutable and may be shared between threads.
+ *
+ * @author Wei-Ming Wu
+ */
+public final class CompiledJsonSchema {
+
+  private final JsonSchemaDataGenerator generator;
+  private final JsonNode schema;
+  private final JsonSchemaRefResolver refResolver;
+  private final SchemaPruningReport pruningReport;
+  // allOf merges made during generation, under AllOfOption.LAZY or lazy $ref resolution, by node
+  private final Map<JsonNode, JsonNode> allOfMerges =
+      Collections.synchronizedMap(new IdentityHashMap<>());
+  // Fingerprints and deterministic subtree values; null when references are resolved lazily
+  private final SchemaNodeIndex nodeIndex;
+  // The document generated under deterministic options, never handed out directly
+  private volatile JsonNode generatedDocument;
+
+  CompiledJsonSchema(JsonSchemaDataGenerator generator, JsonNode schema,
+      JsonSchemaRefResolver refResolver, SchemaPruningReport pruningReport) {
+    this.generator = generator;
+    this.schema = schema;
+    this.refResolver = refResolver;
+    this.pruningReport = pruningReport;
+    this.nodeIndex = refResolver == null ? SchemaNodeIndex.build(schema, generator) : null;
+  }
+
+  /**
+   * Returns the generator this schema was compiled for.
+   *
+   * @return the compiling generator
+   */
+  public JsonSchemaDataGenerator getGenerator() {
+    return generator;
+  }
+
+  /**
+   * Returns a copy of the compiled root schema.
+   *
+   * @return a deep copy of the root schema
+   */
+  public JsonNode getSchema() {
+    return schema.deepCopy();
+  }
+
+  /**
+   * Returns the pruning report, or empty if the schema was compiled under
+   * {@link RefResolutionOption#LAZY}.
+   *
+   * @return an Optional containing the pruning report
+   */
+  public Optional<SchemaPruningReport> getPruningReport() {
+    return Optional.ofNullable(pruningReport);
+  }
+
+  /**
+   * Writes this compiled schema to a binary snapshot file. The snapshot records the format version,
+   * the generator options and a SHA-256 hash of its content.
+   *
+   * @param file the snapshot file to write
+   * @throws IOException if the file cannot be written
+   * @throws IllegalStateException if the schema was compiled under {@link RefResolutionOption#LAZY}
+   */
+  public void writeSnapshot(File file) throws IOException {
+    if (refResolver != null) {
+      throw new IllegalStateException(
+          "Schemas compiled under RefResolutionOption.LAZY cannot be snapshotted");
+    }
+    CompiledSchemaSnapshot.write(this, file);
+  }
+
+  /**
+   * Reads a compiled schema from a snapshot file written by {@link #writeSnapshot(File)}. The file
+   * is decoded directly into a Jackson tree built with the generator's
+   * {@link JsonSchemaDataGenerator#getNodeFactory() node factory}.
+   *
+   * @param file the snapshot file to read
+   * @param generator the generator to compile for, with the same options as the snapshot's
+   * @return the compiled schema
+   * @throws IOException if the file cannot be read, is not a snapshot of a supported version, or
+   *         fails its content hash check
+   * @throws IllegalArgumentException if the snapshot was written for different generator options
+   */
+  public static CompiledJsonSchema readSnapshot(File file, JsonSchemaDataGenerator generator)
+      throws IOException {
+    return CompiledSchemaSnapshot.read(file, generator);
+  }
+
+  JsonNode getRootSchema() {
+    return schema;
+  }
+
+  JsonSchemaRefResolver getRefResolver() {
+    return refResolver;
+  }
+
+  Map<JsonNode, JsonNode> getAllOfMerges() {
+    return allOfMerges;
+  }
+
+  SchemaNodeIndex getNodeIndex() {
+    return nodeIndex;
+  }
+
+  JsonNode getGeneratedDocument() {
+    return generatedDocument;
+  }
+
+  void setGeneratedDocument(JsonNode generatedDocument) {
+    this.generatedDocument = generatedDocument;
+  }
+
+}
@@ -0,0 +1,317 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.BigIntegerNode;
+import tools.jackson.databind.node.BooleanNode;
+import tools.jackson.databind.node.DecimalNode;
+import tools.jackson.databind.node.DoubleNode;
+import tools.jackson.databind.node.FloatNode;
+import tools.jackson.databind.node.IntNode;
+import tools.jackson.databind.node.JsonNodeFactory;
+import tools.jackson.databind.node.LongNode;
+import tools.jackson.databind.node.NullNode;
+import tools.jackson.databind.node.ObjectNode;
+import tools.jackson.databind.node.StringNode;
+
+/**
+ * Reads and writes the binary snapshot format of {@link CompiledJsonSchema}.
+ *
+ * <p>
+ * Layout: magic, format version, generator options, pruning report, SHA-256 hash and length of
+ * the payload, then the payload. The payload is the compiled schema tree in pre-order, where each
+ * string (property names included) is written once and referenced by index afterwards. Numbers
+ * keep their Jackson node type, so a loaded schema equals the compiled one.
+ *
+ * @author Wei-Ming Wu
+ */
+final class CompiledSchemaSnapshot {
+
+  static final int MAGIC = 0x4A534447; // "JSDG"
+  static final int FORMAT_VERSION = 1;
+
+  private static final byte NULL = 0;
+  private static final byte TRUE = 1;
+  private static final byte FALSE = 2;
+  private static final byte INT = 3;
+  private static final byte LONG = 4;
+  private static final byte BIG_INTEGER = 5;
+  private static final byte FLOAT = 6;
+  private static final byte DOUBLE = 7;
+  private static final byte DECIMAL = 8;
+  private static final byte STRING = 9;
+  private static final byte ARRAY = 10;
+  private static final byte OBJECT = 11;
+
+  private CompiledSchemaSnapshot() {}
+
+  static void write(CompiledJsonSchema compiledSchema, File file) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(payload)) {
+      new Writer(out).writeNode(compiledSchema.getRootSchema());
+    }
+    byte[] payloadBytes = payload.toByteArray();
+
+    try (OutputStream fileOut = Files.newOutputStream(file.toPath());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      writeText(out, optionsKey(compiledSchema.getGenerator()));
+      SchemaPruningReport report = compiledSchema.getPruningReport().orElse(null);
+      out.writeInt(report == null ? -1 : report.totalNodes());
+      out.writeInt(report == null ? -1 : report.retainedNodes());
+      out.write(sha256(ByteBuffer.wrap(payloadBytes)));
+      out.writeLong(payloadBytes.length);
+      out.write(payloadBytes);
+    }
+  }
+
+  // Snapshots are small, so they are read whole rather than mapped, which would keep the file
+  // mapped (and locked on Windows) until the buffer is garbage collected
+  static CompiledJsonSchema read(File file, JsonSchemaDataGenerator generator) throws IOException {
+    return read(ByteBuffer.wrap(Files.readAllBytes(file.toPath())), generator, file);
+  }
+
+  private static CompiledJsonSchema read(ByteBuffer buffer, JsonSchemaDataGenerator generator,
+      File file) throws IOException {
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Not a compiled schema snapshot: " + file);
+      }
+      int version = buffer.getInt();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported snapshot version " + version + ": " + file);
+      }
+      if (!optionsKey(generator).equals(readText(buffer))) {
+        throw new IllegalArgumentException(
+            "Snapshot was compiled by a generator with different options: " + file);
+      }
+      int totalNodes = buffer.getInt();
+      int retainedNodes = buffer.getInt();
+      byte[] hash = new byte[32];
+      buffer.get(hash);
+      long length = buffer.getLong();
+      if (length != buffer.remaining()) {
+        throw new IOException("Truncated snapshot: " + file);
+      }
+
+      ByteBuffer payload = buffer.slice();
+      if (!Arrays.equals(hash, sha256(payload.duplicate()))) {
+        throw new IOException("Snapshot content hash mismatch: " + file);
+      }
+      JsonNode schema = new Reader(payload, generator.getNodeFactory()).readNode();
+      SchemaPruningReport report =
+          totalNodes < 0 ? null : new SchemaPruningReport(totalNodes, retainedNodes);
+      return new CompiledJsonSchema(generator, schema, null, report);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | NumberFormatException e) {
+      throw new IOException("Corrupt snapshot: " + file, e);
+    }
+  }
+
+  // Lombok's toString lists every option (but not the random source) the pruning depended on
+  private static String optionsKey(JsonSchemaDataGenerator generator) {
+    return generator.toString();
+  }
+
+  private static byte[] sha256(ByteBuffer bytes) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(bytes);
+      return digest.digest();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private static void writeText(DataOutputStream out, String text) throws IOException {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readText(ByteBuffer in) {
+    return new String(readBytes(in, in.getInt()), StandardCharsets.UTF_8);
+  }
+
+  // Lengths come from the file, so one outside the remaining bytes is corrupt content rather than
+  // an array to allocate
+  private static byte[] readBytes(ByteBuffer in, int length) {
+    if (length < 0 || length > in.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return bytes;
+  }
+
+  private static final class Writer {
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    private Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    private void writeNode(JsonNode node) throws IOException {
+      if (node.isObject()) {
+        out.writeByte(OBJECT);
+        out.writeInt(node.size());
+        for (Map.Entry<String, JsonNode> entry : node.properties()) {
+          writeString(entry.getKey());
+          writeNode(entry.getValue());
+        }
+      } else if (node.isArray()) {
+        out.writeByte(ARRAY);
+        out.writeInt(node.size());
+        for (JsonNode item : node) {
+          writeNode(item);
+        }
+      } else if (node.isString()) {
+        out.writeByte(STRING);
+        writeString(node.asString());
+      } else if (node.isBoolean()) {
+        out.writeByte(node.asBoolean() ? TRUE : FALSE);
+      } else if (node.isInt()) {
+        out.writeByte(INT);
+        out.writeInt(node.intValue());
+      } else if (node.isLong()) {
+        out.writeByte(LONG);
+        out.writeLong(node.longValue());
+      } else if (node.isBigInteger()) {
+        out.writeByte(BIG_INTEGER);
+        byte[] bytes = node.bigIntegerValue().toByteArray();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      } else if (node.isFloat()) {
+        out.writeByte(FLOAT);
+        out.writeFloat(node.floatValue());
+      } else if (node.isDouble()) {
+        out.writeByte(DOUBLE);
+        out.writeDouble(node.doubleValue());
+      } else if (node.isBigDecimal()) {
+        out.writeByte(DECIMAL);
+        writeString(node.decimalValue().toString());
+      } else {
+        out.writeByte(NULL);
+      }
+    }
+
+    // New strings are written inline as -(length + 1) and then referenced by index
+    private void writeString(String value) throws IOException {
+      Integer index = strings.get(value);
+      if (index != null) {
+        out.writeInt(index);
+        return;
+      }
+      strings.put(value, strings.size());
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(-(bytes.length + 1));
+      out.write(bytes);
+    }
+
+  }
+
+  private static final class Reader {
+
+    private final ByteBuffer in;
+    private final JsonNodeFactory nodeFactory;
+    private final List<String> strings = new ArrayList<>();
+
+    private Reader(ByteBuffer in, JsonNodeFactory nodeFactory) {
+      this.in = in;
+      this.nodeFactory = nodeFactory;
+    }
+
+    private JsonNode readNode() throws IOException {
+      byte tag = in.get();
+      switch (tag) {
+        case OBJECT -> {
+          int size = in.getInt();
+          ObjectNode object = nodeFactory instanceof PresizedJsonNodeFactory presized
+              ? presized.objectNode(capacity(size)) : nodeFactory.objectNode();
+          for (int i = size; i > 0; i--) {
+            String name = readString();
+            object.set(name, readNode());
+          }
+          return object;
+        }
+        case ARRAY -> {
+          int size = in.getInt();
+          ArrayNode array = nodeFactory.arrayNode(capacity(size));
+          for (int i = size; i > 0; i--) {
+            array.add(readNode());
+          }
+          return array;
+        }
+        case STRING -> {
+          return new StringNode(readString());
+        }
+        case TRUE -> {
+          return BooleanNode.TRUE;
+        }
+        case FALSE -> {
+          return BooleanNode.FALSE;
+        }
+        case INT -> {
+          return IntNode.valueOf(in.getInt());
+        }
+        case LONG -> {
+          return LongNode.valueOf(in.getLong());
+        }
+        case BIG_INTEGER -> {
+          return BigIntegerNode.valueOf(new BigInteger(readBytes(in, in.getInt())));
+        }
+        case FLOAT -> {
+          return FloatNode.valueOf(in.getFloat());
+        }
+        case DOUBLE -> {
+          return DoubleNode.valueOf(in.getDouble());
+        }
+        case DECIMAL -> {
+          return DecimalNode.valueOf(new BigDecimal(readString()));
+        }
+        case NULL -> {
+          return NullNode.instance;
+        }
+        default -> throw new IOException("Unknown snapshot node tag: " + tag);
+      }
+    }
+
+    // Every child takes at least one byte, which bounds a corrupt count
+    private int capacity(int size) {
+      return Math.max(0, Math.min(size, in.remaining()));
+    }
+
+    private String readString() {
+      int header = in.getInt();
+      if (header >= 0) {
+        return strings.get(header);
+      }
+      String value = new String(readBytes(in, -(header + 1)), StandardCharsets.UTF_8);
+      strings.add(value);
+      return value;
+    }
+
+  }
+
+}
@@ -0,0 +1,85 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import tools.jackson.databind.JsonNode;
+
+/**
+ * Generates documents for one compiled schema into a single reused node tree, for loops that
+ * generate, serialize and discard documents at a high rate. Returned by
+ * {@link JsonSchemaDataGenerator#newArena(CompiledJsonSchema)}.
+ *
+ * <p>
+ * Each {@link #next()} overwrites the objects and arrays of the previous document in place: their
+ * property and item values are replaced, an array is grown or trimmed when its item count changes,
+ * and an object is cleared and refilled only when its property names change. Memoized
+ * deterministic subtrees are copied into the document, so the memo of the compiled schema is never
+ * handed out; a document memoized as a whole is copied once and then returned again. Otherwise
+ * only leaf values, which Jackson keeps immutable, are created per document.
+ *
+ * <p>
+ * A document is therefore only valid until the next call, and must not be modified or kept:
+ * serialize it or {@link JsonNode#deepCopy() copy} it first. An arena is not thread-safe; give each
+ * thread its own.
+ *
+ * <pre>
+ * DocumentArena arena = generator.newArena(generator.compile(schema));
+ * for (int i = 0; i &lt; 1_000_000; i++) {
+ *   mapper.writeValue(out, arena.next());
+ * }
+ * </pre>
+ *
+ * @author Wei-Ming Wu
+ */
+public final class DocumentArena {
+
+  private final JsonSchemaDataGenerator generator;
+  private final CompiledJsonSchema compiledSchema;
+  // The document the next one overwrites
+  JsonNode document;
+  // Whether the document reads the same as the compiled schema's memoized document
+  boolean memoizedCopy;
+
+  DocumentArena(JsonSchemaDataGenerator generator, CompiledJsonSchema compiledSchema) {
+    this.generator = generator;
+    this.compiledSchema = compiledSchema;
+  }
+
+  /**
+   * Returns the compiled schema this arena generates documents for.
+   *
+   * @return the compiled schema
+   */
+  public CompiledJsonSchema getCompiledSchema() {
+    return compiledSchema;
+  }
+
+  /**
+   * Generates the next document, overwriting the previous one.
+   *
+   * @return the generated document, valid until the next call
+   */
+  public JsonNode next() {
+    try {
+      return generator.generate(this, -1);
+    } catch (TimeoutException | InterruptedException e) {
+      throw new IllegalStateException(e); // Only timed generation checks the clock and interrupts
+    }
+  }
+
+  /**
+   * Generates the next document, overwriting the previous one, and gives up once the timeout
+   * elapses or the thread is interrupted. See
+   * {@link JsonSchemaDataGenerator#generate(CompiledJsonSchema, Duration)}.
+   *
+   * @param timeout the longest the generation may take
+   * @return the generated document, valid until the next call
+   * @throws TimeoutException if the timeout elapsed before the document was complete
+   * @throws InterruptedException if the thread was interrupted during generation
+   * @throws IllegalArgumentException if the timeout is null or negative
+   */
+  public JsonNode next(Duration timeout) throws TimeoutException, InterruptedException {
+    return generator.generate(this, JsonSchemaDataGenerator.toTimeoutNanos(timeout));
+  }
+
+}
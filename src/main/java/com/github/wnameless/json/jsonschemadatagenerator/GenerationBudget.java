@@ -0,0 +1,69 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+/**
+ * Upper bound on the size of each document a {@link JsonSchemaDataGenerator} generates.
+ *
+ * <p>
+ * Nodes are the JSON values of the generated document: objects, arrays and scalars. Bytes are the
+ * estimated length of the document serialized compactly, without escaping. The budget is spread
+ * across sibling properties and items as generation reaches them; once a subtree's share is used
+ * up, only its {@code required} properties and {@code minItems}/{@code minContains} items are
+ * still generated, so a document may slightly exceed the budget to stay valid.
+ *
+ * @param maxNodes the maximum number of nodes per document
+ * @param maxBytes the maximum estimated serialized size per document
+ * @author Wei-Ming Wu
+ */
+public record GenerationBudget(long maxNodes, long maxBytes) {
+
+  /**
+   * A budget that never truncates.
+   */
+  public static final GenerationBudget UNLIMITED =
+      new GenerationBudget(Long.MAX_VALUE, Long.MAX_VALUE);
+
+  /**
+   * Creates a budget.
+   *
+   * @param maxNodes the maximum number of nodes per document
+   * @param maxBytes the maximum estimated serialized size per document
+   * @throws IllegalArgumentException if either limit is not positive
+   */
+  public GenerationBudget {
+    if (maxNodes <= 0 || maxBytes <= 0) {
+      throw new IllegalArgumentException("Budget limits must be positive");
+    }
+  }
+
+  /**
+   * Returns a budget limiting the number of nodes per document.
+   *
+   * @param maxNodes the maximum number of nodes per document
+   * @return the budget
+   * @throws IllegalArgumentException if maxNodes is not positive
+   */
+  public static GenerationBudget ofNodes(long maxNodes) {
+    return new GenerationBudget(maxNodes, Long.MAX_VALUE);
+  }
+
+  /**
+   * Returns a budget limiting the estimated serialized size of each document.
+   *
+   * @param maxBytes the maximum estimated serialized size per document
+   * @return the budget
+   * @throws IllegalArgumentException if maxBytes is not positive
+   */
+  public static GenerationBudget ofBytes(long maxBytes) {
+    return new GenerationBudget(Long.MAX_VALUE, maxBytes);
+  }
+
+  /**
+   * Returns whether this budget limits anything.
+   *
+   * @return false for {@link #UNLIMITED}
+   */
+  public boolean isLimited() {
+    return maxNodes != Long.MAX_VALUE || maxBytes != Long.MAX_VALUE;
+  }
+
+}
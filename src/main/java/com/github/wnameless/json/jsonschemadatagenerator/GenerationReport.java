@@ -0,0 +1,28 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import tools.jackson.databind.JsonNode;
+
+/**
+ * A document generated by {@link JsonSchemaDataGenerator#generateWithReport(CompiledJsonSchema)},
+ * with its size and whether the generator's {@link GenerationBudget} cut it short.
+ *
+ * @param document the generated document
+ * @param nodes the number of JSON values in the document
+ * @param estimatedBytes the estimated length of the document serialized compactly
+ * @param truncatedContainers the number of objects and arrays generated with fewer properties or
+ *        items than the options called for, because the budget was used up
+ * @author Wei-Ming Wu
+ */
+public record GenerationReport(JsonNode document, long nodes, long estimatedBytes,
+    int truncatedContainers) {
+
+  /**
+   * Returns whether the budget made any object or array smaller than the options called for.
+   *
+   * @return true if the document was truncated
+   */
+  public boolean isTruncated() {
+    return truncatedContainers > 0;
+  }
+
+}
@@ -0,0 +1,286 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.NullNode;
+import tools.jackson.databind.node.ObjectNode;
+
+/**
+ * Assembles a dereferenced schema from the documents of a {@link JsonSchemaRefResolver}.
+ *
+ * <p>
+ * As a map, the result has the same shape as the output of {@code $RefParser}: every resolvable
+ * {@code $ref} is replaced by the referenced schema, schemas referenced more than once are shared,
+ * and circular references become cycles in the map graph. As a Jackson tree, the result matches
+ * converting that map in {@link JsonSchemaDataGenerator}: shared schemas are copied and a circular
+ * reference back to an enclosing schema becomes {@code null}. References that cannot be resolved
+ * are kept as-is.
+ *
+ * <p>
+ * With {@link AllOfOption#MERGE}, each {@code allOf} is merged into its parent schema: properties
+ * are combined, required names are united, and any other keyword keeps the first value seen, with
+ * the parent's own keywords taking precedence over its branches.
+ *
+ * <p>
+ * When assembling a tree, each referenced subtree without circular references is the same wherever
+ * it appears. Such subtrees are cached by the resolver together with the
+ * documents they read, and reused until {@link JsonSchemaRefResolver#invalidate(URI)} discards
+ * one of those documents.
+ *
+ * @author Wei-Ming Wu
+ */
+final class JsonSchemaAssembler {
+
+  private final JsonSchemaRefResolver refResolver;
+  private final Map<JsonNode, Map<String, Object>> assembled = new IdentityHashMap<>();
+  // Schemas being copied, by their depth in the copy
+  private final Map<JsonNode, Integer> inProgress = new IdentityHashMap<>();
+  // The shallowest enclosing schema a circular reference in the current subtree pointed back to
+  private int lowestCycleDepth = Integer.MAX_VALUE;
+  // The documents read while copying the current subtree
+  private Set<URI> documents = new HashSet<>();
+
+  /**
+   * A flattened subtree together with the documents it was assembled from.
+   */
+  record Subtree(JsonNode tree, Set<URI> documents) {}
+
+  private JsonSchemaAssembler(JsonSchemaRefResolver refResolver) {
+    this.refResolver = refResolver;
+  }
+
+  static Map<String, Object> toMap(JsonSchemaRefResolver refResolver, AllOfOption allOfOption) {
+    JsonSchemaAssembler assembler = new JsonSchemaAssembler(refResolver);
+    Map<String, Object> schema = assembler.toSchemaMap(refResolver.getRootSchema());
+
+    if (allOfOption == AllOfOption.MERGE) {
+      Set<Map<String, Object>> merged = Collections.newSetFromMap(new IdentityHashMap<>());
+      assembler.assembled.values().forEach(map -> mergeAllOf(map, merged));
+    }
+    return schema;
+  }
+
+  static ObjectNode toJsonNode(JsonSchemaRefResolver refResolver, AllOfOption allOfOption) {
+    JsonSchemaAssembler assembler = new JsonSchemaAssembler(refResolver);
+    JsonNode schema =
+        assembler.toTree(refResolver.getRootSchema(), allOfOption == AllOfOption.MERGE);
+    return schema.isObject() ? (ObjectNode) schema : mapper().createObjectNode();
+  }
+
+  private static ObjectMapper mapper() {
+    return ObjectMapperFactory.getObjectMapper();
+  }
+
+  private JsonNode toTree(JsonNode node, boolean mergeAllOf) {
+    if (node.isArray()) {
+      ArrayNode array = mapper().createArrayNode();
+      for (JsonNode item : node) {
+        array.add(toTree(item, mergeAllOf));
+      }
+      return array;
+    }
+    if (!node.isObject()) {
+      return node; // Value nodes are immutable and can be shared
+    }
+
+    Set<URI> refDocuments = new HashSet<>();
+    JsonNode target = refResolver.resolve(node, refDocuments);
+    documents.addAll(refDocuments);
+    // Only referenced subtrees are cached, since those are the ones shared between schemas
+    Map<JsonNode, Subtree> cache = target != node ? refResolver.getSubtreeCache(mergeAllOf) : null;
+    Subtree cached = cache != null ? cache.get(target) : null;
+    if (cached != null) {
+      documents.addAll(cached.documents());
+      return cached.tree().deepCopy(); // Callers merge allOf and prune in place
+    }
+
+    Integer enclosingDepth = inProgress.get(target);
+    if (enclosingDepth != null) {
+      lowestCycleDepth = Math.min(lowestCycleDepth, enclosingDepth);
+      return NullNode.instance; // Circular reference to an enclosing schema
+    }
+
+    int depth = inProgress.size();
+    int outerCycleDepth = lowestCycleDepth;
+    Set<URI> outerDocuments = documents;
+    inProgress.put(target, depth);
+    lowestCycleDepth = Integer.MAX_VALUE;
+    documents = refDocuments;
+    try {
+      ObjectNode copy = mapper().createObjectNode();
+      JsonNode allOf = mergeAllOf ? target.get("allOf") : null;
+      for (Map.Entry<String, JsonNode> entry : target.properties()) {
+        if (entry.getValue() != allOf) {
+          copy.set(entry.getKey(), toTree(entry.getValue(), mergeAllOf));
+        }
+      }
+      if (allOf != null && allOf.isArray()) {
+        for (JsonNode branch : allOf) {
+          JsonNode branchCopy = toTree(branch, true);
+          if (branchCopy.isObject()) {
+            branchCopy.properties()
+                .forEach(entry -> mergeKeyword(copy, entry.getKey(), entry.getValue()));
+          }
+        }
+      } else if (allOf != null) {
+        copy.set("allOf", toTree(allOf, true));
+      }
+
+      // Only a subtree without cycles reads the same wherever it appears; one with a cycle holds
+      // schemas that would themselves become null under an enclosing copy of them elsewhere
+      if (cache != null && lowestCycleDepth == Integer.MAX_VALUE) {
+        cache.put(target, new Subtree(copy.deepCopy(), Set.copyOf(documents)));
+      }
+      return copy;
+    } finally {
+      inProgress.remove(target);
+      outerDocuments.addAll(documents);
+      documents = outerDocuments;
+      lowestCycleDepth = Math.min(outerCycleDepth, lowestCycleDepth);
+    }
+  }
+
+  // Merges allOf into a new node, leaving the schema and its branches untouched
+  static JsonNode mergeAllOf(JsonNode schema, UnaryOperator<JsonNode> branchResolver) {
+    JsonNode allOf = schema.get("allOf");
+    if (allOf == null || !allOf.isArray()) {
+      return schema;
+    }
+
+    ObjectNode merged = mapper().createObjectNode();
+    for (Map.Entry<String, JsonNode> entry : schema.properties()) {
+      if (entry.getValue() != allOf) {
+        merged.set(entry.getKey(), ownContainer(entry.getKey(), entry.getValue()));
+      }
+    }
+    for (JsonNode branch : allOf) {
+      JsonNode resolved = branchResolver.apply(branch);
+      if (resolved.isObject()) {
+        resolved.properties().forEach(entry -> mergeKeyword(merged, entry.getKey(),
+            ownContainer(entry.getKey(), entry.getValue())));
+      }
+    }
+    return merged;
+  }
+
+  // Merged containers are shallow copies, so the shared originals are never modified
+  private static JsonNode ownContainer(String keyword, JsonNode value) {
+    if ("properties".equals(keyword) && value instanceof ObjectNode properties) {
+      return mapper().createObjectNode().setAll(properties);
+    }
+    if ("required".equals(keyword) && value instanceof ArrayNode required) {
+      return mapper().createArrayNode().addAll(required);
+    }
+    return value;
+  }
+
+  // The copies are never shared, so they can be merged in place
+  private static void mergeKeyword(ObjectNode schema, String keyword, JsonNode value) {
+    JsonNode current = schema.get(keyword);
+    if ("properties".equals(keyword) && current instanceof ObjectNode properties
+        && value.isObject()) {
+      value.properties().forEach(entry -> {
+        if (!properties.has(entry.getKey())) {
+          properties.set(entry.getKey(), entry.getValue());
+        }
+      });
+    } else if ("required".equals(keyword) && current instanceof ArrayNode required
+        && value.isArray()) {
+      for (JsonNode name : value) {
+        if (!required.valueStream().anyMatch(name::equals)) {
+          required.add(name);
+        }
+      }
+    } else if (current == null) {
+      schema.set(keyword, value);
+    }
+  }
+
+  private Map<String, Object> toSchemaMap(JsonNode node) {
+    JsonNode target = refResolver.resolve(node);
+    Map<String, Object> map = assembled.get(target);
+    if (map != null) {
+      return map;
+    }
+
+    // Registered before recursing, so circular references point back to this map
+    map = new LinkedHashMap<>();
+    assembled.put(target, map);
+    for (Map.Entry<String, JsonNode> entry : target.properties()) {
+      map.put(entry.getKey(), toValue(entry.getValue()));
+    }
+    return map;
+  }
+
+  private Object toValue(JsonNode node) {
+    if (node.isObject()) {
+      return toSchemaMap(node);
+    }
+    if (node.isArray()) {
+      List<Object> list = new ArrayList<>(node.size());
+      for (JsonNode item : node) {
+        list.add(toValue(item));
+      }
+      return list;
+    }
+    if (node.isString()) {
+      return node.asString();
+    }
+    if (node.isBoolean()) {
+      return node.asBoolean();
+    }
+    if (node.isNumber()) {
+      return node.numberValue();
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void mergeAllOf(Map<String, Object> schema, Set<Map<String, Object>> merged) {
+    if (!merged.add(schema) || !(schema.get("allOf") instanceof List<?> branches)) {
+      return;
+    }
+
+    schema.remove("allOf");
+    for (Object branch : branches) {
+      if (!(branch instanceof Map<?, ?> m)) {
+        continue;
+      }
+      Map<String, Object> branchSchema = (Map<String, Object>) m;
+      // Branches in progress further up form a cycle and are merged as they are
+      mergeAllOf(branchSchema, merged);
+      branchSchema.forEach((keyword, value) -> mergeKeyword(schema, keyword, value));
+    }
+  }
+
+  private static void mergeKeyword(Map<String, Object> schema, String keyword, Object value) {
+    Object current = schema.get(keyword);
+    if ("properties".equals(keyword) && current instanceof Map<?, ?> properties
+        && value instanceof Map<?, ?> branchProperties) {
+      // Copied, because both maps may be shared with other schemas
+      Map<Object, Object> combined = new LinkedHashMap<>(properties);
+      branchProperties.forEach(combined::putIfAbsent);
+      schema.put(keyword, combined);
+    } else if ("required".equals(keyword) && current instanceof List<?> required
+        && value instanceof List<?> branchRequired) {
+      Set<Object> combined = new LinkedHashSet<>(required);
+      combined.addAll(branchRequired);
+      schema.put(keyword, new ArrayList<>(combined));
+    } else {
+      schema.putIfAbsent(keyword, value);
+    }
+  }
+
+}
@@ -1,11 +1,20 @@
 package com.github.wnameless.json.jsonschemadatagenerator;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -14,7 +23,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
 import com.github.curiousoddman.rgxgen.RgxGen;
+import io.zenwave360.jsonrefparser.$RefParser;
+import io.zenwave360.jsonrefparser.$RefParserOptions;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -25,6 +44,7 @@ import tools.jackson.databind.node.ArrayNode;
 import tools.jackson.databind.node.BigIntegerNode;
 import tools.jackson.databind.node.BooleanNode;
 import tools.jackson.databind.node.DecimalNode;
+import tools.jackson.databind.node.JsonNodeFactory;
 import tools.jackson.databind.node.NullNode;
 import tools.jackson.databind.node.ObjectNode;
 import tools.jackson.databind.node.StringNode;
@@ -65,7 +85,7 @@ import tools.jackson.databind.node.StringNode;
 @Builder(toBuilder = true)
 @EqualsAndHashCode(exclude = "random")
 @Getter
-@ToString(exclude = "random")
+@ToString(exclude = {"random", "refParserOptions", "objectMapper", "nodeFactory"})
 public final class JsonSchemaDataGenerator {
 
   // Static factory methods for preset configurations
@@ -160,6 +180,8 @@ public final class JsonSchemaDataGenerator {
   // Schema processing options
   @Builder.Default
   private final RecursionDepthOption recursionDepthOption = RecursionDepthOption.MODERATE;
+  @Builder.Default
+  private final RefResolutionOption refResolutionOption = RefResolutionOption.EAGER;
 
   // Type handling options
   @Builder.Default
@@ -206,10 +228,66 @@ public final class JsonSchemaDataGenerator {
   @Builder.Default
   private final ExamplesOption examplesOption = ExamplesOption.FIRST;
 
+  // Output size
+  @Builder.Default
+  private final GenerationBudget generationBudget = GenerationBudget.UNLIMITED;
+
+  // Parser and mapper configuration, falling back to the global factories when not set
+  private final $RefParserOptions refParserOptions;
+  private final ObjectMapper objectMapper;
+  private final JsonNodeFactory nodeFactory;
+
   private final Random random = new Random();
 
+  /**
+   * Returns the $RefParserOptions this generator flattens schemas with: the options given to this
+   * generator, or the current {@link RefParserFactory#getOptions()} if none were given.
+   *
+   * @return the effective $RefParserOptions
+   */
+  public $RefParserOptions getRefParserOptions() {
+    return refParserOptions != null ? refParserOptions : RefParserFactory.getOptions();
+  }
+
+  /**
+   * Returns the ObjectMapper this generator builds JSON nodes with: the mapper given to this
+   * generator, or the current {@link ObjectMapperFactory#getObjectMapper()} if none was given.
+   *
+   * @return the effective ObjectMapper
+   */
+  public ObjectMapper getObjectMapper() {
+    return objectMapper != null ? objectMapper : ObjectMapperFactory.getObjectMapper();
+  }
+
   private ObjectMapper mapper() {
-    return ObjectMapperFactory.getObjectMapper();
+    return getObjectMapper();
+  }
+
+  /**
+   * Returns the JsonNodeFactory this generator creates object and array nodes with: the factory
+   * given to this generator, otherwise the node factory of {@link #getObjectMapper()} if it is a
+   * custom one, or else {@link PresizedJsonNodeFactory#instance}.
+   *
+   * @return the effective JsonNodeFactory
+   */
+  public JsonNodeFactory getNodeFactory() {
+    if (nodeFactory != null) {
+      return nodeFactory;
+    }
+    JsonNodeFactory mapperFactory = mapper().getNodeFactory();
+    return mapperFactory.getClass() == JsonNodeFactory.class ? PresizedJsonNodeFactory.instance
+        : mapperFactory;
+  }
+
+  // Creates an object node for the given number of properties, presized if the factory allows
+  private ObjectNode objectNode(int expectedSize) {
+    JsonNodeFactory factory = getNodeFactory();
+    return factory instanceof PresizedJsonNodeFactory presized ? presized.objectNode(expectedSize)
+        : factory.objectNode();
+  }
+
+  private ArrayNode arrayNode(int expectedSize) {
+    return getNodeFactory().arrayNode(expectedSize);
   }
 
   // Fluent API methods - Schema composition options
@@ -256,6 +334,16 @@ public final class JsonSchemaDataGenerator {
     return this.toBuilder().recursionDepthOption(option).build();
   }
 
+  /**
+   * Returns a new generator with the specified $ref resolution option.
+   *
+   * @param option whether $ref references are resolved up front or when first reached
+   * @return a new generator instance with the updated option
+   */
+  public JsonSchemaDataGenerator withRefResolutionOption(RefResolutionOption option) {
+    return this.toBuilder().refResolutionOption(option).build();
+  }
+
   // Fluent API methods - Type handling options
 
   /**
@@ -428,43 +516,744 @@ public final class JsonSchemaDataGenerator {
     return this.toBuilder().examplesOption(option).build();
   }
 
+  // Fluent API methods - Output size
+
+  /**
+   * Returns a new generator that keeps each generated document within the given budget.
+   *
+   * @param budget the maximum number of nodes and estimated bytes per document
+   * @return a new generator instance with the updated budget
+   * @throws IllegalArgumentException if budget is null
+   */
+  public JsonSchemaDataGenerator withGenerationBudget(GenerationBudget budget) {
+    if (budget == null) {
+      throw new IllegalArgumentException("GenerationBudget cannot be null");
+    }
+    return this.toBuilder().generationBudget(budget).build();
+  }
+
+  // Fluent API methods - Parser and mapper configuration
+
+  /**
+   * Returns a new generator that flattens schemas with the given $RefParserOptions instead of the
+   * global {@link RefParserFactory} options. The options must not be modified afterwards.
+   *
+   * @param options the $RefParserOptions for this generator only
+   * @return a new generator instance with the updated options
+   * @throws IllegalArgumentException if options is null
+   */
+  public JsonSchemaDataGenerator withRefParserOptions($RefParserOptions options) {
+    if (options == null) {
+      throw new IllegalArgumentException("$RefParserOptions cannot be null");
+    }
+    return this.toBuilder().refParserOptions(options).build();
+  }
+
+  /**
+   * Returns a new generator that builds JSON nodes with the given ObjectMapper instead of the
+   * global {@link ObjectMapperFactory} mapper.
+   *
+   * @param mapper the ObjectMapper for this generator only
+   * @return a new generator instance with the updated mapper
+   * @throws IllegalArgumentException if mapper is null
+   */
+  public JsonSchemaDataGenerator withObjectMapper(ObjectMapper mapper) {
+    if (mapper == null) {
+      throw new IllegalArgumentException("ObjectMapper cannot be null");
+    }
+    return this.toBuilder().objectMapper(mapper).build();
+  }
+
+  /**
+   * Returns a new generator that creates generated object and array nodes with the given
+   * JsonNodeFactory. A {@link PresizedJsonNodeFactory} gets the number of properties and items
+   * each node will hold; other factories create nodes at their default size.
+   *
+   * @param factory the JsonNodeFactory for this generator only
+   * @return a new generator instance with the updated factory
+   * @throws IllegalArgumentException if factory is null
+   */
+  public JsonSchemaDataGenerator withNodeFactory(JsonNodeFactory factory) {
+    if (factory == null) {
+      throw new IllegalArgumentException("JsonNodeFactory cannot be null");
+    }
+    return this.toBuilder().nodeFactory(factory).build();
+  }
+
   // Main public API
 
   /**
    * Generates JSON data from a JSON Schema string.
    *
    * <p>
-   * The schema is first flattened (resolving $ref references and optionally merging allOf) before
-   * data generation. The generated data conforms to the schema's type, constraints, and validation
-   * keywords.
+   * The schema is first flattened (resolving $ref references and optionally merging allOf) and
+   * pruned before data generation, unless {@link RefResolutionOption#LAZY} is used. The generated
+   * data conforms to the schema's type, constraints, and validation keywords.
    *
    * @param jsonSchema the JSON Schema as a string
    * @return a JsonNode containing the generated data
    * @throws Exception if schema parsing or generation fails
    */
   public JsonNode generate(String jsonSchema) throws Exception {
-    Map<String, Object> flattenedMap = JsonSchemaFlattener.flattenJsonSchema(jsonSchema, allOfOption);
-    JsonNode schemaNode = mapToJsonNode(flattenedMap);
-    return generateValue(schemaNode, new HashMap<>());
+    return generate(compile(jsonSchema));
   }
 
   /**
    * Generates JSON data from a JSON Schema file.
    *
    * <p>
-   * The schema is first flattened (resolving $ref references and optionally merging allOf) before
-   * data generation. The generated data conforms to the schema's type, constraints, and validation
-   * keywords.
+   * The schema is first flattened (resolving $ref references and optionally merging allOf) and
+   * pruned before data generation, unless {@link RefResolutionOption#LAZY} is used. The generated
+   * data conforms to the schema's type, constraints, and validation keywords.
    *
    * @param jsonSchemaFile the JSON Schema file
    * @return a JsonNode containing the generated data
    * @throws Exception if schema parsing or generation fails
    */
   public JsonNode generate(File jsonSchemaFile) throws Exception {
-    Map<String, Object> flattenedMap =
-        JsonSchemaFlattener.flattenJsonSchema(jsonSchemaFile, allOfOption);
-    JsonNode schemaNode = mapToJsonNode(flattenedMap);
-    return generateValue(schemaNode, new HashMap<>());
+    return generate(compile(jsonSchemaFile));
+  }
+
+  /**
+   * Generates JSON data from a JSON Schema string, giving up once the timeout elapses or the thread
+   * is interrupted. The timeout only bounds generation; compiling the schema is not counted against
+   * it. See {@link #generate(CompiledJsonSchema, Duration)}.
+   *
+   * @param jsonSchema the JSON Schema as a string
+   * @param timeout the longest the generation may take
+   * @return a JsonNode containing the generated data
+   * @throws TimeoutException if the timeout elapsed before the document was complete
+   * @throws InterruptedException if the thread was interrupted during generation
+   * @throws IllegalArgumentException if the timeout is null or negative
+   * @throws Exception if schema parsing or generation fails
+   */
+  public JsonNode generate(String jsonSchema, Duration timeout) throws Exception {
+    toTimeoutNanos(timeout); // Rejects a bad timeout before compiling
+    return generate(compile(jsonSchema), timeout);
+  }
+
+  /**
+   * Generates JSON data from a JSON Schema file, giving up once the timeout elapses or the thread
+   * is interrupted. The timeout only bounds generation; compiling the schema is not counted against
+   * it. See {@link #generate(CompiledJsonSchema, Duration)}.
+   *
+   * @param jsonSchemaFile the JSON Schema file
+   * @param timeout the longest the generation may take
+   * @return a JsonNode containing the generated data
+   * @throws TimeoutException if the timeout elapsed before the document was complete
+   * @throws InterruptedException if the thread was interrupted during generation
+   * @throws IllegalArgumentException if the timeout is null or negative
+   * @throws Exception if schema parsing or generation fails
+   */
+  public JsonNode generate(File jsonSchemaFile, Duration timeout) throws Exception {
+    toTimeoutNanos(timeout); // Rejects a bad timeout before compiling
+    return generate(compile(jsonSchemaFile), timeout);
+  }
+
+  /**
+   * Generates JSON data from a schema compiled by this generator.
+   *
+   * @param compiledSchema a schema returned by {@link #compile(String)} or {@link #compile(File)}
+   * @return a JsonNode containing the generated data
+   * @throws IllegalArgumentException if the schema was compiled with different options
+   */
+  public JsonNode generate(CompiledJsonSchema compiledSchema) {
+    try {
+      return generate(compiledSchema, generationBudget.isLimited(), -1, null).document();
+    } catch (TimeoutException | InterruptedException e) {
+      throw new IllegalStateException(e); // Only timed generation checks the clock and interrupts
+    }
+  }
+
+  /**
+   * Generates JSON data from a schema compiled by this generator, giving up once the timeout
+   * elapses or the thread is interrupted.
+   *
+   * <p>
+   * The deadline and the interrupt flag are checked between generated values, so a single value
+   * that takes long on its own (e.g. a string for a complex {@code pattern}) can overrun the
+   * timeout by its own duration.
+   *
+   * @param compiledSchema a schema returned by {@link #compile(String)} or {@link #compile(File)}
+   * @param timeout the longest the generation may take
+   * @return a JsonNode containing the generated data
+   * @throws TimeoutException if the timeout elapsed before the document was complete
+   * @throws InterruptedException if the thread was interrupted during generation
+   * @throws IllegalArgumentException if the timeout is null or negative, or if the schema was
+   *         compiled with different options
+   */
+  public JsonNode generate(CompiledJsonSchema compiledSchema, Duration timeout)
+      throws TimeoutException, InterruptedException {
+    return generate(compiledSchema, generationBudget.isLimited(), toTimeoutNanos(timeout), null)
+        .document();
+  }
+
+  /**
+   * Generates JSON data from a schema compiled by this generator, reporting the size of the
+   * document and whether the {@link GenerationBudget} truncated it.
+   *
+   * @param compiledSchema a schema returned by {@link #compile(String)} or {@link #compile(File)}
+   * @return the generated document with its size
+   * @throws IllegalArgumentException if the schema was compiled with different options
+   */
+  public GenerationReport generateWithReport(CompiledJsonSchema compiledSchema) {
+    try {
+      return generate(compiledSchema, true, -1, null);
+    } catch (TimeoutException | InterruptedException e) {
+      throw new IllegalStateException(e); // Only timed generation checks the clock and interrupts
+    }
+  }
+
+  /**
+   * Generates JSON data from a schema compiled by this generator, reporting its size, and gives
+   * up once the timeout elapses or the thread is interrupted. See
+   * {@link #generate(CompiledJsonSchema, Duration)}.
+   *
+   * @param compiledSchema a schema returned by {@link #compile(String)} or {@link #compile(File)}
+   * @param timeout the longest the generation may take
+   * @return the generated document with its size
+   * @throws TimeoutException if the timeout elapsed before the document was complete
+   * @throws InterruptedException if the thread was interrupted during generation
+   * @throws IllegalArgumentException if the timeout is null or negative, or if the schema was
+   *         compiled with different options
+   */
+  public GenerationReport generateWithReport(CompiledJsonSchema compiledSchema, Duration timeout)
+      throws TimeoutException, InterruptedException {
+    return generate(compiledSchema, true, toTimeoutNanos(timeout), null);
+  }
+
+  /**
+   * Estimates, without generating anything, the size of the documents this generator generates
+   * for a compiled schema, how much recursion multiplies it, and which schema locations are costly
+   * to generate (regular expressions, DataFaker, {@code uniqueItems} retries).
+   *
+   * <p>
+   * The schema is walked once per recursion state, applying the same keyword precedence, property
+   * selection, item counts and recursion limit as generation. Expected values average over the
+   * random choices of the options; maxima are upper bounds.
+   *
+   * @param compiledSchema a schema returned by {@link #compile(String)} or {@link #compile(File)}
+   * @return the estimate
+   * @throws IllegalArgumentException if the schema was compiled with different options
+   */
+  public SchemaCostEstimate estimate(CompiledJsonSchema compiledSchema) {
+    if (!equals(compiledSchema.getGenerator())) {
+      throw new IllegalArgumentException(
+          "CompiledJsonSchema was compiled by a generator with different options");
+    }
+    GenerationContext context = new GenerationContext(compiledSchema.getRefResolver(),
+        allOfMerges(compiledSchema), null, null, -1, null);
+    return SchemaCostEstimator.estimate(compiledSchema.getRootSchema(), this, context::resolve);
+  }
+
+  /**
+   * Returns an arena that generates documents for a compiled schema into one reused node tree,
+   * overwriting the previous document on each call. See {@link DocumentArena}.
+   *
+   * @param compiledSchema a schema returned by {@link #compile(String)} or {@link #compile(File)}
+   * @return a new arena
+   * @throws IllegalArgumentException if the schema was compiled with different options
+   */
+  public DocumentArena newArena(CompiledJsonSchema compiledSchema) {
+    if (!equals(compiledSchema.getGenerator())) {
+      throw new IllegalArgumentException(
+          "CompiledJsonSchema was compiled by a generator with different options");
+    }
+    return new DocumentArena(this, compiledSchema);
+  }
+
+  JsonNode generate(DocumentArena arena, long timeoutNanos)
+      throws TimeoutException, InterruptedException {
+    arena.document = generate(arena.getCompiledSchema(), generationBudget.isLimited(),
+        timeoutNanos, arena).document();
+    return arena.document;
+  }
+
+  /**
+   * Generates a batch of documents for a compiled schema column by column: for an object schema
+   * whose properties every document gets, each property's values are generated for the whole batch
+   * in one loop, and rows are assembled only when read. Other schemas are generated document by
+   * document. See {@link ColumnarBatch}.
+   *
+   * @param compiledSchema a schema returned by {@link #compile(String)} or {@link #compile(File)}
+   * @param size the number of documents
+   * @return the generated batch
+   * @throws IllegalArgumentException if size is negative, or if the schema was compiled with
+   *         different options
+   */
+  public ColumnarBatch generateBatch(CompiledJsonSchema compiledSchema, int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Batch size cannot be negative");
+    }
+    if (!equals(compiledSchema.getGenerator())) {
+      throw new IllegalArgumentException(
+          "CompiledJsonSchema was compiled by a generator with different options");
+    }
+
+    GenerationContext context = new GenerationContext(compiledSchema.getRefResolver(),
+        allOfMerges(compiledSchema),
+        compiledSchema.getNodeIndex(), null, -1, null);
+    JsonNode root = context.resolve(compiledSchema.getRootSchema());
+    PropertyPartition partition = partitionOf(root, context);
+    int[] properties = generationBudget.isLimited() ? null : batchProperties(root, partition);
+    if (properties == null) {
+      JsonNode[] documents = new JsonNode[size];
+      for (int row = 0; row < size; row++) {
+        documents[row] = generate(compiledSchema);
+      }
+      return new ColumnarBatch(documents);
+    }
+
+    // The properties are generated as if inside the root object
+    SchemaNodeIndex.Entry entry =
+        context.nodeIndex == null ? null : context.nodeIndex.get(root);
+    context.recursionTracker
+        .put(entry != null ? entry.fingerprint() : SchemaNodeIndex.fingerprint(root), 1);
+    String[] names = new String[properties.length];
+    ColumnarBatch.Column[] columns = new ColumnarBatch.Column[properties.length];
+    try {
+      for (int i = 0; i < properties.length; i++) {
+        names[i] = partition.name(properties[i]);
+        columns[i] = column(partition.schema(properties[i]), size, context);
+      }
+    } catch (TimeoutException | InterruptedException e) {
+      throw new IllegalStateException(e); // Only timed generation checks the clock and interrupts
+    }
+    return new ColumnarBatch(size, names, columns, getNodeFactory());
+  }
+
+  // The partition indices of the properties every document of a batch gets, in order, or null if
+  // the root schema does not generate an object with the same properties each time
+  private int[] batchProperties(JsonNode schema, PropertyPartition partition) {
+    if (schema.has("const") || (defaultValueOption == DefaultValueOption.USE
+        && schema.has("default")) || schema.has("enum")
+        || (examplesOption != ExamplesOption.NONE && schema.has("examples"))
+        || schema.has("anyOf") || schema.has("oneOf")) {
+      return null;
+    }
+    if (schema.has("type") && !"object".equals(schema.get("type").asString(null))) {
+      return null;
+    }
+    if (patternPropertiesOption != PatternPropertiesOption.NONE
+        && schema.has("patternProperties")) {
+      return null;
+    }
+    if (additionalPropertiesOption != AdditionalPropertiesOption.NONE
+        && schema.has("additionalProperties")
+        && !(schema.get("additionalProperties").isBoolean()
+            && !schema.get("additionalProperties").asBoolean())) {
+      return null;
+    }
+    if (partition == null) {
+      return new int[0];
+    }
+
+    // Mirrors the selection of ObjectFrame, which picks at random only among some optionals
+    int optionalCount = partition.optionalCount();
+    int targetCount = determinePropertyCount(partition.minProperties(),
+        partition.maxProperties(), partition.requiredCount(), partition.size());
+    int mandatory = Math.min(partition.requiredCount(), targetCount);
+    int slots = propertyScopeOption == PropertyScopeOption.REQUIRED_ONLY ? 0
+        : Math.min(targetCount - mandatory, optionalCount);
+    if (slots > 0 && slots < optionalCount) {
+      return null;
+    }
+    int[] properties = new int[mandatory + slots];
+    for (int i = 0; i < mandatory; i++) {
+      properties[i] = i;
+    }
+    for (int i = 0; i < slots; i++) {
+      properties[mandatory + i] = partition.requiredCount() + i;
+    }
+    return properties;
+  }
+
+  // Generates one property for every row, applying the same keyword precedence as
+  // generateValueInternal; scalars are generated in a loop without frames, containers per row
+  private ColumnarBatch.Column column(JsonNode propertySchema, int size,
+      GenerationContext context) throws TimeoutException, InterruptedException {
+    JsonNode schema = context.resolve(propertySchema);
+    SchemaNodeIndex.Entry entry =
+        context.nodeIndex == null ? null : context.nodeIndex.get(schema);
+    String fingerprint = entry != null ? entry.fingerprint() : SchemaNodeIndex.fingerprint(schema);
+    if (context.recursionTracker.getOrDefault(fingerprint, 0) > recursionDepthOption
+        .getMaxDepth()) {
+      return new ColumnarBatch.ConstantColumn(NullNode.instance);
+    }
+
+    if (schema.has("const")
+        || (defaultValueOption == DefaultValueOption.USE && schema.has("default"))) {
+      return new ColumnarBatch.ConstantColumn(schema.get(schema.has("const") ? "const"
+          : "default"));
+    }
+    // FIRST, LAST and NULL pick the same value every time
+    if (schema.has("enum")) {
+      JsonNode choices = schema.get("enum");
+      return enumOption == EnumOption.RANDOM && !choices.isEmpty() ? choiceColumn(choices, size)
+          : new ColumnarBatch.ConstantColumn(generateEnumValue(choices));
+    }
+    if (examplesOption != ExamplesOption.NONE && schema.has("examples")) {
+      JsonNode choices = schema.get("examples");
+      return examplesOption == ExamplesOption.RANDOM && !choices.isEmpty()
+          ? choiceColumn(choices, size)
+          : new ColumnarBatch.ConstantColumn(generateExamplesValue(choices));
+    }
+
+    String type = schema.has("anyOf") || schema.has("oneOf")
+        || (schema.has("type") && schema.get("type").isArray()) ? null : getType(schema);
+    if ("integer".equals(type)) {
+      ColumnarBatch.Column column = longColumn(schema, size);
+      if (column != null) {
+        return column;
+      }
+    } else if ("boolean".equals(type)) {
+      if (booleanOption != BooleanOption.RANDOM) {
+        return new ColumnarBatch.ConstantColumn(generateBooleanValue());
+      }
+      boolean[] values = new boolean[size];
+      for (int row = 0; row < size; row++) {
+        values[row] = random.nextBoolean();
+      }
+      return new ColumnarBatch.BooleanColumn(values);
+    } else if ("null".equals(type)) {
+      return new ColumnarBatch.ConstantColumn(NullNode.instance);
+    }
+
+    JsonNode[] values = new JsonNode[size];
+    if ("integer".equals(type) || "number".equals(type) || "string".equals(type)) {
+      for (int row = 0; row < size; row++) {
+        values[row] = switch (type) {
+          case "integer" -> generateIntegerValue(schema);
+          case "number" -> generateNumberValue(schema);
+          default -> generateStringValue(schema);
+        };
+      }
+    } else {
+      for (int row = 0; row < size; row++) {
+        values[row] = generateValue(propertySchema, context);
+      }
+    }
+    return new ColumnarBatch.NodeColumn(values);
+  }
+
+  private ColumnarBatch.Column choiceColumn(JsonNode choices, int size) {
+    int[] indexes = new int[size];
+    for (int row = 0; row < size; row++) {
+      indexes[row] = random.nextInt(choices.size());
+    }
+    return new ColumnarBatch.ChoiceColumn(choices, indexes);
+  }
+
+  // Fills random integers into a long array where the range fits; null otherwise
+  private ColumnarBatch.Column longColumn(JsonNode schema, int size) {
+    if (numberOption != NumberOption.GENERATED
+        || (constrainedNumberOption != ConstrainedNumberOption.DATAFAKER
+            && constrainedNumberOption != ConstrainedNumberOption.RANDOM)) {
+      return new ColumnarBatch.ConstantColumn(generateIntegerValue(schema));
+    }
+    long[] values = new long[size];
+    if (constrainedNumberOption == ConstrainedNumberOption.RANDOM) {
+      for (int row = 0; row < size; row++) {
+        values[row] = random.nextLong();
+      }
+      return new ColumnarBatch.LongColumn(values);
+    }
+
+    // The same bounds as generateIntegerValue, drawn uniformly as ValidValueRandomizer does
+    BigInteger minimum =
+        schema.has("minimum") ? schema.get("minimum").bigIntegerValue() : BigInteger.ZERO;
+    BigInteger maximum = schema.has("maximum") ? schema.get("maximum").bigIntegerValue()
+        : minimum.add(BigInteger.valueOf(1000));
+    if (schema.has("exclusiveMinimum")) {
+      minimum = minimum.max(schema.get("exclusiveMinimum").bigIntegerValue().add(BigInteger.ONE));
+    }
+    if (schema.has("exclusiveMaximum")) {
+      maximum = maximum
+          .min(schema.get("exclusiveMaximum").bigIntegerValue().subtract(BigInteger.ONE));
+    }
+    BigInteger multipleOf = schema.has("multipleOf")
+        ? schema.get("multipleOf").bigIntegerValue().abs() : BigInteger.ZERO;
+    BigInteger range = maximum.subtract(minimum);
+    if (range.signum() < 0) {
+      return new ColumnarBatch.ConstantColumn(new BigIntegerNode(minimum));
+    }
+    // Past 62 bits the arithmetic below could overflow
+    if (minimum.bitLength() > 62 || maximum.bitLength() > 62 || range.bitLength() > 62
+        || multipleOf.bitLength() > 62) {
+      return null;
+    }
+
+    long min = minimum.longValue();
+    long max = maximum.longValue();
+    long bound = range.longValue() + 1;
+    long step = multipleOf.longValue();
+    for (int row = 0; row < size; row++) {
+      long value = min + random.nextLong(bound);
+      if (step != 0) {
+        value -= Math.floorMod(value, step);
+        if (value < min) {
+          value += step;
+        }
+        if (value > max) {
+          value -= step;
+        }
+      }
+      values[row] = value;
+    }
+    return new ColumnarBatch.LongColumn(values);
+  }
+
+  static long toTimeoutNanos(Duration timeout) {
+    if (timeout == null || timeout.isNegative()) {
+      throw new IllegalArgumentException("Timeout must be zero or positive");
+    }
+    try {
+      return timeout.toNanos();
+    } catch (ArithmeticException e) {
+      return Long.MAX_VALUE; // Longer than any generation can run
+    }
+  }
+
+  // A negative timeout leaves the generation unbounded; an arena's document is overwritten
+  private GenerationReport generate(CompiledJsonSchema compiledSchema, boolean accounting,
+      long timeoutNanos, DocumentArena arena) throws TimeoutException, InterruptedException {
+    if (!equals(compiledSchema.getGenerator())) {
+      throw new IllegalArgumentException(
+          "CompiledJsonSchema was compiled by a generator with different options");
+    }
+
+    // Resolver-backed schemas are not memoized, since invalidate() can change what they resolve to
+    boolean memoizable = compiledSchema.getRefResolver() == null && isDeterministic();
+    if (memoizable) {
+      JsonNode generated = compiledSchema.getGeneratedDocument();
+      if (generated != null) {
+        // An arena keeps its copy of the memoized document, since nothing else overwrites it
+        JsonNode document = arena != null && arena.memoizedCopy
+            ? arena.document : generated.deepCopy();
+        if (arena != null) {
+          arena.memoizedCopy = true;
+        }
+        if (!accounting) {
+          return new GenerationReport(document, 0, 0, 0);
+        }
+        long[] size = measure(document);
+        return new GenerationReport(document, size[0], size[1], 0);
+      }
+    }
+
+    GenerationContext context = new GenerationContext(compiledSchema.getRefResolver(),
+        allOfMerges(compiledSchema),
+        compiledSchema.getNodeIndex(), accounting ? generationBudget : null, timeoutNanos, arena);
+    JsonNode result = generateValue(compiledSchema.getRootSchema(), context);
+    // A truncated document is not what an unlimited budget would generate
+    boolean memoized = memoizable && !context.randomized && context.truncatedContainers == 0;
+    if (memoized) {
+      compiledSchema.setGeneratedDocument(result.deepCopy());
+    }
+    if (arena != null) {
+      arena.memoizedCopy = memoized;
+    }
+    return new GenerationReport(result, context.nodes, context.bytes,
+        context.truncatedContainers);
+  }
+
+  /**
+   * Returns whether this generator's options leave no choice to chance, so the data generated for
+   * a schema depends on the schema alone.
+   *
+   * <p>
+   * Options are deterministic unless they select randomly ({@code RANDOM} values,
+   * {@link ContainsOption#DISTRIBUTE}, {@link AdditionalPropertiesOption#GENERATE_FEW}, any
+   * {@link PatternPropertiesOption} but {@code NONE}) or generate strings and numbers with
+   * DataFaker ({@link StringOption#GENERATED} without {@link FormattedStringOption#NULL},
+   * {@link NumberOption#GENERATED} with {@link ConstrainedNumberOption#DATAFAKER}). Under
+   * deterministic options, {@link #generate(CompiledJsonSchema)} generates each compiled schema
+   * once and returns copies of that document afterwards, unless the schema itself calls for
+   * chance: {@code maxProperties} choosing among optional properties, or {@code propertyNames}
+   * patterns.
+   *
+   * @return true if the options are deterministic
+   */
+  public boolean isDeterministic() {
+    boolean randomSelection = unionTypeOption == UnionTypeOption.RANDOM
+        || enumOption == EnumOption.RANDOM || examplesOption == ExamplesOption.RANDOM
+        || anyOfOption == AnyOfOption.RANDOM || oneOfOption == OneOfOption.RANDOM
+        || booleanOption == BooleanOption.RANDOM || arrayOption == ArrayOption.RANDOM
+        || primitiveArrayOption == PrimitiveArrayOption.RANDOM
+        || containsOption == ContainsOption.RANDOM || containsOption == ContainsOption.DISTRIBUTE
+        || additionalPropertiesOption == AdditionalPropertiesOption.GENERATE_FEW
+        || patternPropertiesOption != PatternPropertiesOption.NONE;
+    boolean randomStrings = stringOption == StringOption.GENERATED
+        && formattedStringOption != FormattedStringOption.NULL;
+    boolean randomNumbers = numberOption == NumberOption.GENERATED
+        && (constrainedNumberOption == ConstrainedNumberOption.DATAFAKER
+            || constrainedNumberOption == ConstrainedNumberOption.RANDOM);
+    return !randomSelection && !randomStrings && !randomNumbers;
+  }
+
+  /**
+   * Compiles a JSON Schema string for repeated generation with this generator.
+   *
+   * <p>
+   * The schema is flattened, pruned of everything this generator's options make unreachable, and
+   * converted once. Under {@link RefResolutionOption#LAZY} only the root document is parsed.
+   *
+   * @param jsonSchema the JSON Schema as a string
+   * @return the compiled schema
+   * @throws Exception if schema parsing fails
+   */
+  public CompiledJsonSchema compile(String jsonSchema) throws Exception {
+    if (refResolutionOption == RefResolutionOption.LAZY) {
+      JsonSchemaRefResolver refResolver = JsonSchemaRefResolver.of(jsonSchema);
+      return new CompiledJsonSchema(this, refResolver.getRootSchema(), refResolver, null);
+    }
+    if (refResolutionOption == RefResolutionOption.NATIVE) {
+      return compile(JsonSchemaFlattener.flattenToJsonNode(jsonSchema, allOfOption));
+    }
+
+    return compile(JsonSchemaFlattener.flattenJsonSchema(
+        new $RefParser(jsonSchema).withOptions(getRefParserOptions()), allOfOption));
+  }
+
+  /**
+   * Compiles a JSON Schema file for repeated generation with this generator.
+   *
+   * <p>
+   * The schema is flattened, pruned of everything this generator's options make unreachable, and
+   * converted once. Under {@link RefResolutionOption#LAZY} only the root document is parsed.
+   *
+   * @param jsonSchemaFile the JSON Schema file
+   * @return the compiled schema
+   * @throws Exception if schema parsing fails
+   */
+  public CompiledJsonSchema compile(File jsonSchemaFile) throws Exception {
+    if (refResolutionOption == RefResolutionOption.LAZY) {
+      JsonSchemaRefResolver refResolver = JsonSchemaRefResolver.of(jsonSchemaFile);
+      return new CompiledJsonSchema(this, refResolver.getRootSchema(), refResolver, null);
+    }
+    if (refResolutionOption == RefResolutionOption.NATIVE) {
+      return compile(JsonSchemaFlattener.flattenToJsonNode(jsonSchemaFile, allOfOption));
+    }
+
+    return compile(JsonSchemaFlattener.flattenJsonSchema(
+        new $RefParser(jsonSchemaFile).withOptions(getRefParserOptions()), allOfOption));
+  }
+
+  /**
+   * Compiles the schema held by a resolver for repeated generation with this generator, e.g. one
+   * created with a {@link JsonSchemaRegistry}.
+   *
+   * <p>
+   * The schema is flattened by
+   * {@link JsonSchemaFlattener#flattenToJsonNode(JsonSchemaRefResolver, AllOfOption)} and pruned,
+   * whichever of {@link RefResolutionOption#EAGER} or {@link RefResolutionOption#NATIVE} is set.
+   * Under {@link RefResolutionOption#LAZY} the resolver is used during generation instead.
+   *
+   * @param refResolver the resolver holding the root document
+   * @return the compiled schema
+   * @throws IOException if a referenced document cannot be read
+   */
+  public CompiledJsonSchema compile(JsonSchemaRefResolver refResolver) throws IOException {
+    if (refResolutionOption == RefResolutionOption.LAZY) {
+      return new CompiledJsonSchema(this, refResolver.getRootSchema(), refResolver, null);
+    }
+    return compile(JsonSchemaFlattener.flattenToJsonNode(refResolver, allOfOption));
+  }
+
+  /**
+   * Compiles every {@code .json} file under a directory, recursively, on a bounded pool.
+   *
+   * @param directory the directory holding the schema files
+   * @param parallelism the maximum number of schemas compiled at the same time
+   * @return one result per schema file, ordered by path
+   * @throws IOException if the directory cannot be listed, or the calling thread is interrupted
+   * @throws IllegalArgumentException if parallelism is less than 1
+   * @see #compileAll(Collection, int)
+   */
+  public List<SchemaCompilationResult> compileAll(File directory, int parallelism)
+      throws IOException {
+    List<File> schemaFiles;
+    try (Stream<Path> paths = Files.walk(directory.toPath())) {
+      schemaFiles = paths.filter(Files::isRegularFile)
+          .filter(path -> path.getFileName().toString().endsWith(".json"))
+          .sorted()
+          .map(Path::toFile)
+          .toList();
+    }
+    return compileAll(schemaFiles, parallelism);
+  }
+
+  /**
+   * Compiles a batch of schema files on a bounded pool, parsing every document once for the whole
+   * batch.
+   *
+   * <p>
+   * Each schema is compiled as by {@link #compile(JsonSchemaRefResolver)}, with all resolvers of
+   * the batch sharing the documents they parse: a {@code common.json} referenced by every schema,
+   * or compiled as a schema itself, is read and parsed a single time. A schema that fails to
+   * compile is reported in its result and does not stop the others.
+   *
+   * @param schemaFiles the schema files to compile
+   * @param parallelism the maximum number of schemas compiled at the same time
+   * @return one result per schema file, in the order given
+   * @throws IOException if the calling thread is interrupted
+   * @throws IllegalArgumentException if parallelism is less than 1
+   */
+  public List<SchemaCompilationResult> compileAll(Collection<File> schemaFiles, int parallelism)
+      throws IOException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+
+    Map<URI, CompletableFuture<JsonNode>> sharedDocuments = new ConcurrentHashMap<>();
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+      Thread thread = new Thread(runnable, "json-schema-compile");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<SchemaCompilationResult>> futures = new ArrayList<>(schemaFiles.size());
+      for (File schemaFile : schemaFiles) {
+        futures.add(executor.submit(() -> compileShared(schemaFile, sharedDocuments)));
+      }
+
+      List<SchemaCompilationResult> results = new ArrayList<>(futures.size());
+      for (Future<SchemaCompilationResult> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compiling schemas");
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause()); // compileShared reports every exception
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private SchemaCompilationResult compileShared(File schemaFile,
+      Map<URI, CompletableFuture<JsonNode>> sharedDocuments) {
+    long start = System.nanoTime();
+    try {
+      CompiledJsonSchema compiledSchema =
+          compile(JsonSchemaRefResolver.of(schemaFile, null, sharedDocuments));
+      return new SchemaCompilationResult(schemaFile, compiledSchema, null,
+          Duration.ofNanos(System.nanoTime() - start));
+    } catch (Exception e) {
+      return new SchemaCompilationResult(schemaFile, null, e,
+          Duration.ofNanos(System.nanoTime() - start));
+    }
+  }
+
+  private CompiledJsonSchema compile(Map<String, Object> flattenedMap) {
+    SchemaPruningReport pruningReport = JsonSchemaPruner.prune(flattenedMap, this);
+    return new CompiledJsonSchema(this, mapToJsonNode(flattenedMap), null, pruningReport);
+  }
+
+  private CompiledJsonSchema compile(ObjectNode flattenedTree) {
+    SchemaPruningReport pruningReport = JsonSchemaPruner.prune(flattenedTree, this);
+    return new CompiledJsonSchema(this, flattenedTree, null, pruningReport);
   }
 
   /**
@@ -524,7 +1313,7 @@ public final class JsonSchemaDataGenerator {
 
       try {
         if (value instanceof Map<?, ?> m) {
-          ObjectNode objectNode = mapper().createObjectNode();
+          ObjectNode objectNode = objectNode(m.size());
           for (Map.Entry<?, ?> entry : m.entrySet()) {
             String key = String.valueOf(entry.getKey());
             objectNode.set(key, convertToJsonNode(entry.getValue(), inProgress));
@@ -533,7 +1322,7 @@ public final class JsonSchemaDataGenerator {
         }
 
         if (value instanceof Collection<?> c) {
-          ArrayNode arrayNode = mapper().createArrayNode();
+          ArrayNode arrayNode = arrayNode(c.size());
           for (Object item : c) {
             arrayNode.add(convertToJsonNode(item, inProgress));
           }
@@ -549,56 +1338,367 @@ public final class JsonSchemaDataGenerator {
     return mapper().valueToTree(value);
   }
 
-  private JsonNode generateValue(JsonNode schema, Map<String, Integer> recursionTracker) {
+  /**
+   * Per-call generation state: recursion tracking, the compiled schema's node index, the size of
+   * the document so far and, in lazy modes, the $ref resolver and the memoized allOf merges.
+   */
+  private static final class GenerationContext {
+
+    private final Map<String, Integer> recursionTracker = new HashMap<>();
+    private final JsonSchemaRefResolver refResolver;
+    private final Map<JsonNode, JsonNode> allOfMerges;
+    private final SchemaNodeIndex nodeIndex;
+    private final Set<JsonNode> merging = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Set when the schema called for chance even though the options are deterministic
+    private boolean randomized;
+    // Null unless the document's size is counted
+    private final GenerationBudget budget;
+    private long nodes;
+    private long bytes;
+    private int truncatedContainers;
+    // Negative unless generation is timed
+    private final long timeoutNanos;
+    private final long startNanos = System.nanoTime();
+    private int steps;
+    // The optional property offsets picked by the objects on the stack, one window per object
+    // from the bottom, with the next pick shuffled above the top
+    private int[] propertyOffsets = new int[16];
+    private int propertyOffsetsTop;
+    // Null unless the previous document's containers are overwritten
+    private final DocumentArena arena;
+
+    private GenerationContext(JsonSchemaRefResolver refResolver,
+        Map<JsonNode, JsonNode> allOfMerges, SchemaNodeIndex nodeIndex,
+        GenerationBudget budget, long timeoutNanos, DocumentArena arena) {
+      this.refResolver = refResolver;
+      this.allOfMerges = allOfMerges;
+      this.nodeIndex = nodeIndex;
+      this.budget = budget;
+      this.timeoutNanos = timeoutNanos;
+      this.arena = arena;
+    }
+
+    // Reading the clock costs more than a step, so only every 64th step checks the deadline
+    private void checkDeadline() throws TimeoutException, InterruptedException {
+      if (timeoutNanos < 0 || (steps++ & 63) != 0) {
+        return;
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedException("Generation interrupted");
+      }
+      if (System.nanoTime() - startNanos >= timeoutNanos) {
+        throw new TimeoutException(
+            "Generation exceeded its timeout of " + Duration.ofNanos(timeoutNanos));
+      }
+    }
+
+    private void count(JsonNode value) {
+      if (budget != null) {
+        long[] size = measure(value);
+        nodes += size[0];
+        bytes += size[1];
+      }
+    }
+
+    // Whether the frame has used up its share of the budget
+    private boolean exhausted(Frame frame) {
+      return budget != null && (nodes >= frame.maxNodes || bytes >= frame.maxBytes);
+    }
+
+    private JsonNode resolve(JsonNode schema) {
+      JsonNode resolved = refResolver == null ? schema : refResolver.resolve(schema);
+      return allOfMerges == null || !resolved.has("allOf") ? resolved : mergeAllOf(resolved);
+    }
+
+    private JsonNode mergeAllOf(JsonNode schema) {
+      JsonNode merged = allOfMerges.get(schema);
+      if (merged != null) {
+        return merged;
+      }
+      if (!merging.add(schema)) {
+        return schema; // An allOf branch leading back to this schema is used unmerged
+      }
+      try {
+        merged = JsonSchemaAssembler.mergeAllOf(schema, this::resolve);
+      } finally {
+        merging.remove(schema);
+      }
+      JsonNode previous = allOfMerges.putIfAbsent(schema, merged);
+      return previous != null ? previous : merged;
+    }
+
+  }
+
+  // The allOf merges generation makes: every merge under AllOfOption.LAZY, and under MERGE those
+  // of schemas resolved lazily, which no flattening merged up front
+  private Map<JsonNode, JsonNode> allOfMerges(CompiledJsonSchema compiledSchema) {
+    boolean merging = allOfOption == AllOfOption.LAZY
+        || (allOfOption == AllOfOption.MERGE && compiledSchema.getRefResolver() != null);
+    return merging ? compiledSchema.getAllOfMerges() : null;
+  }
+
+  /**
+   * A schema whose value is still waiting for the values of its subschemas. Frames are kept on an
+   * explicit stack: {@link #nextChild(boolean)} names the next subschema to generate,
+   * {@link #accept} receives its value and {@link #result()} builds the value once no subschema
+   * is left.
+   */
+  private abstract static class Frame {
+
+    private String fingerprint;
+    private int depth;
+    private SchemaNodeIndex.Entry memoEntry;
+    // The node and byte counts this subtree may grow the document to
+    private long maxNodes;
+    private long maxBytes;
+    private int truncationsAtEntry;
+    // Set when the budget left out subschemas the options called for
+    boolean truncated;
+
+    // Once the frame's budget is exhausted, only subschemas the schema requires are returned
+    abstract JsonNode nextChild(boolean exhausted);
+
+    abstract void accept(JsonNode value);
+
+    abstract JsonNode result();
+
+    // The number of subschemas left to generate, including the one being generated
+    abstract int remainingChildren();
+
+    // The estimated bytes serializing the next subschema's value adds besides the value itself
+    int childBytes() {
+      return 1;
+    }
+
+    // Takes over the previous document's container at this position, to overwrite in place
+    void adopt(JsonNode previous) {}
+
+    // The previous document's value at the position of the next subschema, if adopted
+    JsonNode previousChild() {
+      return null;
+    }
+
+  }
+
+  // The anyOf or oneOf branch a schema generates
+  private static final class BranchFrame extends Frame {
+
+    private JsonNode branch;
+    private JsonNode value;
+    private JsonNode previous;
+
+    private BranchFrame(JsonNode branch) {
+      this.branch = branch;
+    }
+
+    @Override
+    void adopt(JsonNode previous) {
+      this.previous = previous; // The branch's value takes the place of the schema's
+    }
+
+    @Override
+    JsonNode previousChild() {
+      return previous;
+    }
+
+    @Override
+    JsonNode nextChild(boolean exhausted) {
+      JsonNode next = branch;
+      branch = null;
+      return next;
+    }
+
+    @Override
+    void accept(JsonNode value) {
+      this.value = value;
+    }
+
+    @Override
+    JsonNode result() {
+      return value;
+    }
+
+    @Override
+    int remainingChildren() {
+      return 1;
+    }
+
+    @Override
+    int childBytes() {
+      return 0;
+    }
+
+  }
+
+  // Generates with an explicit stack of frames instead of recursive calls, so the depth a schema
+  // can reach is bounded by the heap rather than by the thread's stack size
+  private JsonNode generateValue(JsonNode schema, GenerationContext context)
+      throws TimeoutException, InterruptedException {
+    Deque<Frame> stack = new ArrayDeque<>();
+    context.checkDeadline();
+    JsonNode value = enter(schema, context, stack);
+    while (!stack.isEmpty()) {
+      context.checkDeadline();
+      Frame frame = stack.peek();
+      if (value != null) {
+        frame.accept(value);
+      }
+      JsonNode child = frame.nextChild(context.exhausted(frame));
+      if (child != null) {
+        if (context.budget != null) {
+          context.bytes += frame.childBytes();
+        }
+        value = enter(child, context, stack);
+      } else {
+        stack.pop();
+        value = exit(frame, context);
+      }
+    }
+    return value;
+  }
+
+  // Returns the value of a schema, or null after pushing the frame that still needs the values of
+  // its subschemas
+  private JsonNode enter(JsonNode schema, GenerationContext context, Deque<Frame> stack) {
+    // Siblings share what is left of their parent's budget evenly
+    Frame parent = stack.peek();
+    long maxNodes = Long.MAX_VALUE;
+    long maxBytes = Long.MAX_VALUE;
+    if (context.budget != null) {
+      int siblings = parent == null ? 1 : Math.max(parent.remainingChildren(), 1);
+      maxNodes = share(parent == null ? context.budget.maxNodes() : parent.maxNodes,
+          context.nodes, siblings);
+      maxBytes = share(parent == null ? context.budget.maxBytes() : parent.maxBytes,
+          context.bytes, siblings);
+    }
+
+    // The container of the previous document at this position, if the frame can overwrite it
+    JsonNode previous = null;
+    if (context.arena != null) {
+      previous = parent == null ? context.arena.document : parent.previousChild();
+      if (previous != null && previous.isValueNode()) {
+        previous = null;
+      }
+    }
+
+    // Resolve $ref on first reach (lazy mode only)
+    schema = context.resolve(schema);
+
+    // Compiled schemas know each node's fingerprint, and the value of deterministic subtrees
+    SchemaNodeIndex.Entry entry =
+        context.nodeIndex == null ? null : context.nodeIndex.get(schema);
+    Map<String, Integer> recursionTracker = context.recursionTracker;
+    boolean reusable = entry != null
+        && entry.isReusable(recursionTracker, recursionDepthOption.getMaxDepth());
+    if (reusable && entry.value() != null) {
+      if (context.budget == null) {
+        return entry.value().deepCopy();
+      }
+      // A memoized value too large for this subtree's share is generated afresh
+      long[] size = measure(entry.value());
+      if (context.nodes + size[0] <= maxNodes && context.bytes + size[1] <= maxBytes) {
+        context.nodes += size[0];
+        context.bytes += size[1];
+        return entry.value().deepCopy();
+      }
+    }
+
     // Generate fingerprint for this schema to track recursion
-    String fingerprint = generateSchemaFingerprint(schema);
+    String fingerprint = entry != null ? entry.fingerprint() : SchemaNodeIndex.fingerprint(schema);
 
     // Check recursion depth - only limit when we've EXCEEDED maxDepth
     // (allows initial processing even with NONE, but prevents re-processing same schema)
     int currentDepth = recursionTracker.getOrDefault(fingerprint, 0);
     if (currentDepth > recursionDepthOption.getMaxDepth()) {
+      context.count(NullNode.instance);
       return NullNode.instance;
     }
 
-    // Increment depth before recursing
-    recursionTracker.put(fingerprint, currentDepth + 1);
+    JsonNode value = generateValueInternal(schema, context, stack);
+    if (value == null) {
+      Frame frame = stack.peek();
+      frame.fingerprint = fingerprint;
+      frame.depth = currentDepth;
+      frame.memoEntry = reusable ? entry : null;
+      frame.maxNodes = maxNodes;
+      frame.maxBytes = maxBytes;
+      frame.truncationsAtEntry = context.truncatedContainers;
+      if (previous != null) {
+        frame.adopt(previous);
+      }
+      // Increment depth before descending
+      recursionTracker.put(fingerprint, currentDepth + 1);
+    } else {
+      context.count(value);
+      if (reusable) {
+        entry.setValue(value.deepCopy());
+      }
+    }
+    return value;
+  }
 
-    try {
-      return generateValueInternal(schema, recursionTracker);
-    } finally {
-      // Decrement depth when returning
-      recursionTracker.put(fingerprint, currentDepth);
+  private JsonNode exit(Frame frame, GenerationContext context) {
+    // Decrement depth when returning
+    context.recursionTracker.put(frame.fingerprint, frame.depth);
+    JsonNode value = frame.result();
+    if (frame.truncated) {
+      context.truncatedContainers++;
     }
+    if (context.budget != null) {
+      context.nodes++;
+      context.bytes += 2;
+    }
+    // A truncated subtree is not what the memoized value stands for
+    if (frame.memoEntry != null && context.truncatedContainers == frame.truncationsAtEntry) {
+      frame.memoEntry.setValue(value.deepCopy());
+    }
+    return value;
+  }
+
+  private static long share(long limit, long used, int siblings) {
+    return used + Math.max(limit - used, 0) / siblings;
   }
 
-  private String generateSchemaFingerprint(JsonNode schema) {
-    StringBuilder sb = new StringBuilder();
-    if (schema.has("type")) {
-      JsonNode typeNode = schema.get("type");
-      if (typeNode.isArray()) {
-        sb.append("type:[");
-        for (JsonNode t : typeNode) {
-          sb.append(t.asString()).append(",");
+  // Counts the nodes of a value and estimates its compact serialized length, without escaping
+  static long[] measure(JsonNode value) {
+    long nodes = 0;
+    long bytes = 0;
+    Deque<JsonNode> pending = new ArrayDeque<>();
+    pending.push(value);
+    while (!pending.isEmpty()) {
+      JsonNode node = pending.pop();
+      nodes++;
+      if (node.isObject()) {
+        bytes += 2;
+        for (Map.Entry<String, JsonNode> field : node.properties()) {
+          bytes += field.getKey().length() + 4;
+          pending.push(field.getValue());
+        }
+      } else if (node.isArray()) {
+        bytes += 2;
+        for (JsonNode item : node) {
+          bytes += 1;
+          pending.push(item);
         }
-        sb.append("]");
+      } else if (node.isString()) {
+        bytes += node.asString().length() + 2;
+      } else if (node.isNull()) {
+        bytes += 4;
       } else {
-        sb.append("type:").append(typeNode.asString());
+        bytes += node.asString().length();
       }
     }
-    if (schema.has("properties")) {
-      sb.append("|props:");
-      schema.get("properties").propertyNames().forEach(sb::append);
-    }
-    if (schema.has("title")) {
-      sb.append("|title:").append(schema.get("title").asString());
-    }
-    if (schema.has("$id")) {
-      sb.append("|$id:").append(schema.get("$id").asString());
-    }
-    return sb.toString();
+    return new long[] {nodes, bytes};
+  }
+
+  private static JsonNode push(Deque<Frame> stack, Frame frame) {
+    stack.push(frame);
+    return null;
   }
 
-  private JsonNode generateValueInternal(JsonNode schema, Map<String, Integer> recursionTracker) {
+  // Returns the value of a leaf schema, or pushes a frame and returns null
+  private JsonNode generateValueInternal(JsonNode schema, GenerationContext context,
+      Deque<Frame> stack) {
     // 1. Handle const (always returns the const value)
     if (schema.has("const")) {
       return schema.get("const").deepCopy();
@@ -621,20 +1721,20 @@ public final class JsonSchemaDataGenerator {
 
     // 5. Handle anyOf
     if (schema.has("anyOf")) {
-      return generateAnyOfValue(schema.get("anyOf"), recursionTracker);
+      return generateAnyOfValue(schema.get("anyOf"), stack);
     }
 
     // 6. Handle oneOf
     if (schema.has("oneOf")) {
-      return generateOneOfValue(schema.get("oneOf"), recursionTracker);
+      return generateOneOfValue(schema.get("oneOf"), stack);
     }
 
     // 7. Type-based generation
     String type = getType(schema);
 
     return switch (type) {
-      case "object" -> generateObjectValue(schema, recursionTracker);
-      case "array" -> generateArrayValue(schema, recursionTracker);
+      case "object" -> push(stack, new ObjectFrame(schema, context));
+      case "array" -> generateArrayValue(schema, context, stack);
       case "string" -> generateStringValue(schema);
       case "integer" -> generateIntegerValue(schema);
       case "number" -> generateNumberValue(schema);
@@ -709,7 +1809,7 @@ public final class JsonSchemaDataGenerator {
     return index < 0 ? NullNode.instance : examplesArray.get(index).deepCopy();
   }
 
-  private JsonNode generateAnyOfValue(JsonNode anyOfArray, Map<String, Integer> recursionTracker) {
+  private JsonNode generateAnyOfValue(JsonNode anyOfArray, Deque<Frame> stack) {
     if (anyOfArray == null || anyOfArray.isEmpty()) {
       return NullNode.instance;
     }
@@ -721,10 +1821,10 @@ public final class JsonSchemaDataGenerator {
       case RANDOM -> random.nextInt(anyOfArray.size());
     };
 
-    return index < 0 ? NullNode.instance : generateValue(anyOfArray.get(index), recursionTracker);
+    return index < 0 ? NullNode.instance : push(stack, new BranchFrame(anyOfArray.get(index)));
   }
 
-  private JsonNode generateOneOfValue(JsonNode oneOfArray, Map<String, Integer> recursionTracker) {
+  private JsonNode generateOneOfValue(JsonNode oneOfArray, Deque<Frame> stack) {
     if (oneOfArray == null || oneOfArray.isEmpty()) {
       return NullNode.instance;
     }
@@ -736,103 +1836,219 @@ public final class JsonSchemaDataGenerator {
       case RANDOM -> random.nextInt(oneOfArray.size());
     };
 
-    return index < 0 ? NullNode.instance : generateValue(oneOfArray.get(index), recursionTracker);
+    return index < 0 ? NullNode.instance : push(stack, new BranchFrame(oneOfArray.get(index)));
   }
 
-  private JsonNode generateObjectValue(JsonNode schema, Map<String, Integer> recursionTracker) {
-    ObjectNode objectNode = mapper().createObjectNode();
+  // Picks the property names of an object up front, then receives their values in order
+  private final class ObjectFrame extends Frame {
+
+    private ObjectNode objectNode;
+    private final PropertyPartition partition;
+    // The selected required properties, which come first
+    private int mandatory;
+    // The selected properties, then the optional ones at the picked partition offsets
+    private int selected;
+    // Set when only some optional properties are picked, whose offsets are held in the context
+    // from pickedStart until the frame's result is built
+    private GenerationContext pickedContext;
+    private int pickedStart;
+    // Pattern and additional properties, allocated only when the schema has any
+    private List<String> extraNames;
+    private List<JsonNode> extraSchemas;
+    private int next;
+
+    private ObjectFrame(JsonNode schema, GenerationContext context) {
+      // Handle regular properties if they exist
+      partition = partitionOf(schema, context);
+      if (partition != null) {
+        int requiredCount = partition.requiredCount();
+        int optionalCount = partition.optionalCount();
+        int targetCount = determinePropertyCount(partition.minProperties(),
+            partition.maxProperties(), requiredCount, partition.size());
+
+        mandatory = Math.min(requiredCount, targetCount);
+        int slots = propertyScopeOption == PropertyScopeOption.REQUIRED_ONLY ? 0
+            : Math.min(targetCount - mandatory, optionalCount);
+        if (slots > 0 && slots < optionalCount) {
+          pickedContext = context;
+          pickedStart = pickOptional(slots, optionalCount, context);
+          context.randomized = true; // Only some optional properties are picked
+        }
+        selected = mandatory + slots;
+      }
 
-    // Handle regular properties if they exist
-    if (schema.has("properties")) {
-      JsonNode properties = schema.get("properties");
-      Set<String> requiredFields = new HashSet<>();
+      // Handle patternProperties
+      if (patternPropertiesOption != PatternPropertiesOption.NONE
+          && schema.has("patternProperties")) {
+        JsonNode patternProps = schema.get("patternProperties");
 
-      if (schema.has("required")) {
-        schema.get("required").forEach(node -> requiredFields.add(node.asString()));
-      }
+        Iterator<Map.Entry<String, JsonNode>> patterns = patternProps.properties().iterator();
+        while (patterns.hasNext()) {
+          Map.Entry<String, JsonNode> entry = patterns.next();
+          String pattern = entry.getKey();
+          JsonNode patternSchema = entry.getValue();
 
-      // Get minProperties/maxProperties constraints
-      int minProps = schema.has("minProperties") ? schema.get("minProperties").asInt() : 0;
-      int maxProps =
-          schema.has("maxProperties") ? schema.get("maxProperties").asInt() : Integer.MAX_VALUE;
+          int count = (patternPropertiesOption == PatternPropertiesOption.GENERATE_ONE) ? 1
+              : 2 + random.nextInt(2);
 
-      // Collect all property names
-      List<String> requiredList = new ArrayList<>();
-      List<String> optionalList = new ArrayList<>();
+          for (int i = 0; i < count; i++) {
+            add(generatePatternPropertyName(pattern), patternSchema);
+          }
+        }
+      }
 
-      Iterator<Map.Entry<String, JsonNode>> fields = properties.properties().iterator();
-      while (fields.hasNext()) {
-        String fieldName = fields.next().getKey();
-        if (requiredFields.contains(fieldName)) {
-          requiredList.add(fieldName);
-        } else {
-          optionalList.add(fieldName);
+      // Handle additionalProperties
+      if (additionalPropertiesOption != AdditionalPropertiesOption.NONE
+          && schema.has("additionalProperties")) {
+        JsonNode additionalProps = schema.get("additionalProperties");
+
+        // additionalProperties: false means no additional properties allowed
+        if (!additionalProps.isBoolean() || additionalProps.asBoolean()) {
+          // Determine how many additional properties to generate
+          int additionalCount =
+              (additionalPropertiesOption == AdditionalPropertiesOption.GENERATE_ONE) ? 1
+                  : 2 + random.nextInt(2);
+
+          // Get schema for additional properties (or use empty schema for true)
+          JsonNode additionalSchema =
+              additionalProps.isBoolean() ? mapper().createObjectNode() : additionalProps;
+
+          // Generate property names (use propertyNames if available)
+          for (int i = 0; i < additionalCount; i++) {
+            add(generatePropertyName(schema, "additional_" + i, context), additionalSchema);
+          }
         }
       }
+    }
 
-      // Determine target property count
-      int targetCount = determinePropertyCount(minProps, maxProps, requiredList.size(),
-          requiredList.size() + optionalList.size());
+    @Override
+    void adopt(JsonNode previous) {
+      if (!previous.isObject()) {
+        return;
+      }
+      objectNode = (ObjectNode) previous;
+      // Replacing the values keeps the properties in order only if the names are the same
+      int position = 0;
+      for (String name : objectNode.propertyNames()) {
+        if (position >= remainingChildren() || !name.equals(name(position++))) {
+          objectNode.removeAll();
+          return;
+        }
+      }
+      if (position < remainingChildren()) {
+        objectNode.removeAll();
+      }
+    }
 
-      // Select properties to generate
-      List<String> propertiesToGenerate = selectProperties(requiredList, optionalList, targetCount);
+    @Override
+    JsonNode previousChild() {
+      return objectNode == null ? null : objectNode.get(name(next));
+    }
 
-      // Generate selected properties
-      for (String fieldName : propertiesToGenerate) {
-        JsonNode fieldSchema = properties.get(fieldName);
-        objectNode.set(fieldName, generateValue(fieldSchema, recursionTracker));
+    private void add(String name, JsonNode schema) {
+      if (extraNames == null) {
+        extraNames = new ArrayList<>();
+        extraSchemas = new ArrayList<>();
       }
+      extraNames.add(name);
+      extraSchemas.add(schema);
     }
 
-    // Handle patternProperties
-    if (patternPropertiesOption != PatternPropertiesOption.NONE
-        && schema.has("patternProperties")) {
-      JsonNode patternProps = schema.get("patternProperties");
+    // Maps the position of a selected property to its index in the partition
+    private int indexOf(int position) {
+      if (position < mandatory) {
+        return position;
+      }
+      int offset = position - mandatory;
+      return partition.requiredCount() + (pickedContext == null ? offset
+          : pickedContext.propertyOffsets[pickedStart + offset]);
+    }
 
-      Iterator<Map.Entry<String, JsonNode>> patterns = patternProps.properties().iterator();
-      while (patterns.hasNext()) {
-        Map.Entry<String, JsonNode> entry = patterns.next();
-        String pattern = entry.getKey();
-        JsonNode patternSchema = entry.getValue();
+    @Override
+    JsonNode nextChild(boolean exhausted) {
+      if (next >= selected + (extraSchemas == null ? 0 : extraSchemas.size())) {
+        return null;
+      }
+      if (exhausted && next >= mandatory) {
+        truncated = true;
+        return null;
+      }
+      return next < selected ? partition.schema(indexOf(next))
+          : extraSchemas.get(next - selected);
+    }
 
-        int count = (patternPropertiesOption == PatternPropertiesOption.GENERATE_ONE) ? 1
-            : 2 + random.nextInt(2);
+    @Override
+    void accept(JsonNode value) {
+      node().set(name(next++), value);
+    }
 
-        for (int i = 0; i < count; i++) {
-          String propName = generatePatternPropertyName(pattern);
-          objectNode.set(propName, generateValue(patternSchema, recursionTracker));
-        }
+    private ObjectNode node() {
+      if (objectNode == null) {
+        objectNode = objectNode(remainingChildren());
       }
+      return objectNode;
     }
 
-    // Handle additionalProperties
-    if (additionalPropertiesOption != AdditionalPropertiesOption.NONE
-        && schema.has("additionalProperties")) {
-      JsonNode additionalProps = schema.get("additionalProperties");
-
-      // additionalProperties: false means no additional properties allowed
-      if (!additionalProps.isBoolean() || additionalProps.asBoolean()) {
-        // Determine how many additional properties to generate
-        int additionalCount =
-            (additionalPropertiesOption == AdditionalPropertiesOption.GENERATE_ONE) ? 1
-                : 2 + random.nextInt(2);
-
-        // Get schema for additional properties (or use empty schema for true)
-        JsonNode additionalSchema =
-            additionalProps.isBoolean() ? mapper().createObjectNode() : additionalProps;
-
-        // Generate property names (use propertyNames if available)
-        for (int i = 0; i < additionalCount; i++) {
-          String propName = generatePropertyName(schema, "additional_" + i);
-          objectNode.set(propName, generateValue(additionalSchema, recursionTracker));
-        }
+    private String name(int position) {
+      return position < selected ? partition.name(indexOf(position))
+          : extraNames.get(position - selected);
+    }
+
+    @Override
+    JsonNode result() {
+      // An adopted node cut short by the budget still holds the previous values of the rest
+      for (int position = next, end = next + remainingChildren(); objectNode != null
+          && position < end; position++) {
+        objectNode.remove(name(position));
+      }
+      if (pickedContext != null) {
+        pickedContext.propertyOffsetsTop = pickedStart; // Frees the window for later objects
       }
+      return node();
     }
 
-    return objectNode;
+    @Override
+    int remainingChildren() {
+      return selected + (extraSchemas == null ? 0 : extraSchemas.size()) - next;
+    }
+
+    @Override
+    int childBytes() {
+      return name(next).length() + 4;
+    }
+
+  }
+
+  private PropertyPartition partitionOf(JsonNode schema, GenerationContext context) {
+    SchemaNodeIndex.Entry entry =
+        context.nodeIndex == null ? null : context.nodeIndex.get(schema);
+    // Merged allOf schemas and LAZY generation have no index entry to hold a partition
+    return entry != null ? entry.partition() : PropertyPartition.of(schema);
+  }
+
+  // Picks slots of count optional offsets by a partial Fisher-Yates shuffle above the context's
+  // open windows, and keeps the picked ones as a new window; returns where the window starts
+  private int pickOptional(int slots, int count, GenerationContext context) {
+    int start = context.propertyOffsetsTop;
+    if (context.propertyOffsets.length < start + count) {
+      context.propertyOffsets = Arrays.copyOf(context.propertyOffsets,
+          Math.max(start + count, context.propertyOffsets.length * 2));
+    }
+    int[] offsets = context.propertyOffsets;
+    for (int i = 0; i < count; i++) {
+      offsets[start + i] = i;
+    }
+    for (int i = 0; i < slots; i++) {
+      int j = i + random.nextInt(count - i);
+      int swap = offsets[start + i];
+      offsets[start + i] = offsets[start + j];
+      offsets[start + j] = swap;
+    }
+    context.propertyOffsetsTop = start + slots;
+    return start;
   }
 
-  private int determinePropertyCount(int minProps, int maxProps, int requiredCount,
+  int determinePropertyCount(int minProps, int maxProps, int requiredCount,
       int totalAvailable) {
     // Always include at least required fields (unless maxProps limits it)
     int minimum = Math.max(minProps, requiredCount);
@@ -847,40 +2063,13 @@ public final class JsonSchemaDataGenerator {
     return Math.max(minimum, Math.min(maximum, totalAvailable));
   }
 
-  private List<String> selectProperties(List<String> requiredList, List<String> optionalList,
-      int targetCount) {
-    List<String> result = new ArrayList<>();
-
-    // Always add required properties first (up to target)
-    for (String prop : requiredList) {
-      if (result.size() >= targetCount) {
-        break;
-      }
-      result.add(prop);
-    }
-
-    // Add optional properties if needed and allowed
-    if (result.size() < targetCount && propertyScopeOption != PropertyScopeOption.REQUIRED_ONLY) {
-      // Shuffle optional properties for variety
-      List<String> shuffledOptional = new ArrayList<>(optionalList);
-      Collections.shuffle(shuffledOptional, random);
-
-      for (String prop : shuffledOptional) {
-        if (result.size() >= targetCount) {
-          break;
-        }
-        result.add(prop);
-      }
-    }
-
-    return result;
-  }
-
-  private String generatePropertyName(JsonNode schema, String fallback) {
+  private String generatePropertyName(JsonNode schema, String fallback,
+      GenerationContext context) {
     if (schema.has("propertyNames")) {
       JsonNode propertyNames = schema.get("propertyNames");
       if (propertyNames.has("pattern")) {
         String pattern = propertyNames.get("pattern").asString();
+        context.randomized = true;
         try {
           RgxGen rgxGen = RgxGen.parse(pattern);
           return rgxGen.generate(random);
@@ -902,147 +2091,250 @@ public final class JsonSchemaDataGenerator {
     }
   }
 
-  private JsonNode generateArrayValue(JsonNode schema, Map<String, Integer> recursionTracker) {
-    ArrayNode arrayNode = mapper().createArrayNode();
-
+  private JsonNode generateArrayValue(JsonNode schema, GenerationContext context,
+      Deque<Frame> stack) {
     // Handle prefixItems (tuple-style arrays) - JSON Schema 2020-12
     if (schema.has("prefixItems")) {
-      return generatePrefixItemsArray(schema, recursionTracker);
+      return push(stack, prefixItemsFrame(schema));
     }
 
     // Handle legacy tuple format: "items" is an array (draft-04 to draft-07)
     if (schema.has("items") && schema.get("items").isArray()) {
-      return generateLegacyTupleArray(schema, recursionTracker);
+      return push(stack, legacyTupleFrame(schema));
     }
 
     // Handle contains constraint
     if (schema.has("contains") && containsOption != ContainsOption.NONE) {
-      return generateContainsArray(schema, recursionTracker);
+      return push(stack, new ContainsFrame(schema, context));
     }
 
     if (!schema.has("items")) {
-      return arrayNode;
+      return arrayNode(0);
     }
 
-    JsonNode itemSchema = schema.get("items");
-    boolean isPrimitive = isPrimitiveType(itemSchema);
+    return push(stack, new ItemsFrame(schema, context));
+  }
 
-    // Determine constraints
-    int minItems = schema.has("minItems") ? schema.get("minItems").asInt() : 0;
-    int maxItems = schema.has("maxItems") ? schema.get("maxItems").asInt() : Integer.MAX_VALUE;
+  // Appends items to an array node, overwriting the items of an adopted one in place
+  private abstract class ArrayFrame extends Frame {
 
-    // Use appropriate option based on item type
-    int targetCount = isPrimitive ? determineArrayCount(primitiveArrayOption, minItems, maxItems)
-        : determineArrayCount(arrayOption, minItems, maxItems);
+    private ArrayNode arrayNode;
+    // The items appended so far; an adopted node still holds the previous items past them
+    int size;
+
+    void append(JsonNode value) {
+      if (arrayNode == null) {
+        arrayNode = arrayNode(expectedSize());
+      }
+      if (size < arrayNode.size()) {
+        arrayNode.set(size, value);
+      } else {
+        arrayNode.add(value);
+      }
+      size++;
+    }
 
-    // Check if uniqueItems is required
-    boolean requireUnique = uniqueItemsOption == UniqueItemsOption.ENFORCE
-        && schema.has("uniqueItems") && schema.get("uniqueItems").asBoolean();
+    // The number of items the array will hold
+    abstract int expectedSize();
 
-    if (requireUnique) {
-      // Track generated values by their JSON string representation
-      Set<String> generatedValues = new HashSet<>();
-      int maxAttempts = targetCount * 10; // Allow multiple attempts per item
-      int attempts = 0;
+    @Override
+    void adopt(JsonNode previous) {
+      if (previous.isArray()) {
+        arrayNode = (ArrayNode) previous;
+      }
+    }
 
-      while (arrayNode.size() < targetCount && attempts < maxAttempts) {
-        JsonNode value = generateValue(itemSchema, recursionTracker);
-        String valueKey = value.toString();
+    @Override
+    JsonNode previousChild() {
+      return arrayNode != null && size < arrayNode.size() ? arrayNode.get(size) : null;
+    }
 
-        if (!generatedValues.contains(valueKey)) {
-          generatedValues.add(valueKey);
-          arrayNode.add(value);
-        }
-        attempts++;
+    @Override
+    JsonNode result() {
+      if (arrayNode == null) {
+        return arrayNode(0);
       }
-    } else {
-      // Generate items without uniqueness constraint
-      for (int i = 0; i < targetCount; i++) {
-        arrayNode.add(generateValue(itemSchema, recursionTracker));
+      for (int last = arrayNode.size() - 1; last >= size; last--) {
+        arrayNode.remove(last);
       }
+      return arrayNode;
     }
 
-    return arrayNode;
   }
 
-  private JsonNode generateContainsArray(JsonNode schema, Map<String, Integer> recursionTracker) {
-    ArrayNode arrayNode = mapper().createArrayNode();
-    JsonNode containsSchema = schema.get("contains");
-    JsonNode itemSchema = schema.has("items") ? schema.get("items") : null;
+  // Generates the items of an array schema, retrying duplicates when uniqueness is enforced
+  private final class ItemsFrame extends ArrayFrame {
+
+    private final JsonNode itemSchema;
+    private final int minItems;
+    private final int targetCount;
+    // Track generated values by their JSON string representation (uniqueItems only)
+    private final Set<String> generatedValues;
+    private final int maxAttempts;
+    private int attempts;
+
+    private ItemsFrame(JsonNode schema, GenerationContext context) {
+      itemSchema = schema.get("items");
+      boolean isPrimitive = isPrimitiveType(context.resolve(itemSchema));
 
-    // Determine constraints
-    int minContains = schema.has("minContains") ? schema.get("minContains").asInt() : 1;
-    int maxContains =
-        schema.has("maxContains") ? schema.get("maxContains").asInt() : Integer.MAX_VALUE;
-    int minItems = schema.has("minItems") ? schema.get("minItems").asInt() : minContains;
-    int maxItems = schema.has("maxItems") ? schema.get("maxItems").asInt() : Integer.MAX_VALUE;
+      // Determine constraints
+      minItems = schema.has("minItems") ? schema.get("minItems").asInt() : 0;
+      int maxItems = schema.has("maxItems") ? schema.get("maxItems").asInt() : Integer.MAX_VALUE;
 
-    // Determine how many items total (at least minContains)
-    boolean isPrimitive = itemSchema != null && isPrimitiveType(itemSchema);
-    int baseCount = isPrimitive ? determineArrayCount(primitiveArrayOption, minItems, maxItems)
-        : determineArrayCount(arrayOption, minItems, maxItems);
-    int targetCount = Math.max(baseCount, minContains);
+      // Use appropriate option based on item type
+      targetCount = isPrimitive ? determineArrayCount(primitiveArrayOption, minItems, maxItems)
+          : determineArrayCount(arrayOption, minItems, maxItems);
 
-    // Ensure at least minContains items match contains schema
-    int containsCount = Math.max(minContains, 1);
-    if (maxContains < Integer.MAX_VALUE) {
-      containsCount = Math.min(containsCount, maxContains);
+      // Check if uniqueItems is required
+      boolean requireUnique = uniqueItemsOption == UniqueItemsOption.ENFORCE
+          && schema.has("uniqueItems") && schema.get("uniqueItems").asBoolean();
+      generatedValues = requireUnique ? new HashSet<>() : null;
+      maxAttempts = targetCount * 10; // Allow multiple attempts per item
     }
-    containsCount = Math.min(containsCount, targetCount);
 
-    // Generate contains-matching items
-    List<JsonNode> containsItems = new ArrayList<>();
-    for (int i = 0; i < containsCount; i++) {
-      containsItems.add(generateValue(containsSchema, recursionTracker));
+    @Override
+    JsonNode nextChild(boolean exhausted) {
+      if (size >= targetCount || (generatedValues != null && attempts >= maxAttempts)) {
+        return null;
+      }
+      if (exhausted && size >= minItems) {
+        truncated = true;
+        return null;
+      }
+      return itemSchema;
     }
 
-    // Generate regular items (if items schema exists)
-    List<JsonNode> regularItems = new ArrayList<>();
-    if (itemSchema != null) {
-      int regularCount = targetCount - containsCount;
-      for (int i = 0; i < regularCount; i++) {
-        regularItems.add(generateValue(itemSchema, recursionTracker));
+    @Override
+    void accept(JsonNode value) {
+      if (generatedValues == null || generatedValues.add(value.toString())) {
+        append(value);
       }
+      attempts++;
+    }
+
+    @Override
+    int expectedSize() {
+      return targetCount;
     }
 
-    // Place items according to containsOption
-    switch (containsOption) {
-      case FIRST -> {
-        containsItems.forEach(arrayNode::add);
-        regularItems.forEach(arrayNode::add);
+    @Override
+    int remainingChildren() {
+      return targetCount - size;
+    }
+
+  }
+
+  // Generates the contains-matching items first, then the regular items, then places them
+  private final class ContainsFrame extends Frame {
+
+    private final JsonNode containsSchema;
+    private final JsonNode itemSchema;
+    private final int containsCount;
+    private final int regularCount;
+    private final int minContains;
+    private final int minItems;
+    private final List<JsonNode> containsItems = new ArrayList<>();
+    private final List<JsonNode> regularItems = new ArrayList<>();
+    private ArrayNode previous;
+
+    private ContainsFrame(JsonNode schema, GenerationContext context) {
+      containsSchema = schema.get("contains");
+      itemSchema = schema.has("items") ? schema.get("items") : null;
+
+      // Determine constraints
+      minContains = schema.has("minContains") ? schema.get("minContains").asInt() : 1;
+      int maxContains =
+          schema.has("maxContains") ? schema.get("maxContains").asInt() : Integer.MAX_VALUE;
+      minItems = schema.has("minItems") ? schema.get("minItems").asInt() : minContains;
+      int maxItems = schema.has("maxItems") ? schema.get("maxItems").asInt() : Integer.MAX_VALUE;
+
+      // Determine how many items total (at least minContains)
+      boolean isPrimitive = itemSchema != null && isPrimitiveType(context.resolve(itemSchema));
+      int baseCount = isPrimitive ? determineArrayCount(primitiveArrayOption, minItems, maxItems)
+          : determineArrayCount(arrayOption, minItems, maxItems);
+      int targetCount = Math.max(baseCount, minContains);
+
+      // Ensure at least minContains items match contains schema
+      int count = Math.max(minContains, 1);
+      if (maxContains < Integer.MAX_VALUE) {
+        count = Math.min(count, maxContains);
       }
-      case LAST -> {
-        regularItems.forEach(arrayNode::add);
-        containsItems.forEach(arrayNode::add);
+      containsCount = Math.min(count, targetCount);
+
+      // Generate regular items (if items schema exists)
+      regularCount = itemSchema != null ? targetCount - containsCount : 0;
+    }
+
+    @Override
+    JsonNode nextChild(boolean exhausted) {
+      JsonNode next = containsItems.size() < containsCount ? containsSchema
+          : regularItems.size() < regularCount ? itemSchema : null;
+      if (next != null && exhausted && containsItems.size() >= minContains
+          && containsItems.size() + regularItems.size() >= minItems) {
+        truncated = true;
+        return null;
       }
-      case RANDOM, DISTRIBUTE -> {
-        // Merge and shuffle
-        List<JsonNode> allItems = new ArrayList<>();
-        allItems.addAll(containsItems);
-        allItems.addAll(regularItems);
-        Collections.shuffle(allItems, random);
-        allItems.forEach(arrayNode::add);
+      return next;
+    }
+
+    @Override
+    void accept(JsonNode value) {
+      if (containsItems.size() < containsCount) {
+        containsItems.add(value);
+      } else {
+        regularItems.add(value);
       }
-      default -> {
-        containsItems.forEach(arrayNode::add);
-        regularItems.forEach(arrayNode::add);
+    }
+
+    @Override
+    void adopt(JsonNode previous) {
+      if (previous.isArray()) {
+        this.previous = (ArrayNode) previous; // Refilled once the items are placed
       }
     }
 
-    return arrayNode;
-  }
+    @Override
+    JsonNode result() {
+      ArrayNode arrayNode = previous != null ? previous.removeAll()
+          : arrayNode(containsItems.size() + regularItems.size());
 
-  private JsonNode generatePrefixItemsArray(JsonNode schema, Map<String, Integer> recursionTracker) {
-    ArrayNode arrayNode = mapper().createArrayNode();
-    JsonNode prefixItems = schema.get("prefixItems");
+      // Place items according to containsOption
+      switch (containsOption) {
+        case FIRST -> {
+          containsItems.forEach(arrayNode::add);
+          regularItems.forEach(arrayNode::add);
+        }
+        case LAST -> {
+          regularItems.forEach(arrayNode::add);
+          containsItems.forEach(arrayNode::add);
+        }
+        case RANDOM, DISTRIBUTE -> {
+          // Merge and shuffle
+          List<JsonNode> allItems = new ArrayList<>();
+          allItems.addAll(containsItems);
+          allItems.addAll(regularItems);
+          Collections.shuffle(allItems, random);
+          allItems.forEach(arrayNode::add);
+        }
+        default -> {
+          containsItems.forEach(arrayNode::add);
+          regularItems.forEach(arrayNode::add);
+        }
+      }
 
-    int minItems = schema.has("minItems") ? schema.get("minItems").asInt() : 0;
+      return arrayNode;
+    }
 
-    // Generate items for each schema in prefixItems
-    for (int i = 0; i < prefixItems.size(); i++) {
-      arrayNode.add(generateValue(prefixItems.get(i), recursionTracker));
+    @Override
+    int remainingChildren() {
+      return containsCount - containsItems.size() + regularCount - regularItems.size();
     }
 
+  }
+
+  private Frame prefixItemsFrame(JsonNode schema) {
+    int minItems = schema.has("minItems") ? schema.get("minItems").asInt() : 0;
+
     // Determine schema for additional items
     // Priority: "items" (2020-12) > "additionalItems" (legacy)
     JsonNode additionalSchema = null;
@@ -1051,59 +2343,80 @@ public final class JsonSchemaDataGenerator {
       additionalSchema = schema.get("items");
     } else if (schema.has("additionalItems")) {
       JsonNode additionalItems = schema.get("additionalItems");
-      if (additionalItems.isBoolean() && !additionalItems.asBoolean()) {
-        // additionalItems: false - no more items allowed
-        return arrayNode;
-      } else if (!additionalItems.isBoolean()) {
+      if (!additionalItems.isBoolean()) {
         additionalSchema = additionalItems;
       }
       // additionalItems: true - allow any items (use empty schema)
-      else {
+      else if (additionalItems.asBoolean()) {
         additionalSchema = mapper().createObjectNode();
       }
+      // additionalItems: false - no more items allowed
+    }
+
+    return new TupleFrame(schema.get("prefixItems"), additionalSchema, minItems);
+  }
+
+  // Generates one item per tuple position, then additional items until minItems is reached
+  private final class TupleFrame extends ArrayFrame {
+
+    private final JsonNode tuple;
+    private final JsonNode additionalSchema;
+    private final int minItems;
+
+    private TupleFrame(JsonNode tuple, JsonNode additionalSchema, int minItems) {
+      this.tuple = tuple;
+      this.additionalSchema = additionalSchema;
+      this.minItems = minItems;
     }
 
-    // Generate additional items if needed
-    if (arrayNode.size() < minItems && additionalSchema != null) {
-      while (arrayNode.size() < minItems) {
-        arrayNode.add(generateValue(additionalSchema, recursionTracker));
+    @Override
+    JsonNode nextChild(boolean exhausted) {
+      JsonNode next = size < tuple.size() ? tuple.get(size)
+          : additionalSchema != null && size < minItems ? additionalSchema : null;
+      if (next != null && exhausted && size >= minItems) {
+        truncated = true;
+        return null;
       }
+      return next;
+    }
+
+    @Override
+    void accept(JsonNode value) {
+      append(value);
+    }
+
+    @Override
+    int expectedSize() {
+      return Math.max(tuple.size(), additionalSchema != null ? minItems : 0);
+    }
+
+    @Override
+    int remainingChildren() {
+      return expectedSize() - size;
     }
 
-    return arrayNode;
   }
 
-  private JsonNode generateLegacyTupleArray(JsonNode schema, Map<String, Integer> recursionTracker) {
-    ArrayNode arrayNode = mapper().createArrayNode();
+  private Frame legacyTupleFrame(JsonNode schema) {
     JsonNode itemsArray = schema.get("items"); // This is an array of schemas (tuple)
 
     int minItems = schema.has("minItems") ? schema.get("minItems").asInt() : 0;
 
-    // Generate items for each schema in items array (tuple positions)
-    for (int i = 0; i < itemsArray.size(); i++) {
-      arrayNode.add(generateValue(itemsArray.get(i), recursionTracker));
-    }
-
     // Handle additionalItems for items beyond the tuple
+    JsonNode additionalSchema = null;
     if (schema.has("additionalItems")) {
       JsonNode additionalItems = schema.get("additionalItems");
-      if (additionalItems.isBoolean() && !additionalItems.asBoolean()) {
-        // additionalItems: false - no more items allowed
-        return arrayNode;
-      } else if (!additionalItems.isBoolean()) {
+      if (!additionalItems.isBoolean()) {
         // additionalItems is a schema - generate items if minItems requires
-        while (arrayNode.size() < minItems) {
-          arrayNode.add(generateValue(additionalItems, recursionTracker));
-        }
-      } else {
+        additionalSchema = additionalItems;
+      } else if (additionalItems.asBoolean()) {
         // additionalItems: true - allow any items (use empty schema)
-        while (arrayNode.size() < minItems) {
-          arrayNode.add(generateValue(mapper().createObjectNode(), recursionTracker));
-        }
+        additionalSchema = mapper().createObjectNode();
       }
+      // additionalItems: false - no more items allowed
     }
 
-    return arrayNode;
+    return new TupleFrame(itemsArray, additionalSchema, minItems);
   }
 
   private int determineArrayCount(ArrayOption option, int minItems, int maxItems) {
@@ -2,9 +2,11 @@ package com.github.wnameless.json.jsonschemadatagenerator;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Map;
 import io.zenwave360.jsonrefparser.$RefParser;
 import io.zenwave360.jsonrefparser.$Refs;
+import tools.jackson.databind.node.ObjectNode;
 
 /**
  * Utility class for flattening JSON schemas by resolving $ref references and optionally merging
@@ -12,7 +14,9 @@ import io.zenwave360.jsonrefparser.$Refs;
  *
  * <p>
  * Uses {@link RefParserFactory} to obtain $ref parsing options. The {@link AllOfOption} parameter
- * controls whether allOf schemas are merged during flattening.
+ * controls whether allOf schemas are merged during flattening. The overloads taking a
+ * {@code parallelism} argument load multi-file schemas concurrently instead, and the
+ * {@code flattenToJsonNode} methods produce a Jackson tree without the intermediate {@code Map}.
  *
  * @author Wei-Ming Wu
  */
@@ -50,6 +54,193 @@ public final class JsonSchemaFlattener {
     return parseAndFlatten(parser, allOfOption);
   }
 
+  /**
+   * Flattens a JSON schema string, loading the external documents it references in parallel.
+   *
+   * <p>
+   * All external documents reachable through {@code $ref} are discovered and read concurrently by
+   * {@link JsonSchemaRefResolver#prefetch(int)} before the dereferenced schema is assembled.
+   * Relative references resolve against the working directory. Circular references are resolved
+   * and missing references are skipped; {@link RefParserFactory} options do not apply.
+   *
+   * @param jsonSchema the JSON schema as a string
+   * @param allOfOption controls whether allOf schemas are merged
+   * @param parallelism the maximum number of documents loaded at the same time
+   * @return a flattened schema map
+   * @throws IOException if parsing fails
+   */
+  public static Map<String, Object> flattenJsonSchema(String jsonSchema, AllOfOption allOfOption,
+      int parallelism) throws IOException {
+    return prefetchAndFlatten(JsonSchemaRefResolver.of(jsonSchema), allOfOption, parallelism);
+  }
+
+  /**
+   * Flattens a JSON schema file, loading the external documents it references in parallel.
+   *
+   * <p>
+   * All external documents reachable through {@code $ref} are discovered and read concurrently by
+   * {@link JsonSchemaRefResolver#prefetch(int)} before the dereferenced schema is assembled.
+   * Circular references are resolved and missing references are skipped; {@link RefParserFactory}
+   * options do not apply.
+   *
+   * @param jsonSchemaFile the JSON schema file
+   * @param allOfOption controls whether allOf schemas are merged
+   * @param parallelism the maximum number of documents loaded at the same time
+   * @return a flattened schema map
+   * @throws IOException if parsing fails
+   */
+  public static Map<String, Object> flattenJsonSchema(File jsonSchemaFile, AllOfOption allOfOption,
+      int parallelism) throws IOException {
+    return prefetchAndFlatten(JsonSchemaRefResolver.of(jsonSchemaFile), allOfOption, parallelism);
+  }
+
+  /**
+   * Flattens a JSON schema string, resolving references through a {@link JsonSchemaRegistry} before
+   * the file system or network.
+   *
+   * <p>
+   * Registered documents are shared instead of parsed again, so flattening many schemas that
+   * reference one registered common-definitions document parses it only once. The result has the
+   * same shape as {@link #flattenJsonSchema(String, AllOfOption)}, but {@link RefParserFactory}
+   * options do not apply.
+   *
+   * @param jsonSchema the JSON schema as a string
+   * @param allOfOption controls whether allOf schemas are merged
+   * @param registry the registry to resolve referenced documents from
+   * @return a flattened schema map
+   * @throws IOException if parsing fails
+   */
+  public static Map<String, Object> flattenJsonSchema(String jsonSchema, AllOfOption allOfOption,
+      JsonSchemaRegistry registry) throws IOException {
+    return assemble(JsonSchemaRefResolver.of(jsonSchema, registry), allOfOption);
+  }
+
+  /**
+   * Flattens a JSON schema file, resolving references through a {@link JsonSchemaRegistry} before
+   * the file system or network.
+   *
+   * @param jsonSchemaFile the JSON schema file
+   * @param allOfOption controls whether allOf schemas are merged
+   * @param registry the registry to resolve referenced documents from
+   * @return a flattened schema map
+   * @throws IOException if parsing fails
+   * @see #flattenJsonSchema(String, AllOfOption, JsonSchemaRegistry)
+   */
+  public static Map<String, Object> flattenJsonSchema(File jsonSchemaFile, AllOfOption allOfOption,
+      JsonSchemaRegistry registry) throws IOException {
+    return assemble(JsonSchemaRefResolver.of(jsonSchemaFile, registry), allOfOption);
+  }
+
+  /**
+   * Flattens a JSON schema string directly into a Jackson tree, without {@code $RefParser} and the
+   * intermediate {@code Map}.
+   *
+   * <p>
+   * References are resolved against the parsed Jackson documents by {@link JsonSchemaRefResolver}.
+   * Schemas referenced more than once are copied, and a circular reference back to an enclosing
+   * schema becomes {@code null}, exactly as {@link JsonSchemaDataGenerator} converts the map
+   * returned by {@link #flattenJsonSchema(String, AllOfOption)}. Relative references resolve
+   * against the working directory, missing references are skipped, and {@link RefParserFactory}
+   * options do not apply.
+   *
+   * @param jsonSchema the JSON schema as a string
+   * @param allOfOption controls whether allOf schemas are merged
+   * @return the flattened schema tree
+   * @throws IOException if parsing fails
+   */
+  public static ObjectNode flattenToJsonNode(String jsonSchema, AllOfOption allOfOption)
+      throws IOException {
+    return flattenToJsonNode(JsonSchemaRefResolver.of(jsonSchema), allOfOption);
+  }
+
+  /**
+   * Flattens a JSON schema file directly into a Jackson tree, without {@code $RefParser} and the
+   * intermediate {@code Map}.
+   *
+   * @param jsonSchemaFile the JSON schema file
+   * @param allOfOption controls whether allOf schemas are merged
+   * @return the flattened schema tree
+   * @throws IOException if parsing fails
+   * @see #flattenToJsonNode(String, AllOfOption)
+   */
+  public static ObjectNode flattenToJsonNode(File jsonSchemaFile, AllOfOption allOfOption)
+      throws IOException {
+    return flattenToJsonNode(JsonSchemaRefResolver.of(jsonSchemaFile), allOfOption);
+  }
+
+  /**
+   * Flattens a JSON schema string directly into a Jackson tree, resolving references through a
+   * {@link JsonSchemaRegistry} before the file system or network.
+   *
+   * @param jsonSchema the JSON schema as a string
+   * @param allOfOption controls whether allOf schemas are merged
+   * @param registry the registry to resolve referenced documents from
+   * @return the flattened schema tree
+   * @throws IOException if parsing fails
+   * @see #flattenToJsonNode(String, AllOfOption)
+   */
+  public static ObjectNode flattenToJsonNode(String jsonSchema, AllOfOption allOfOption,
+      JsonSchemaRegistry registry) throws IOException {
+    return flattenToJsonNode(JsonSchemaRefResolver.of(jsonSchema, registry), allOfOption);
+  }
+
+  /**
+   * Flattens a JSON schema file directly into a Jackson tree, resolving references through a
+   * {@link JsonSchemaRegistry} before the file system or network.
+   *
+   * @param jsonSchemaFile the JSON schema file
+   * @param allOfOption controls whether allOf schemas are merged
+   * @param registry the registry to resolve referenced documents from
+   * @return the flattened schema tree
+   * @throws IOException if parsing fails
+   * @see #flattenToJsonNode(String, AllOfOption)
+   */
+  public static ObjectNode flattenToJsonNode(File jsonSchemaFile, AllOfOption allOfOption,
+      JsonSchemaRegistry registry) throws IOException {
+    return flattenToJsonNode(JsonSchemaRefResolver.of(jsonSchemaFile, registry), allOfOption);
+  }
+
+  /**
+   * Flattens a JSON schema file directly into a Jackson tree, loading the external documents it
+   * references in parallel first.
+   *
+   * @param jsonSchemaFile the JSON schema file
+   * @param allOfOption controls whether allOf schemas are merged
+   * @param parallelism the maximum number of documents loaded at the same time
+   * @return the flattened schema tree
+   * @throws IOException if parsing fails
+   * @see #flattenToJsonNode(String, AllOfOption)
+   * @see JsonSchemaRefResolver#prefetch(int)
+   */
+  public static ObjectNode flattenToJsonNode(File jsonSchemaFile, AllOfOption allOfOption,
+      int parallelism) throws IOException {
+    JsonSchemaRefResolver refResolver = JsonSchemaRefResolver.of(jsonSchemaFile);
+    try {
+      refResolver.prefetch(parallelism);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return flattenToJsonNode(refResolver, allOfOption);
+  }
+
+  /**
+   * Flattens the schema held by a resolver directly into a Jackson tree.
+   *
+   * @param refResolver the resolver holding the root document
+   * @param allOfOption controls whether allOf schemas are merged
+   * @return the flattened schema tree
+   * @throws IOException if a referenced document cannot be read
+   * @see #flattenToJsonNode(String, AllOfOption)
+   */
+  public static ObjectNode flattenToJsonNode(JsonSchemaRefResolver refResolver,
+      AllOfOption allOfOption) throws IOException {
+    try {
+      return JsonSchemaAssembler.toJsonNode(refResolver, allOfOption);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
   /**
    * Flattens a JSON schema using a user-provided $RefParser instance.
    *
@@ -75,4 +266,23 @@ public final class JsonSchemaFlattener {
     return refs.schema();
   }
 
+  private static Map<String, Object> assemble(JsonSchemaRefResolver refResolver,
+      AllOfOption allOfOption) throws IOException {
+    try {
+      return JsonSchemaAssembler.toMap(refResolver, allOfOption);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static Map<String, Object> prefetchAndFlatten(JsonSchemaRefResolver refResolver,
+      AllOfOption allOfOption, int parallelism) throws IOException {
+    try {
+      refResolver.prefetch(parallelism);
+      return JsonSchemaAssembler.toMap(refResolver, allOfOption);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
 }
@@ -2,13 +2,31 @@ package com.github.wnameless.json.jsonschemadatagenerator;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Set;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.MissingNode;
 
 /**
  * A navigator for querying partial schemas from a flattened JSON Schema using JsonPath-style
@@ -20,25 +38,58 @@ import tools.jackson.databind.ObjectMapper;
  * <li>{@code $} - Root schema</li>
  * <li>{@code $.property} - Object property</li>
  * <li>{@code $.a.b.c} - Nested properties</li>
+ * <li>{@code $['first-name']} - Object property whose name is not a plain word</li>
+ * <li>{@code $..name} - Recursive descent: every property named {@code name} below the root</li>
  * <li>{@code $.array[*]} - Array items schema</li>
  * <li>{@code $.array[0]} - Specific tuple position</li>
  * </ul>
  *
+ * <p>
+ * A segment that is not declared directly on a schema is looked up in its
+ * {@code patternProperties}, in the branches of {@code allOf}, {@code anyOf} and {@code oneOf}, and
+ * finally in {@code additionalProperties}. The branch resolved for each (schema, segment) pair is
+ * memoized, so repeated lookups through polymorphic schemas only search once.
+ *
+ * <p>
+ * Recursive descent queries are answered from an inverted index from property names to paths,
+ * built once per navigator on first use. Use {@link #findAll(String)} to get every match.
+ *
+ * <p>
+ * Navigators created with {@code of(...)} work on a fully flattened schema. Navigators created with
+ * {@link #lazy(File)} or {@link #lazy(String)} only parse the root document and resolve
+ * {@code $ref}s, including references to other files, as the path walk reaches them.
+ *
  * @author Wei-Ming Wu
  */
 public final class JsonSchemaPathNavigator {
 
   private static final Pattern PATH_PATTERN =
-      Pattern.compile("\\$|\\.(\\w+)|\\[(\\d+|\\*)]");
+      Pattern.compile("\\$|\\.(\\w+)|\\[(\\d+|\\*)]|\\['((?:[^'\\\\]|\\\\.)*)']"
+          + "|\\.\\.(\\w+)|\\.\\.\\['((?:[^'\\\\]|\\\\.)*)']");
+
+  private static final Pattern WORD_PATTERN = Pattern.compile("\\w+");
+
+  private static final List<String> COMPOSITION_KEYWORDS = List.of("allOf", "anyOf", "oneOf");
+
+  // The cache key shared by all names missing from a schema's properties
+  private static final PathSegment UNDECLARED_PROPERTY = new PropertySegment(null);
 
   private final JsonNode schemaNode;
+  private final UnaryOperator<JsonNode> refResolver;
+  private final Map<NavigationKey, JsonNode> navigationCache = new ConcurrentHashMap<>();
+  private volatile PropertyIndex propertyIndex;
 
   private static ObjectMapper mapper() {
     return ObjectMapperFactory.getObjectMapper();
   }
 
   private JsonSchemaPathNavigator(JsonNode schemaNode) {
+    this(schemaNode, UnaryOperator.identity());
+  }
+
+  private JsonSchemaPathNavigator(JsonNode schemaNode, UnaryOperator<JsonNode> refResolver) {
     this.schemaNode = schemaNode;
+    this.refResolver = refResolver;
   }
 
   /**
@@ -103,9 +154,89 @@ public final class JsonSchemaPathNavigator {
     return new JsonSchemaPathNavigator(schemaNode);
   }
 
+  /**
+   * Creates a navigator that resolves {@code $ref}s lazily from a JSON Schema string.
+   *
+   * <p>
+   * Only the root document is parsed up front. References are resolved and cached the first time
+   * a path walk reaches them. The {@code allOf} keyword is not merged, but paths are still found
+   * inside its branches. Schemas returned by {@link #getSchema(String)} may contain unresolved
+   * {@code $ref}s below the requested path.
+   *
+   * @param jsonSchema the JSON Schema as a string
+   * @return a new JsonSchemaPathNavigator instance
+   * @throws IOException if schema parsing fails
+   * @see JsonSchemaRefResolver
+   */
+  public static JsonSchemaPathNavigator lazy(String jsonSchema) throws IOException {
+    return of(JsonSchemaRefResolver.of(jsonSchema));
+  }
+
+  /**
+   * Creates a navigator that resolves {@code $ref}s lazily from a JSON Schema file.
+   *
+   * <p>
+   * Only the root document is parsed up front. References, including references to other files,
+   * are resolved and cached the first time a path walk reaches them. The {@code allOf} keyword is
+   * not merged, but paths are still found inside its branches. Schemas returned by
+   * {@link #getSchema(String)} may contain unresolved {@code $ref}s below the requested path.
+   *
+   * @param jsonSchemaFile the JSON Schema file
+   * @return a new JsonSchemaPathNavigator instance
+   * @throws IOException if schema parsing fails
+   * @see JsonSchemaRefResolver
+   */
+  public static JsonSchemaPathNavigator lazy(File jsonSchemaFile) throws IOException {
+    return of(JsonSchemaRefResolver.of(jsonSchemaFile));
+  }
+
+  /**
+   * Creates a navigator that resolves {@code $ref}s lazily from a JSON Schema string, looking up
+   * referenced documents in a {@link JsonSchemaRegistry} before the file system or network.
+   *
+   * @param jsonSchema the JSON Schema as a string
+   * @param registry the registry to resolve referenced documents from
+   * @return a new JsonSchemaPathNavigator instance
+   * @throws IOException if schema parsing fails
+   * @see #lazy(String)
+   */
+  public static JsonSchemaPathNavigator lazy(String jsonSchema, JsonSchemaRegistry registry)
+      throws IOException {
+    return of(JsonSchemaRefResolver.of(jsonSchema, registry));
+  }
+
+  /**
+   * Creates a navigator that resolves {@code $ref}s lazily from a JSON Schema file, looking up
+   * referenced documents in a {@link JsonSchemaRegistry} before the file system or network.
+   *
+   * @param jsonSchemaFile the JSON Schema file
+   * @param registry the registry to resolve referenced documents from
+   * @return a new JsonSchemaPathNavigator instance
+   * @throws IOException if schema parsing fails
+   * @see #lazy(File)
+   */
+  public static JsonSchemaPathNavigator lazy(File jsonSchemaFile, JsonSchemaRegistry registry)
+      throws IOException {
+    return of(JsonSchemaRefResolver.of(jsonSchemaFile, registry));
+  }
+
+  /**
+   * Creates a navigator that resolves {@code $ref}s lazily through the given resolver.
+   *
+   * @param refResolver the resolver holding the root document
+   * @return a new JsonSchemaPathNavigator instance
+   */
+  public static JsonSchemaPathNavigator of(JsonSchemaRefResolver refResolver) {
+    return new JsonSchemaPathNavigator(refResolver.getRootSchema(), refResolver::resolve);
+  }
+
   /**
    * Gets the schema at the specified JSON path.
    *
+   * <p>
+   * If the path contains a recursive descent segment ({@code ..name}), the first match in
+   * depth-first order is returned.
+   *
    * @param jsonPath the JSON path expression (e.g., "$.user.name", "$.items[*]")
    * @return the schema at the specified path
    * @throws InvalidJsonPathException if the path is invalid or not found
@@ -116,9 +247,43 @@ public final class JsonSchemaPathNavigator {
     }
 
     List<PathSegment> segments = parsePath(jsonPath);
+    if (segments.stream().anyMatch(RecursiveDescentSegment.class::isInstance)) {
+      List<SchemaPathEntry> matches = findAll(segments);
+      if (matches.isEmpty()) {
+        throw new InvalidJsonPathException("Path not found: " + jsonPath);
+      }
+      return matches.get(0).schema().deepCopy();
+    }
     return navigateToSchema(segments);
   }
 
+  /**
+   * Finds every schema matching the specified JSON path.
+   *
+   * <p>
+   * Recursive descent segments ({@code $..customerId}, {@code $.orders..id}) are looked up in an
+   * inverted index from property names to paths, so a query costs a hash lookup plus the number of
+   * candidate paths instead of a walk over the whole schema. The index is built on first use from
+   * {@link #paths(RecursionDepthOption)} with {@link RecursionDepthOption#NONE}, so each
+   * self-referencing schema contributes its properties once per branch. A recursive descent below
+   * a path the index does not hold, such as {@code $.array[3]..id} on a homogeneous array or a
+   * property matched by {@code patternProperties} or {@code additionalProperties}, walks the
+   * schema at that path instead. Paths without recursive descent return at most one match.
+   *
+   * <p>
+   * The returned schemas are not copied and must not be modified.
+   *
+   * @param jsonPath the JSON path expression
+   * @return the matching path entries in depth-first order, or an empty list if nothing matches
+   * @throws InvalidJsonPathException if the path syntax is invalid
+   */
+  public List<SchemaPathEntry> findAll(String jsonPath) throws InvalidJsonPathException {
+    if (jsonPath == null || jsonPath.isEmpty()) {
+      throw new InvalidJsonPathException("Path cannot be null or empty");
+    }
+    return findAll(parsePath(jsonPath));
+  }
+
   /**
    * Finds the schema at the specified JSON path, returning an Optional.
    *
@@ -152,9 +317,73 @@ public final class JsonSchemaPathNavigator {
     return findSchema(jsonPath).isPresent();
   }
 
+  /**
+   * Returns a lazy iterator over every reachable path in the schema, using
+   * {@link RecursionDepthOption#MODERATE} to bound self-referencing schemas.
+   *
+   * @return an iterator of path entries in depth-first order, starting with {@code $}
+   * @see #pathIterator(RecursionDepthOption)
+   */
+  public Iterator<SchemaPathEntry> pathIterator() {
+    return pathIterator(RecursionDepthOption.MODERATE);
+  }
+
+  /**
+   * Returns a lazy iterator over every reachable path in the schema.
+   *
+   * <p>
+   * Paths are produced in depth-first order and use the same syntax accepted by
+   * {@link #getSchema(String)}: properties as {@code .name}, homogeneous array items as
+   * {@code [*]} and tuple positions as {@code [n]}. Only the current branch of the walk is held in
+   * memory, so schemas with a very large number of paths can be enumerated without materializing
+   * them. A schema node that already appears more than {@code recursionDepthOption.getMaxDepth()}
+   * times among the ancestors of a path is not expanded again.
+   *
+   * <p>
+   * The returned schemas are not copied and must not be modified.
+   *
+   * @param recursionDepthOption bounds how often a self-referencing schema is expanded
+   * @return an iterator of path entries in depth-first order, starting with {@code $}
+   */
+  public Iterator<SchemaPathEntry> pathIterator(RecursionDepthOption recursionDepthOption) {
+    return new PathIterator("$", schemaNode, recursionDepthOption.getMaxDepth(), refResolver);
+  }
+
+  /**
+   * Returns a lazy stream over every reachable path in the schema, using
+   * {@link RecursionDepthOption#MODERATE} to bound self-referencing schemas.
+   *
+   * @return a sequential stream of path entries
+   * @see #pathIterator(RecursionDepthOption)
+   */
+  public Stream<SchemaPathEntry> paths() {
+    return paths(RecursionDepthOption.MODERATE);
+  }
+
+  /**
+   * Returns a lazy stream over every reachable path in the schema.
+   *
+   * @param recursionDepthOption bounds how often a self-referencing schema is expanded
+   * @return a sequential stream of path entries
+   * @see #pathIterator(RecursionDepthOption)
+   */
+  public Stream<SchemaPathEntry> paths(RecursionDepthOption recursionDepthOption) {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+        pathIterator(recursionDepthOption), Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  /**
+   * A JSON path together with the schema found at that path.
+   *
+   * @param path the JSON path expression, e.g. {@code $.user.name}
+   * @param schema the schema at the path
+   */
+  public record SchemaPathEntry(String path, JsonNode schema) {
+  }
+
   // Path segment types
   private sealed interface PathSegment
-      permits PropertySegment, ArrayIndexSegment, WildcardSegment {
+      permits PropertySegment, ArrayIndexSegment, WildcardSegment, RecursiveDescentSegment {
   }
 
   private record PropertySegment(String propertyName) implements PathSegment {
@@ -166,6 +395,45 @@ public final class JsonSchemaPathNavigator {
   private record WildcardSegment() implements PathSegment {
   }
 
+  private record RecursiveDescentSegment(String propertyName) implements PathSegment {
+  }
+
+  // Paths by the property name they end in, and the first schema found at each path
+  private record PropertyIndex(Map<String, List<SchemaPathEntry>> byName,
+      Map<String, JsonNode> byPath) {
+  }
+
+  // A path entry compared by schema identity, like NavigationKey
+  private record EntryKey(String path, JsonNode schema) {
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof EntryKey other && schema == other.schema && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(schema) + path.hashCode();
+    }
+
+  }
+
+  // Identity-based cache key, since equal JsonNodes at different locations are distinct schemas
+  private record NavigationKey(JsonNode schema, PathSegment segment) {
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof NavigationKey other && schema == other.schema
+          && segment.equals(other.segment);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(schema) + segment.hashCode();
+    }
+
+  }
+
   private List<PathSegment> parsePath(String jsonPath) throws InvalidJsonPathException {
     List<PathSegment> segments = new ArrayList<>();
 
@@ -188,6 +456,15 @@ public final class JsonSchemaPathNavigator {
       } else if (matcher.group(1) != null) {
         // Property: .propertyName
         segments.add(new PropertySegment(matcher.group(1)));
+      } else if (matcher.group(3) != null) {
+        // Bracketed property: ['property-name']
+        segments.add(new PropertySegment(unescape(matcher.group(3))));
+      } else if (matcher.group(4) != null) {
+        // Recursive descent: ..propertyName
+        segments.add(new RecursiveDescentSegment(matcher.group(4)));
+      } else if (matcher.group(5) != null) {
+        // Bracketed recursive descent: ..['property-name']
+        segments.add(new RecursiveDescentSegment(unescape(matcher.group(5))));
       } else if (matcher.group(2) != null) {
         // Array access: [0] or [*]
         String indexStr = matcher.group(2);
@@ -206,19 +483,117 @@ public final class JsonSchemaPathNavigator {
     return segments;
   }
 
+  private static String unescape(String bracketedName) {
+    return bracketedName.replaceAll("\\\\(.)", "$1");
+  }
+
+  private List<SchemaPathEntry> findAll(List<PathSegment> segments) {
+    List<SchemaPathEntry> current =
+        List.of(new SchemaPathEntry("$", refResolver.apply(schemaNode)));
+
+    for (PathSegment segment : segments) {
+      List<SchemaPathEntry> next = new ArrayList<>();
+
+      if (segment instanceof RecursiveDescentSegment descent) {
+        PropertyIndex index = getPropertyIndex();
+        List<SchemaPathEntry> candidates =
+            index.byName().getOrDefault(descent.propertyName(), List.of());
+        // Nested starting points may select the same candidate more than once
+        Set<EntryKey> selected = new HashSet<>();
+        for (SchemaPathEntry entry : current) {
+          // A start the index walk did not reach at this path, such as a tuple position of a
+          // homogeneous array or a pattern or additional property, is searched from its schema
+          List<SchemaPathEntry> matches = index.byPath().get(entry.path()) == entry.schema()
+              ? candidates.stream().filter(c -> isDescendantPath(entry.path(), c.path())).toList()
+              : findBelow(entry, descent.propertyName());
+          for (SchemaPathEntry match : matches) {
+            if (selected.add(new EntryKey(match.path(), match.schema()))) {
+              next.add(match);
+            }
+          }
+        }
+      } else {
+        for (SchemaPathEntry entry : current) {
+          JsonNode found = navigate(entry.schema(), segment, new NavigationState());
+          if (found != null) {
+            next.add(new SchemaPathEntry(appendSegment(entry.path(), segment),
+                refResolver.apply(found)));
+          }
+        }
+      }
+
+      current = next;
+    }
+
+    return Collections.unmodifiableList(current);
+  }
+
+  private List<SchemaPathEntry> findBelow(SchemaPathEntry start, String propertyName) {
+    List<SchemaPathEntry> matches = new ArrayList<>();
+    PathIterator iterator = new PathIterator(start.path(), start.schema(),
+        RecursionDepthOption.NONE.getMaxDepth(), refResolver);
+    while (iterator.hasNext()) {
+      SchemaPathEntry entry = iterator.next();
+      if (propertyName.equals(iterator.lastPropertyName())) {
+        matches.add(entry);
+      }
+    }
+    return matches;
+  }
+
+  private static boolean isDescendantPath(String ancestor, String path) {
+    if (path.length() <= ancestor.length() || !path.startsWith(ancestor)) {
+      return false;
+    }
+    char next = path.charAt(ancestor.length());
+    return next == '.' || next == '[';
+  }
+
+  private static String appendSegment(String path, PathSegment segment) {
+    if (segment instanceof PropertySegment prop) {
+      return appendProperty(path, prop.propertyName());
+    } else if (segment instanceof ArrayIndexSegment idx) {
+      return path + "[" + idx.index() + "]";
+    } else {
+      return path + "[*]";
+    }
+  }
+
+  private PropertyIndex getPropertyIndex() {
+    PropertyIndex index = propertyIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = propertyIndex;
+        if (index == null) {
+          index = buildPropertyIndex();
+          propertyIndex = index;
+        }
+      }
+    }
+    return index;
+  }
+
+  private PropertyIndex buildPropertyIndex() {
+    Map<String, List<SchemaPathEntry>> byName = new HashMap<>();
+    Map<String, JsonNode> byPath = new HashMap<>();
+    PathIterator iterator =
+        new PathIterator("$", schemaNode, RecursionDepthOption.NONE.getMaxDepth(), refResolver);
+    while (iterator.hasNext()) {
+      SchemaPathEntry entry = iterator.next();
+      byPath.putIfAbsent(entry.path(), entry.schema());
+      String propertyName = iterator.lastPropertyName();
+      if (propertyName != null) {
+        byName.computeIfAbsent(propertyName, k -> new ArrayList<>()).add(entry);
+      }
+    }
+    return new PropertyIndex(byName, byPath);
+  }
+
   private JsonNode navigateToSchema(List<PathSegment> segments) throws InvalidJsonPathException {
     JsonNode current = schemaNode;
 
     for (PathSegment segment : segments) {
-      JsonNode next = null;
-
-      if (segment instanceof PropertySegment prop) {
-        next = navigateToProperty(current, prop.propertyName());
-      } else if (segment instanceof ArrayIndexSegment idx) {
-        next = navigateToArrayIndex(current, idx.index());
-      } else if (segment instanceof WildcardSegment) {
-        next = navigateToArrayItems(current);
-      }
+      JsonNode next = navigate(current, segment, new NavigationState());
 
       if (next == null) {
         throw new InvalidJsonPathException("Path not found at segment: " + segment);
@@ -227,7 +602,137 @@ public final class JsonSchemaPathNavigator {
       current = next;
     }
 
-    return current.deepCopy();
+    return refResolver.apply(current).deepCopy();
+  }
+
+  // Tracks the composition branches being searched by a single segment lookup
+  private static final class NavigationState {
+
+    private final Set<JsonNode> visiting = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean cycleDetected;
+
+  }
+
+  private JsonNode navigate(JsonNode schema, PathSegment segment, NavigationState state) {
+    schema = refResolver.apply(schema);
+    NavigationKey key = navigationKey(schema, segment);
+    JsonNode cached = key == null ? null : navigationCache.get(key);
+    if (cached != null) {
+      return cached.isMissingNode() ? null : cached;
+    }
+    // Guard against self-referencing composition branches
+    if (!state.visiting.add(schema)) {
+      state.cycleDetected = true;
+      return null;
+    }
+
+    JsonNode result = navigateDirectly(schema, segment);
+    if (result == null && segment instanceof PropertySegment prop) {
+      result = navigateToPatternProperty(schema, prop.propertyName());
+    }
+    if (result == null) {
+      result = navigateToCompositionBranch(schema, segment, state);
+    }
+    if (result == null && segment instanceof PropertySegment) {
+      result = navigateToAdditionalProperty(schema);
+    }
+
+    state.visiting.remove(schema);
+    // A miss caused by cutting a cycle depends on where the search started, so it is not memoized
+    if (key != null && (result != null || !state.cycleDetected)) {
+      navigationCache.put(key, result == null ? MissingNode.getInstance() : result);
+    }
+    return result;
+  }
+
+  // Segments that navigate alike share one entry, so the cache stays bounded by the schema's
+  // size: indexes past a tuple, and names of undeclared properties. Lookups that a name pattern or
+  // a composition branch (which may hold tuples of its own) could answer are not cached at this
+  // level
+  private static NavigationKey navigationKey(JsonNode schema, PathSegment segment) {
+    if (segment instanceof ArrayIndexSegment idx) {
+      int tupleLength = Math.max(tupleLength(schema.get("prefixItems")),
+          tupleLength(schema.get("items")));
+      if (idx.index() <= tupleLength) {
+        return new NavigationKey(schema, segment);
+      }
+      return isComposed(schema) ? null
+          : new NavigationKey(schema, new ArrayIndexSegment(tupleLength));
+    }
+    if (segment instanceof PropertySegment prop) {
+      JsonNode properties = schema.get("properties");
+      if (properties != null && properties.has(prop.propertyName())) {
+        return new NavigationKey(schema, segment);
+      }
+      return isComposed(schema) || schema.has("patternProperties") ? null
+          : new NavigationKey(schema, UNDECLARED_PROPERTY);
+    }
+    return new NavigationKey(schema, segment);
+  }
+
+  private static boolean isComposed(JsonNode schema) {
+    for (String keyword : COMPOSITION_KEYWORDS) {
+      if (schema.has(keyword)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int tupleLength(JsonNode items) {
+    return items != null && items.isArray() ? items.size() : 0;
+  }
+
+  private JsonNode navigateDirectly(JsonNode schema, PathSegment segment) {
+    if (segment instanceof PropertySegment prop) {
+      return navigateToProperty(schema, prop.propertyName());
+    } else if (segment instanceof ArrayIndexSegment idx) {
+      return navigateToArrayIndex(schema, idx.index());
+    } else if (segment instanceof WildcardSegment) {
+      return navigateToArrayItems(schema);
+    }
+    return null;
+  }
+
+  private JsonNode navigateToCompositionBranch(JsonNode schema, PathSegment segment,
+      NavigationState state) {
+    for (String keyword : COMPOSITION_KEYWORDS) {
+      JsonNode branches = schema.get(keyword);
+      if (branches == null || !branches.isArray()) {
+        continue;
+      }
+      for (JsonNode branch : branches) {
+        JsonNode result = navigate(branch, segment, state);
+        if (result != null) {
+          return result;
+        }
+      }
+    }
+    return null;
+  }
+
+  private JsonNode navigateToPatternProperty(JsonNode schema, String propertyName) {
+    JsonNode patternProperties = schema.get("patternProperties");
+    if (patternProperties == null || !patternProperties.isObject()) {
+      return null;
+    }
+    for (Map.Entry<String, JsonNode> entry : patternProperties.properties()) {
+      try {
+        if (Pattern.compile(entry.getKey()).matcher(propertyName).find()) {
+          return entry.getValue();
+        }
+      } catch (PatternSyntaxException e) {
+        // Skip patterns that Java regex cannot compile
+      }
+    }
+    return null;
+  }
+
+  private JsonNode navigateToAdditionalProperty(JsonNode schema) {
+    // additionalProperties: true/false carries no schema to navigate into
+    JsonNode additionalProperties = schema.get("additionalProperties");
+    return additionalProperties != null && additionalProperties.isObject() ? additionalProperties
+        : null;
   }
 
   private JsonNode navigateToProperty(JsonNode schema, String propertyName) {
@@ -297,4 +802,146 @@ public final class JsonSchemaPathNavigator {
     return null;
   }
 
+  private static String appendProperty(String path, String propertyName) {
+    if (WORD_PATTERN.matcher(propertyName).matches()) {
+      return path + "." + propertyName;
+    }
+    return path + "['" + propertyName.replace("\\", "\\\\").replace("'", "\\'") + "']";
+  }
+
+  // A child path of a schema; propertyName is null for array positions
+  private record ChildPath(SchemaPathEntry entry, String propertyName) {
+  }
+
+  private static List<ChildPath> childPaths(String path, JsonNode schema,
+      UnaryOperator<JsonNode> refResolver) {
+    List<ChildPath> children = new ArrayList<>();
+    collectChildPaths(path, schema, refResolver, children,
+        Collections.newSetFromMap(new IdentityHashMap<>()));
+    return children;
+  }
+
+  private static void collectChildPaths(String path, JsonNode schema,
+      UnaryOperator<JsonNode> refResolver, List<ChildPath> children, Set<JsonNode> visited) {
+    if (!visited.add(schema)) {
+      return;
+    }
+
+    JsonNode properties = schema.get("properties");
+    if (properties != null && properties.isObject()) {
+      for (Map.Entry<String, JsonNode> entry : properties.properties()) {
+        children.add(new ChildPath(
+            new SchemaPathEntry(appendProperty(path, entry.getKey()), entry.getValue()),
+            entry.getKey()));
+      }
+    }
+
+    JsonNode prefixItems = schema.get("prefixItems");
+    JsonNode items = schema.get("items");
+    JsonNode tuple = prefixItems != null && prefixItems.isArray() ? prefixItems
+        : items != null && items.isArray() ? items : null;
+    if (tuple != null) {
+      for (int i = 0; i < tuple.size(); i++) {
+        children.add(new ChildPath(new SchemaPathEntry(path + "[" + i + "]", tuple.get(i)), null));
+      }
+    }
+
+    // Same precedence as navigateToArrayItems
+    if (items != null && items.isObject()) {
+      children.add(new ChildPath(new SchemaPathEntry(path + "[*]", items), null));
+    } else if (items != null && items.isArray()) {
+      JsonNode additionalItems = schema.get("additionalItems");
+      if (additionalItems != null && additionalItems.isObject()) {
+        children.add(new ChildPath(new SchemaPathEntry(path + "[*]", additionalItems), null));
+      }
+    }
+
+    // Children of composition branches share the path of the composing schema
+    for (String keyword : COMPOSITION_KEYWORDS) {
+      JsonNode branches = schema.get(keyword);
+      if (branches != null && branches.isArray()) {
+        for (JsonNode branch : branches) {
+          collectChildPaths(path, refResolver.apply(branch), refResolver, children, visited);
+        }
+      }
+    }
+  }
+
+  /**
+   * Depth-first walk that only keeps the ancestors of the current path on its stack.
+   */
+  private static final class PathIterator implements Iterator<SchemaPathEntry> {
+
+    private record Frame(JsonNode schema, Iterator<ChildPath> children) {
+    }
+
+    private final int maxDepth;
+    private final UnaryOperator<JsonNode> refResolver;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private final Map<JsonNode, Integer> ancestorCounts = new IdentityHashMap<>();
+    private SchemaPathEntry next;
+    private String nextPropertyName;
+    private String lastPropertyName;
+
+    private PathIterator(String rootPath, JsonNode root, int maxDepth,
+        UnaryOperator<JsonNode> refResolver) {
+      this.maxDepth = maxDepth;
+      this.refResolver = refResolver;
+      this.next = new SchemaPathEntry(rootPath, refResolver.apply(root));
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next != null) {
+        return true;
+      }
+      while (!stack.isEmpty()) {
+        Frame frame = stack.peek();
+        if (!frame.children().hasNext()) {
+          stack.pop();
+          ancestorCounts.computeIfPresent(frame.schema(), (k, v) -> v > 1 ? v - 1 : null);
+          continue;
+        }
+        ChildPath childPath = frame.children().next();
+        SchemaPathEntry child = childPath.entry();
+        JsonNode resolved = refResolver.apply(child.schema());
+        if (resolved != child.schema()) {
+          child = new SchemaPathEntry(child.path(), resolved);
+        }
+        if (ancestorCounts.getOrDefault(child.schema(), 0) > maxDepth) {
+          continue; // Recursion limit reached for a self-referencing schema
+        }
+        next = child;
+        nextPropertyName = childPath.propertyName();
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public SchemaPathEntry next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      SchemaPathEntry current = next;
+      lastPropertyName = nextPropertyName;
+      next = null;
+      nextPropertyName = null;
+
+      // Expand lazily: children are only enumerated once the parent has been consumed
+      JsonNode schema = current.schema();
+      if (schema.isObject()) {
+        ancestorCounts.merge(schema, 1, Integer::sum);
+        stack.push(new Frame(schema, childPaths(current.path(), schema, refResolver).iterator()));
+      }
+      return current;
+    }
+
+    // Property name of the entry last returned by next(), or null for array positions and root
+    private String lastPropertyName() {
+      return lastPropertyName;
+    }
+
+  }
+
 }
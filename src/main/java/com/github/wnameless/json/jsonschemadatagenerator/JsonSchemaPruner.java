@@ -0,0 +1,526 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ObjectNode;
+
+/**
+ * Removes the parts of a flattened JSON Schema that a {@link JsonSchemaDataGenerator} can never
+ * reach with its current options.
+ *
+ * <p>
+ * The pruner runs on the {@code Map} returned by {@link JsonSchemaFlattener#flattenJsonSchema} or
+ * on the tree returned by {@link JsonSchemaFlattener#flattenToJsonNode}, and mirrors the keyword
+ * precedence of the generator. For example, it drops optional property schemas under
+ * {@link PropertyScopeOption#REQUIRED_ONLY}, {@code additionalProperties} under
+ * {@link AdditionalPropertiesOption#NONE}, {@code examples} under {@link ExamplesOption#NONE}, the
+ * unchosen branches of {@code anyOf}/{@code oneOf} for deterministic options, and keywords the
+ * generator never reads (such as {@code definitions} and {@code not}). Under
+ * {@link AllOfOption#LAZY}, schemas with an unmerged {@code allOf} and everything reachable from
+ * them are left as they are.
+ *
+ * <p>
+ * Pruning never changes the generated data: property names are kept (with empty schemas) so the
+ * recursion fingerprints of the remaining nodes stay the same. Schema objects are modified in
+ * place, while shared containers such as {@code properties} maps and composition arrays are
+ * replaced rather than modified.
+ *
+ * @see JsonSchemaDataGenerator#compile(String)
+ * @author Wei-Ming Wu
+ */
+public final class JsonSchemaPruner {
+
+  private static final List<String> OBJECT_KEYWORDS =
+      List.of("patternProperties", "additionalProperties", "propertyNames");
+  private static final List<String> ARRAY_KEYWORDS =
+      List.of("items", "prefixItems", "additionalItems", "contains");
+  private static final List<String> UNREAD_KEYWORDS = List.of("allOf", "not", "if", "then",
+      "else", "definitions", "$defs", "dependentSchemas", "dependencies", "unevaluatedProperties",
+      "unevaluatedItems");
+  private static final Set<String> PRIMITIVE_TYPES =
+      Set.of("string", "number", "integer", "boolean", "null");
+
+  private final JsonSchemaDataGenerator generator;
+  private final Nodes nodes;
+  private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  private JsonSchemaPruner(JsonSchemaDataGenerator generator, Nodes nodes) {
+    this.generator = generator;
+    this.nodes = nodes;
+  }
+
+  /**
+   * Prunes the given flattened schema in place for the options of the given generator.
+   *
+   * @param flattenedSchema the schema returned by {@link JsonSchemaFlattener}
+   * @param generator the generator whose options decide what is reachable
+   * @return a report of how many schema nodes were removed
+   */
+  public static SchemaPruningReport prune(Map<String, Object> flattenedSchema,
+      JsonSchemaDataGenerator generator) {
+    return prune(flattenedSchema, generator, MAP_NODES);
+  }
+
+  /**
+   * Prunes the given flattened schema tree in place for the options of the given generator.
+   *
+   * @param flattenedSchema the tree returned by {@link JsonSchemaFlattener#flattenToJsonNode}
+   * @param generator the generator whose options decide what is reachable
+   * @return a report of how many schema nodes were removed
+   */
+  public static SchemaPruningReport prune(ObjectNode flattenedSchema,
+      JsonSchemaDataGenerator generator) {
+    return prune(flattenedSchema, generator, TREE_NODES);
+  }
+
+  private static SchemaPruningReport prune(Object flattenedSchema,
+      JsonSchemaDataGenerator generator, Nodes nodes) {
+    int totalNodes = countNodes(flattenedSchema, nodes);
+    JsonSchemaPruner pruner = new JsonSchemaPruner(generator, nodes);
+    if (generator.getAllOfOption() == AllOfOption.LAZY) {
+      pruner.protectAllOf(flattenedSchema, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+    pruner.pruneSchema(flattenedSchema);
+    return new SchemaPruningReport(totalNodes, countNodes(flattenedSchema, nodes));
+  }
+
+  // What is reachable from an unmerged allOf depends on the merge, so none of it is pruned
+  private void protectAllOf(Object node, Set<Object> seen) {
+    if (nodes.isArray(node)) {
+      nodes.elements(node).forEach(element -> protectAllOf(element, seen));
+    } else if (nodes.isObject(node) && seen.add(node)) {
+      if (nodes.has(node, "allOf")) {
+        markVisited(node);
+      } else {
+        nodes.fields(node).values().forEach(child -> protectAllOf(child, seen));
+      }
+    }
+  }
+
+  private void markVisited(Object node) {
+    if (nodes.isArray(node)) {
+      nodes.elements(node).forEach(this::markVisited);
+    } else if (nodes.isObject(node) && visited.add(node)) {
+      nodes.fields(node).values().forEach(this::markVisited);
+    }
+  }
+
+  private void pruneSchema(Object schema) {
+    if (!nodes.isObject(schema) || !visited.add(schema)) {
+      return;
+    }
+
+    UNREAD_KEYWORDS.forEach(keyword -> nodes.remove(schema, keyword));
+    if (generator.getExamplesOption() == ExamplesOption.NONE) {
+      nodes.remove(schema, "examples");
+    }
+    if (generator.getDefaultValueOption() == DefaultValueOption.IGNORE) {
+      nodes.remove(schema, "default");
+    }
+
+    // Same precedence as JsonSchemaDataGenerator#generateValueInternal
+    if (isTerminal(schema)) {
+      removeStructure(schema);
+      nodes.remove(schema, "anyOf");
+      nodes.remove(schema, "oneOf");
+    } else if (nodes.has(schema, "anyOf")) {
+      removeStructure(schema);
+      nodes.remove(schema, "oneOf");
+      pruneComposition(schema, "anyOf", switch (generator.getAnyOfOption()) {
+        case NULL -> Branch.NONE;
+        case FIRST -> Branch.FIRST;
+        case LAST -> Branch.LAST;
+        case RANDOM -> Branch.ALL;
+      });
+    } else if (nodes.has(schema, "oneOf")) {
+      removeStructure(schema);
+      pruneComposition(schema, "oneOf", switch (generator.getOneOfOption()) {
+        case NULL -> Branch.NONE;
+        case FIRST -> Branch.FIRST;
+        case LAST -> Branch.LAST;
+        case RANDOM -> Branch.ALL;
+      });
+    } else {
+      Set<String> types = possibleTypes(schema);
+      if (types.contains("object")) {
+        pruneObject(schema);
+      } else {
+        OBJECT_KEYWORDS.forEach(keyword -> nodes.remove(schema, keyword));
+        stubProperties(schema, name -> false);
+      }
+      if (types.contains("array")) {
+        pruneArray(schema);
+      } else {
+        ARRAY_KEYWORDS.forEach(keyword -> nodes.remove(schema, keyword));
+      }
+    }
+  }
+
+  private boolean isTerminal(Object schema) {
+    return nodes.has(schema, "const")
+        || (generator.getDefaultValueOption() == DefaultValueOption.USE
+            && nodes.has(schema, "default"))
+        || nodes.has(schema, "enum")
+        || (generator.getExamplesOption() != ExamplesOption.NONE
+            && nodes.has(schema, "examples"));
+  }
+
+  private void removeStructure(Object schema) {
+    OBJECT_KEYWORDS.forEach(keyword -> nodes.remove(schema, keyword));
+    ARRAY_KEYWORDS.forEach(keyword -> nodes.remove(schema, keyword));
+    stubProperties(schema, name -> false);
+  }
+
+  // Keeps the property names, which are part of the recursion fingerprint
+  private void stubProperties(Object schema, Predicate<String> keep) {
+    Object properties = nodes.get(schema, "properties");
+    if (!nodes.isObject(properties)) {
+      return;
+    }
+
+    Map<String, Object> stubbed = new LinkedHashMap<>();
+    nodes.fields(properties).forEach((name, propertySchema) -> {
+      if (keep.test(name)) {
+        stubbed.put(name, propertySchema);
+        pruneSchema(propertySchema);
+      } else {
+        stubbed.put(name, nodes.newObject(Map.of()));
+      }
+    });
+    nodes.put(schema, "properties", nodes.newObject(stubbed));
+  }
+
+  // The composition branches a generator can reach
+  private enum Branch {
+    NONE, FIRST, LAST, ALL
+  }
+
+  private void pruneComposition(Object schema, String keyword, Branch branch) {
+    Object composition = nodes.get(schema, keyword);
+    if (!nodes.isArray(composition) || nodes.elements(composition).isEmpty()) {
+      return;
+    }
+
+    List<Object> branches = nodes.elements(composition);
+    switch (branch) {
+      case ALL -> branches.forEach(this::pruneSchema);
+      // The generator returns null without reading any branch
+      case NONE -> nodes.put(schema, keyword, nodes.newArray(List.of(nodes.newObject(Map.of()))));
+      case FIRST, LAST -> {
+        Object chosen = branches.get(branch == Branch.FIRST ? 0 : branches.size() - 1);
+        nodes.put(schema, keyword, nodes.newArray(List.of(chosen)));
+        pruneSchema(chosen);
+      }
+    }
+  }
+
+  private void pruneObject(Object schema) {
+    if (generator.getPropertyScopeOption() == PropertyScopeOption.REQUIRED_ONLY) {
+      Set<String> required = new LinkedHashSet<>();
+      Object names = nodes.get(schema, "required");
+      if (nodes.isArray(names)) {
+        nodes.elements(names).forEach(name -> required.add(nodes.text(name)));
+      }
+      stubProperties(schema, required::contains);
+    } else if (nodes.isObject(nodes.get(schema, "properties"))) {
+      nodes.fields(nodes.get(schema, "properties")).values().forEach(this::pruneSchema);
+    }
+
+    Object patternProperties = nodes.get(schema, "patternProperties");
+    if (generator.getPatternPropertiesOption() == PatternPropertiesOption.NONE) {
+      nodes.remove(schema, "patternProperties");
+    } else if (nodes.isObject(patternProperties)) {
+      nodes.fields(patternProperties).values().forEach(this::pruneSchema);
+    }
+
+    if (generator.getAdditionalPropertiesOption() == AdditionalPropertiesOption.NONE) {
+      nodes.remove(schema, "additionalProperties");
+      nodes.remove(schema, "propertyNames");
+    } else {
+      pruneSchema(nodes.get(schema, "additionalProperties"));
+    }
+  }
+
+  private void pruneArray(Object schema) {
+    Object items = nodes.get(schema, "items");
+
+    // Same precedence as JsonSchemaDataGenerator#generateArrayValue
+    if (nodes.has(schema, "prefixItems") || nodes.isArray(items)) {
+      nodes.remove(schema, "contains");
+      Object prefixItems = nodes.get(schema, "prefixItems");
+      if (nodes.isArray(prefixItems)) {
+        nodes.elements(prefixItems).forEach(this::pruneSchema);
+      }
+      if (nodes.isArray(items)) {
+        nodes.elements(items).forEach(this::pruneSchema);
+      } else {
+        pruneSchema(items);
+      }
+      pruneSchema(nodes.get(schema, "additionalItems"));
+      return;
+    }
+
+    nodes.remove(schema, "prefixItems");
+    nodes.remove(schema, "additionalItems");
+    if (nodes.has(schema, "contains")) {
+      if (generator.getContainsOption() != ContainsOption.NONE) {
+        pruneSchema(nodes.get(schema, "contains"));
+        pruneSchema(items);
+        return;
+      }
+      nodes.remove(schema, "contains");
+    }
+
+    if (nodes.isObject(items) && generatesNoItems(schema, items)) {
+      // Only the item type is read, to pick between arrayOption and primitiveArrayOption
+      Object type = nodes.get(items, "type");
+      nodes.put(schema, "items",
+          nodes.newObject(nodes.has(items, "type") ? Map.of("type", type) : Map.of()));
+    } else {
+      pruneSchema(items);
+    }
+  }
+
+  private boolean generatesNoItems(Object schema, Object itemSchema) {
+    Integer minItems = nodes.has(schema, "minItems") ? nodes.integer(nodes.get(schema, "minItems"))
+        : Integer.valueOf(0);
+    if (minItems == null || minItems > 0) {
+      return false;
+    }
+    String itemType = nodes.text(nodes.get(itemSchema, "type"));
+    if (itemType != null && PRIMITIVE_TYPES.contains(itemType)) {
+      PrimitiveArrayOption option = generator.getPrimitiveArrayOption();
+      return option == PrimitiveArrayOption.NULL || option == PrimitiveArrayOption.EMPTY;
+    }
+    ArrayOption option = generator.getArrayOption();
+    return option == ArrayOption.NULL || option == ArrayOption.EMPTY;
+  }
+
+  // Mirrors JsonSchemaDataGenerator#getType; unknown type values keep every branch
+  private Set<String> possibleTypes(Object schema) {
+    if (!nodes.has(schema, "type")) {
+      return Set.of("object");
+    }
+    Object type = nodes.get(schema, "type");
+    if (nodes.text(type) != null) {
+      return Set.of(nodes.text(type));
+    }
+    if (!nodes.isArray(type)) {
+      return Set.of("object", "array");
+    }
+    List<Object> elements = nodes.elements(type);
+    if (elements.isEmpty()) {
+      return Set.of("object");
+    }
+
+    List<String> types = elements.stream().map(t -> String.valueOf(nodes.text(t))).toList();
+    return switch (generator.getUnionTypeOption()) {
+      case FIRST -> Set.of(types.get(0));
+      case LAST -> Set.of(types.get(types.size() - 1));
+      case RANDOM -> new LinkedHashSet<>(types);
+      case NULL_FIRST -> Set.of(types.contains("null") ? "null" : types.get(0));
+      case FIRST_NON_NULL -> Set.of(
+          types.stream().filter(t -> !"null".equals(t)).findFirst().orElse("null"));
+    };
+  }
+
+  private static int countNodes(Object root, Nodes nodes) {
+    Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<Object> stack = new ArrayList<>();
+    stack.add(root);
+    while (!stack.isEmpty()) {
+      Object value = stack.remove(stack.size() - 1);
+      if (nodes.isObject(value)) {
+        if (seen.add(value)) {
+          stack.addAll(nodes.fields(value).values());
+        }
+      } else if (nodes.isArray(value)) {
+        if (seen.add(value)) {
+          stack.addAll(nodes.elements(value));
+        }
+      }
+    }
+    return seen.size();
+  }
+
+  /**
+   * Access to the two schema representations the pruner works on.
+   */
+  private interface Nodes {
+
+    boolean isObject(Object value);
+
+    boolean isArray(Object value);
+
+    boolean has(Object object, String keyword);
+
+    Object get(Object object, String keyword);
+
+    void remove(Object object, String keyword);
+
+    void put(Object object, String keyword, Object value);
+
+    Map<String, Object> fields(Object object);
+
+    List<Object> elements(Object array);
+
+    Object newObject(Map<String, Object> fields);
+
+    Object newArray(List<Object> elements);
+
+    String text(Object value);
+
+    Integer integer(Object value);
+
+  }
+
+  @SuppressWarnings("unchecked")
+  private static final Nodes MAP_NODES = new Nodes() {
+
+    @Override
+    public boolean isObject(Object value) {
+      return value instanceof Map;
+    }
+
+    @Override
+    public boolean isArray(Object value) {
+      return value instanceof List;
+    }
+
+    @Override
+    public boolean has(Object object, String keyword) {
+      return ((Map<String, Object>) object).containsKey(keyword);
+    }
+
+    @Override
+    public Object get(Object object, String keyword) {
+      return ((Map<String, Object>) object).get(keyword);
+    }
+
+    @Override
+    public void remove(Object object, String keyword) {
+      ((Map<String, Object>) object).remove(keyword);
+    }
+
+    @Override
+    public void put(Object object, String keyword, Object value) {
+      ((Map<String, Object>) object).put(keyword, value);
+    }
+
+    @Override
+    public Map<String, Object> fields(Object object) {
+      Map<String, Object> fields = new LinkedHashMap<>();
+      ((Map<?, ?>) object).forEach((name, value) -> fields.put(String.valueOf(name), value));
+      return fields;
+    }
+
+    @Override
+    public List<Object> elements(Object array) {
+      return (List<Object>) array;
+    }
+
+    @Override
+    public Object newObject(Map<String, Object> fields) {
+      return new LinkedHashMap<>(fields);
+    }
+
+    @Override
+    public Object newArray(List<Object> elements) {
+      return new ArrayList<>(elements);
+    }
+
+    @Override
+    public String text(Object value) {
+      return value instanceof String s ? s : null;
+    }
+
+    @Override
+    public Integer integer(Object value) {
+      return value instanceof Number n ? n.intValue() : null;
+    }
+
+  };
+
+  private static final Nodes TREE_NODES = new Nodes() {
+
+    @Override
+    public boolean isObject(Object value) {
+      return value instanceof ObjectNode;
+    }
+
+    @Override
+    public boolean isArray(Object value) {
+      return value instanceof ArrayNode;
+    }
+
+    @Override
+    public boolean has(Object object, String keyword) {
+      return ((ObjectNode) object).has(keyword);
+    }
+
+    @Override
+    public Object get(Object object, String keyword) {
+      return ((ObjectNode) object).get(keyword);
+    }
+
+    @Override
+    public void remove(Object object, String keyword) {
+      ((ObjectNode) object).remove(keyword);
+    }
+
+    @Override
+    public void put(Object object, String keyword, Object value) {
+      ((ObjectNode) object).set(keyword, (JsonNode) value);
+    }
+
+    @Override
+    public Map<String, Object> fields(Object object) {
+      Map<String, Object> fields = new LinkedHashMap<>();
+      ((ObjectNode) object).properties()
+          .forEach(entry -> fields.put(entry.getKey(), entry.getValue()));
+      return fields;
+    }
+
+    @Override
+    public List<Object> elements(Object array) {
+      List<Object> elements = new ArrayList<>();
+      ((ArrayNode) array).forEach(elements::add);
+      return elements;
+    }
+
+    @Override
+    public Object newObject(Map<String, Object> fields) {
+      ObjectNode object = ObjectMapperFactory.getObjectMapper().createObjectNode();
+      fields.forEach((name, value) -> object.set(name, (JsonNode) value));
+      return object;
+    }
+
+    @Override
+    public Object newArray(List<Object> elements) {
+      ArrayNode array = ObjectMapperFactory.getObjectMapper().createArrayNode();
+      elements.forEach(element -> array.add((JsonNode) element));
+      return array;
+    }
+
+    @Override
+    public String text(Object value) {
+      return value instanceof JsonNode node && node.isString() ? node.asString() : null;
+    }
+
+    @Override
+    public Integer integer(Object value) {
+      return value instanceof JsonNode node && node.isNumber() ? node.asInt() : null;
+    }
+
+  };
+
+}
@@ -0,0 +1,666 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonPointer;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.MissingNode;
+import tools.jackson.databind.node.ObjectNode;
+
+/**
+ * Resolves {@code $ref} references on demand against JSON Schema documents parsed as Jackson trees.
+ *
+ * <p>
+ * Unlike {@link JsonSchemaFlattener}, which dereferences the whole schema graph up front, this
+ * resolver only parses the root document when it is created. Referenced documents are loaded the
+ * first time a reference into them is resolved, and both documents and resolved references are
+ * cached, so each document is parsed at most once per resolver.
+ *
+ * <p>
+ * References in the root document are resolved against the directory of the schema file (or the
+ * working directory for schema strings). References in external documents are rewritten to
+ * absolute URIs when the document is loaded. Like the default {@link RefParserFactory} options,
+ * references that cannot be resolved are skipped: {@link #resolve(JsonNode)} returns the
+ * {@code $ref} schema unchanged. The {@code allOf} keyword is never merged.
+ *
+ * <p>
+ * Schema files of 1 MB or more are memory-mapped window by window and parsed by a streaming
+ * Jackson parser directly from the mapping, so large documents never need an on-heap copy of their
+ * text. Each window is unmapped as soon as it is parsed rather than when it is garbage collected,
+ * so the file is not held open or locked afterwards. Only this resolver reads files this way; the
+ * {@code $RefParser}-based {@link JsonSchemaFlattener#flattenJsonSchema(File, AllOfOption)} and
+ * {@link RefResolutionOption#EAGER} compilation read them through {@code $RefParser}.
+ *
+ * <p>
+ * A resolver created with a {@link JsonSchemaRegistry} looks up every referenced document in the
+ * registry first and shares the registered document instead of parsing it again. Only documents
+ * missing from the registry are loaded from the file system or network.
+ *
+ * <p>
+ * The resolver records which documents each loaded document references. After a schema file
+ * changes, {@link #invalidate(File)} re-reads only that document and drops the cached references
+ * and flattened subtrees that depend on it, so flattening the same resolver again reuses
+ * everything the change did not touch.
+ *
+ * <p>
+ * Instances are thread-safe, although resolution running concurrently with
+ * {@link #invalidate(File)} may still see the previous content of the changed document.
+ *
+ * @see JsonSchemaPathNavigator#lazy(File)
+ * @author Wei-Ming Wu
+ */
+public final class JsonSchemaRefResolver {
+
+  // The minimum size in bytes of schema files that are memory-mapped instead of read as a stream
+  static final long MEMORY_MAP_THRESHOLD = 1L << 20;
+
+  // Keywords whose values are instance data, where a "$ref" member is not a reference
+  private static final Set<String> DATA_KEYWORDS = Set.of("const", "enum", "default", "examples");
+  // Keywords whose members are keyed by property or definition names rather than keywords
+  private static final Set<String> NAMED_SCHEMA_KEYWORDS = Set.of("properties",
+      "patternProperties", "definitions", "$defs", "dependentSchemas", "dependencies");
+
+  private final URI baseUri;
+  private volatile JsonNode rootSchema;
+  private final JsonSchemaRegistry registry;
+  private final Map<URI, CompletableFuture<JsonNode>> sharedDocuments;
+  private final Map<URI, CompletableFuture<JsonNode>> documents = new ConcurrentHashMap<>();
+  private final Map<URI, Set<URI>> references = new ConcurrentHashMap<>();
+  private final Map<String, JsonNode> resolvedRefs = new ConcurrentHashMap<>();
+  private final Map<JsonNode, JsonSchemaAssembler.Subtree> mergedSubtrees =
+      Collections.synchronizedMap(new IdentityHashMap<>());
+  private final Map<JsonNode, JsonSchemaAssembler.Subtree> unmergedSubtrees =
+      Collections.synchronizedMap(new IdentityHashMap<>());
+
+  private static ObjectMapper mapper() {
+    return ObjectMapperFactory.getObjectMapper();
+  }
+
+  private JsonSchemaRefResolver(URI baseUri, JsonNode rootSchema, JsonSchemaRegistry registry,
+      Map<URI, CompletableFuture<JsonNode>> sharedDocuments) {
+    this.baseUri = baseUri;
+    this.rootSchema = rootSchema;
+    this.registry = registry;
+    this.sharedDocuments = sharedDocuments;
+    documents.put(documentUri(baseUri), CompletableFuture.completedFuture(rootSchema));
+    recordReferences(documentUri(baseUri), rootSchema);
+  }
+
+  /**
+   * Creates a resolver for a JSON Schema string. Relative references are resolved against the
+   * working directory.
+   *
+   * @param jsonSchema the JSON Schema as a string
+   * @return a new JsonSchemaRefResolver instance
+   * @throws IOException if the schema cannot be parsed
+   */
+  public static JsonSchemaRefResolver of(String jsonSchema) throws IOException {
+    return of(jsonSchema, null);
+  }
+
+  /**
+   * Creates a resolver for a JSON Schema string that resolves references through a registry
+   * first. Relative references are resolved against the working directory.
+   *
+   * @param jsonSchema the JSON Schema as a string
+   * @param registry the registry to look up referenced documents in, or null for none
+   * @return a new JsonSchemaRefResolver instance
+   * @throws IOException if the schema cannot be parsed
+   */
+  public static JsonSchemaRefResolver of(String jsonSchema, JsonSchemaRegistry registry)
+      throws IOException {
+    try {
+      return new JsonSchemaRefResolver(Path.of("").toAbsolutePath().toUri(),
+          mapper().readTree(jsonSchema), registry, null);
+    } catch (JacksonException e) {
+      throw new IOException("Failed to parse JSON schema", e);
+    }
+  }
+
+  /**
+   * Creates a resolver for a JSON Schema file. Relative references are resolved against the
+   * directory of the file.
+   *
+   * @param jsonSchemaFile the JSON Schema file
+   * @return a new JsonSchemaRefResolver instance
+   * @throws IOException if the file cannot be read or parsed
+   */
+  public static JsonSchemaRefResolver of(File jsonSchemaFile) throws IOException {
+    return of(jsonSchemaFile, null);
+  }
+
+  /**
+   * Creates a resolver for a JSON Schema file that resolves references through a registry first.
+   * Relative references are resolved against the directory of the file.
+   *
+   * @param jsonSchemaFile the JSON Schema file
+   * @param registry the registry to look up referenced documents in, or null for none
+   * @return a new JsonSchemaRefResolver instance
+   * @throws IOException if the file cannot be read or parsed
+   */
+  public static JsonSchemaRefResolver of(File jsonSchemaFile, JsonSchemaRegistry registry)
+      throws IOException {
+    URI uri = jsonSchemaFile.getAbsoluteFile().toURI().normalize();
+    try {
+      return new JsonSchemaRefResolver(uri, readTree(jsonSchemaFile), registry, null);
+    } catch (JacksonException e) {
+      throw new IOException("Failed to parse JSON schema: " + jsonSchemaFile, e);
+    }
+  }
+
+  // Resolvers of one batch share parsed documents, so a document referenced by many schemas, or
+  // compiled as a schema itself, is parsed once; shared documents are never modified
+  static JsonSchemaRefResolver of(File jsonSchemaFile, JsonSchemaRegistry registry,
+      Map<URI, CompletableFuture<JsonNode>> sharedDocuments) throws IOException {
+    URI uri = jsonSchemaFile.getAbsoluteFile().toURI().normalize();
+    try {
+      JsonNode document = loadOnce(sharedDocuments, uri, JsonSchemaRefResolver::parseShared);
+      if (document.isMissingNode()) {
+        throw new IOException("JSON schema file not found: " + jsonSchemaFile);
+      }
+      return new JsonSchemaRefResolver(uri, document, registry, sharedDocuments);
+    } catch (UncheckedIOException e) {
+      throw new IOException("Failed to parse JSON schema: " + jsonSchemaFile, e.getCause());
+    }
+  }
+
+  /**
+   * Creates a resolver whose root document is the schema registered under the given URI. Nothing
+   * is parsed if every referenced document is registered as well.
+   *
+   * @param uri the URI of a registered schema
+   * @param registry the registry holding the schema
+   * @return a new JsonSchemaRefResolver instance
+   * @throws IllegalArgumentException if no schema is registered under the URI
+   */
+  public static JsonSchemaRefResolver of(URI uri, JsonSchemaRegistry registry) {
+    URI documentUri = documentUri(uri);
+    JsonNode document = registry.lookup(documentUri);
+    if (document == null) {
+      throw new IllegalArgumentException("No JSON schema registered under " + uri);
+    }
+    return new JsonSchemaRefResolver(documentUri, document, registry, null);
+  }
+
+  /**
+   * Returns the root schema, resolving it if it is itself a {@code $ref}.
+   *
+   * @return the root schema (not copied)
+   */
+  public JsonNode getRootSchema() {
+    return resolve(rootSchema);
+  }
+
+  /**
+   * Returns the URIs of the documents parsed so far, including the root document.
+   *
+   * @return an unmodifiable snapshot of the loaded document URIs
+   */
+  public Set<URI> getLoadedDocuments() {
+    Set<URI> loaded = new HashSet<>();
+    documents.forEach((uri, load) -> {
+      if (isLoaded(load)) {
+        loaded.add(uri);
+      }
+    });
+    return Collections.unmodifiableSet(loaded);
+  }
+
+  /**
+   * Loads every document reachable through external references up front, reading and parsing up
+   * to {@code parallelism} documents concurrently.
+   *
+   * <p>
+   * Each loaded document is scanned for further external references as soon as it is parsed, so
+   * the whole reference graph is discovered without waiting for other loads. Documents that are
+   * already loaded are not read again. Subsequent {@link #resolve(JsonNode)} calls then never
+   * touch the file system or network.
+   *
+   * @param parallelism the maximum number of documents loaded at the same time
+   * @return the number of documents loaded by this call
+   * @throws IllegalArgumentException if parallelism is less than 1
+   * @throws UncheckedIOException if a referenced document exists but cannot be read, or the
+   *         calling thread is interrupted
+   */
+  public int prefetch(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+      Thread thread = new Thread(runnable, "json-schema-prefetch");
+      thread.setDaemon(true);
+      return thread;
+    });
+    CompletionService<JsonNode> loads = new ExecutorCompletionService<>(executor);
+    Set<URI> submitted = new HashSet<>(documents.keySet());
+    int pending = 0;
+    int loaded = 0;
+
+    try {
+      // Documents loaded earlier may reference documents that are not loaded yet
+      for (CompletableFuture<JsonNode> load : documents.values()) {
+        if (!isLoaded(load)) {
+          continue;
+        }
+        for (URI uri : externalDocuments(load.join())) {
+          if (submitted.add(uri)) {
+            loads.submit(() -> document(uri));
+            pending++;
+          }
+        }
+      }
+
+      while (pending > 0) {
+        JsonNode document = loads.take().get();
+        pending--;
+        if (document.isMissingNode()) {
+          continue;
+        }
+        loaded++;
+        for (URI uri : externalDocuments(document)) {
+          if (submitted.add(uri)) {
+            loads.submit(() -> document(uri));
+            pending++;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UncheckedIOException(
+          new InterruptedIOException("Interrupted while prefetching referenced schemas"));
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException uioe) {
+        throw uioe;
+      }
+      throw new UncheckedIOException(new IOException(e.getCause()));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return loaded;
+  }
+
+  /**
+   * Returns the documents the given loaded document references directly.
+   *
+   * @param document the URI of a loaded document
+   * @return an unmodifiable set of referenced document URIs, empty if the document is not loaded
+   */
+  public Set<URI> getReferencedDocuments(URI document) {
+    return Collections.unmodifiableSet(references.getOrDefault(documentUri(document), Set.of()));
+  }
+
+  /**
+   * Discards everything cached for a changed schema file.
+   *
+   * @param changedFile the schema file that changed
+   * @return the changed document and every loaded document that depends on it, transitively
+   * @throws UncheckedIOException if the changed file is the root document and cannot be read
+   * @see #invalidate(URI)
+   */
+  public Set<URI> invalidate(File changedFile) {
+    return invalidate(changedFile.getAbsoluteFile().toURI());
+  }
+
+  /**
+   * Discards everything cached for a changed document: the document itself, the resolved
+   * references into it and the flattened subtrees that read it. The root document is re-read
+   * immediately; any other document is re-read the next time a reference into it is resolved.
+   * Documents depending on the changed one are not parsed again, and subtrees that never reached
+   * the changed document stay cached.
+   *
+   * @param changedDocument the URI of the document that changed
+   * @return the changed document and every loaded document that depends on it, transitively
+   * @throws UncheckedIOException if the changed document is the root document and cannot be read
+   */
+  public synchronized Set<URI> invalidate(URI changedDocument) {
+    URI changed = documentUri(changedDocument);
+    Set<URI> affected = dependentsOf(changed);
+    if (sharedDocuments != null) {
+      sharedDocuments.remove(changed);
+    }
+
+    URI rootUri = documentUri(baseUri);
+    if (changed.equals(rootUri)) {
+      JsonNode reloaded = loadDocument(rootUri);
+      if (!reloaded.isMissingNode()) {
+        rootSchema = reloaded;
+        documents.put(rootUri, CompletableFuture.completedFuture(reloaded));
+      }
+    } else {
+      documents.remove(changed);
+      references.remove(changed);
+    }
+
+    resolvedRefs.keySet().removeIf(ref -> changed.equals(documentOf(ref)));
+    for (Map<JsonNode, JsonSchemaAssembler.Subtree> subtrees : List.of(mergedSubtrees,
+        unmergedSubtrees)) {
+      synchronized (subtrees) {
+        subtrees.values().removeIf(subtree -> subtree.documents().contains(changed));
+      }
+    }
+    return Collections.unmodifiableSet(affected);
+  }
+
+  private Set<URI> dependentsOf(URI document) {
+    Set<URI> dependents = new LinkedHashSet<>();
+    Deque<URI> pending = new ArrayDeque<>(List.of(document));
+    while (!pending.isEmpty()) {
+      URI current = pending.poll();
+      if (dependents.add(current)) {
+        references.forEach((uri, referenced) -> {
+          if (referenced.contains(current)) {
+            pending.add(uri);
+          }
+        });
+      }
+    }
+    return dependents;
+  }
+
+  /**
+   * Resolves the given schema if it is a {@code $ref}, following chained references.
+   *
+   * @param schema a schema node, possibly containing a {@code $ref}
+   * @return the referenced schema, or the given schema if it is not a reference or the reference
+   *         cannot be resolved
+   * @throws UncheckedIOException if a referenced document exists but cannot be read
+   */
+  public JsonNode resolve(JsonNode schema) {
+    return resolve(schema, null);
+  }
+
+  // Also collects the document of every reference followed, if documents is not null
+  JsonNode resolve(JsonNode schema, Set<URI> documents) {
+    JsonNode current = schema;
+    Set<String> seen = new HashSet<>();
+
+    while (isRef(current)) {
+      String ref = current.get("$ref").asString();
+      if (!seen.add(ref)) {
+        return schema; // Reference chain loops back on itself
+      }
+
+      // Resolved outside the map, since resolving may load a document
+      JsonNode target = resolvedRefs.get(ref);
+      if (target == null) {
+        JsonNode resolved = resolveRef(ref);
+        target = resolvedRefs.putIfAbsent(ref, resolved);
+        if (target == null) {
+          target = resolved;
+        }
+      }
+      if (target.isMissingNode()) {
+        return schema;
+      }
+      if (documents != null) {
+        documents.add(documentOf(ref));
+      }
+      current = target;
+    }
+
+    return current;
+  }
+
+  // Flattened copies of referenced subtrees, kept until a document they read is invalidated
+  Map<JsonNode, JsonSchemaAssembler.Subtree> getSubtreeCache(boolean mergeAllOf) {
+    return mergeAllOf ? mergedSubtrees : unmergedSubtrees;
+  }
+
+  private URI documentOf(String ref) {
+    if (ref.startsWith("#")) {
+      return documentUri(baseUri);
+    }
+    try {
+      return documentUri(baseUri.resolve(ref));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static boolean isRef(JsonNode schema) {
+    return schema.isObject() && schema.has("$ref") && schema.get("$ref").isString();
+  }
+
+  private JsonNode resolveRef(String ref) {
+    JsonNode document;
+    String fragment;
+    if (ref.startsWith("#")) {
+      // Only the root document keeps relative references, so local refs always point into it
+      document = rootSchema;
+      fragment = decodeFragment(ref);
+    } else {
+      URI target;
+      try {
+        target = baseUri.resolve(ref);
+      } catch (IllegalArgumentException e) {
+        return MissingNode.getInstance();
+      }
+      document = document(documentUri(target));
+      fragment = target.getFragment();
+    }
+
+    if (document.isMissingNode() || fragment == null || fragment.isEmpty()) {
+      return document;
+    }
+    if (!fragment.startsWith("/")) {
+      return MissingNode.getInstance(); // Plain-name fragments ($anchor) are not supported
+    }
+    try {
+      return document.at(JsonPointer.compile(fragment));
+    } catch (IllegalArgumentException e) {
+      return MissingNode.getInstance();
+    }
+  }
+
+  private static String decodeFragment(String localRef) {
+    try {
+      return URI.create(localRef).getFragment();
+    } catch (IllegalArgumentException e) {
+      return localRef.substring(1); // Not a valid URI, use the pointer as written
+    }
+  }
+
+  private JsonNode document(URI uri) {
+    return loadOnce(documents, uri, this::loadDocument);
+  }
+
+  // A document that finished loading and exists
+  private static boolean isLoaded(CompletableFuture<JsonNode> load) {
+    return load.isDone() && !load.isCompletedExceptionally() && !load.join().isMissingNode();
+  }
+
+  // Loads the value of a key once, outside the map: computeIfAbsent would hold a lock of the map
+  // for the whole read, blocking other keys. Callers asking for the same key wait for the load;
+  // a failed load is removed, so a later call tries again.
+  static <K, V> V loadOnce(Map<K, CompletableFuture<V>> loads, K key, Function<K, V> loader) {
+    CompletableFuture<V> load = loads.get(key);
+    if (load == null) {
+      CompletableFuture<V> started = new CompletableFuture<>();
+      load = loads.putIfAbsent(key, started);
+      if (load == null) {
+        try {
+          V value = loader.apply(key);
+          started.complete(value);
+          return value;
+        } catch (RuntimeException | Error e) {
+          loads.remove(key, started);
+          started.completeExceptionally(e);
+          throw e;
+        }
+      }
+    }
+    try {
+      return load.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private JsonNode loadDocument(URI uri) {
+    if (registry != null) {
+      JsonNode registered = registry.lookup(uri);
+      if (registered != null) {
+        recordReferences(uri, registered);
+        return registered; // Already absolutized, and shared read-only
+      }
+    }
+    if (sharedDocuments != null) {
+      JsonNode shared = loadOnce(sharedDocuments, uri, JsonSchemaRefResolver::parseShared);
+      recordReferences(uri, shared);
+      return shared;
+    }
+
+    JsonNode document = parseDocument(uri);
+    absolutizeRefs(document, uri);
+    recordReferences(uri, document);
+    return document;
+  }
+
+  private static JsonNode parseShared(URI uri) {
+    JsonNode document = parseDocument(uri);
+    absolutizeRefs(document, uri);
+    return document;
+  }
+
+  private static JsonNode parseDocument(URI uri) {
+    JsonNode document;
+    try {
+      if ("file".equals(uri.getScheme())) {
+        File file = new File(uri);
+        if (!file.isFile()) {
+          return MissingNode.getInstance();
+        }
+        document = readTree(file);
+      } else {
+        try (InputStream in = uri.toURL().openStream()) {
+          document = mapper().readTree(in);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to load referenced schema: " + uri, e);
+    } catch (JacksonException | IllegalArgumentException e) {
+      throw new UncheckedIOException("Failed to load referenced schema: " + uri,
+          new IOException(e));
+    }
+    return document;
+  }
+
+  static JsonNode readTree(File file) throws IOException {
+    long size = file.length();
+    if (size < MEMORY_MAP_THRESHOLD || !MappedFileInputStream.isSupported()) {
+      return mapper().readTree(file);
+    }
+
+    try (InputStream in = new MappedFileInputStream(file.toPath())) {
+      return mapper().readTree(in);
+    }
+  }
+
+  // Rewrites relative references so they can be resolved without tracking each node's document
+  static void absolutizeRefs(JsonNode node, URI documentUri) {
+    absolutizeRefs(node, documentUri, false);
+  }
+
+  private static void absolutizeRefs(JsonNode node, URI documentUri, boolean named) {
+    if (node.isObject()) {
+      if (!named && isRef(node)) {
+        String ref = node.get("$ref").asString();
+        try {
+          ((ObjectNode) node).put("$ref", documentUri.resolve(ref).toString());
+        } catch (IllegalArgumentException e) {
+          // Leave malformed references untouched; they will not resolve
+        }
+      }
+      for (Map.Entry<String, JsonNode> field : node.properties()) {
+        if (named || !DATA_KEYWORDS.contains(field.getKey())) {
+          absolutizeRefs(field.getValue(), documentUri,
+              !named && NAMED_SCHEMA_KEYWORDS.contains(field.getKey()));
+        }
+      }
+    } else if (node.isArray()) {
+      for (JsonNode child : node.values()) {
+        absolutizeRefs(child, documentUri, false);
+      }
+    }
+  }
+
+  private void recordReferences(URI documentUri, JsonNode document) {
+    Set<URI> referenced = externalDocuments(document);
+    referenced.remove(documentUri); // Absolutized local references point back to the document
+    references.put(documentUri, Set.copyOf(referenced));
+  }
+
+  // External documents are absolutized on load, so every reference resolves against the base URI
+  private Set<URI> externalDocuments(JsonNode document) {
+    Set<URI> uris = new HashSet<>();
+    collectExternalDocuments(document, uris, false);
+    return uris;
+  }
+
+  private void collectExternalDocuments(JsonNode node, Set<URI> uris, boolean named) {
+    if (!named && isRef(node)) {
+      String ref = node.get("$ref").asString();
+      if (!ref.startsWith("#")) {
+        try {
+          uris.add(documentUri(baseUri.resolve(ref)));
+        } catch (IllegalArgumentException e) {
+          // Malformed references do not resolve and need no document
+        }
+      }
+    }
+    if (node.isObject()) {
+      for (Map.Entry<String, JsonNode> field : node.properties()) {
+        if (named || !DATA_KEYWORDS.contains(field.getKey())) {
+          collectExternalDocuments(field.getValue(), uris,
+              !named && NAMED_SCHEMA_KEYWORDS.contains(field.getKey()));
+        }
+      }
+    } else if (node.isArray()) {
+      for (JsonNode child : node.values()) {
+        collectExternalDocuments(child, uris, false);
+      }
+    }
+  }
+
+  static URI documentUri(URI uri) {
+    try {
+      return new URI(uri.getScheme(), uri.getSchemeSpecificPart(), null).normalize();
+    } catch (Exception e) {
+      return uri;
+    }
+  }
+
+}
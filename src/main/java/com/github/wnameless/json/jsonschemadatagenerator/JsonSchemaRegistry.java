@@ -0,0 +1,249 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.MissingNode;
+
+/**
+ * An in-memory set of JSON Schema documents, keyed by their {@code $id} or an explicit URI, that
+ * {@link JsonSchemaRefResolver} consults before loading any referenced document from the file
+ * system or network.
+ *
+ * <p>
+ * Documents are parsed once when registered and shared by every resolver using the registry, so a
+ * large common-definitions document referenced by many schemas is never parsed again. Relative
+ * references inside a registered document resolve against its registry URI. Classpath resources
+ * can be registered explicitly with {@link #registerResource(String)}, and references to
+ * {@code classpath:/...} URIs that were not registered are loaded from the classpath the first
+ * time they are followed.
+ *
+ * <p>
+ * Instances are thread-safe. Registered documents are never modified, so any number of threads may
+ * resolve against a registry while others register more documents.
+ *
+ * <pre>{@code
+ * JsonSchemaRegistry registry = JsonSchemaRegistry.create();
+ * registry.registerResource("schemas/common.json");
+ *
+ * JsonSchemaDataGenerator generator = JsonSchemaDataGenerator.normal();
+ * CompiledJsonSchema compiled = generator.compile(JsonSchemaRefResolver.of(schema, registry));
+ * JsonNode data = generator.generate(compiled);
+ * }</pre>
+ *
+ * @author Wei-Ming Wu
+ */
+public final class JsonSchemaRegistry {
+
+  /**
+   * The URI scheme of classpath resources.
+   */
+  public static final String CLASSPATH_SCHEME = "classpath";
+
+  private final Map<URI, JsonNode> documents = new ConcurrentHashMap<>();
+  // Classpath resources being loaded on first use, one future per URI
+  private final Map<URI, CompletableFuture<JsonNode>> resourceLoads = new ConcurrentHashMap<>();
+
+  private JsonSchemaRegistry() {}
+
+  /**
+   * Creates an empty registry.
+   *
+   * @return a new JsonSchemaRegistry instance
+   */
+  public static JsonSchemaRegistry create() {
+    return new JsonSchemaRegistry();
+  }
+
+  /**
+   * Registers a JSON Schema string under its {@code $id}.
+   *
+   * @param jsonSchema the JSON Schema as a string
+   * @return the URI the schema is registered under
+   * @throws IOException if the schema cannot be parsed
+   * @throws IllegalArgumentException if the schema has no absolute {@code $id}
+   */
+  public URI register(String jsonSchema) throws IOException {
+    JsonNode document = parse(jsonSchema);
+    return register(idOf(document).orElseThrow(
+        () -> new IllegalArgumentException("JSON schema has no absolute $id")), document);
+  }
+
+  /**
+   * Registers a JSON Schema string under the given URI, regardless of its {@code $id}.
+   *
+   * @param uri the absolute URI references use to reach the schema
+   * @param jsonSchema the JSON Schema as a string
+   * @return the normalized URI the schema is registered under
+   * @throws IOException if the schema cannot be parsed
+   * @throws IllegalArgumentException if the URI is not absolute
+   */
+  public URI register(URI uri, String jsonSchema) throws IOException {
+    return register(uri, parse(jsonSchema));
+  }
+
+  /**
+   * Registers a parsed JSON Schema under the given URI, regardless of its {@code $id}. The schema
+   * is copied, so later changes to it do not affect the registry.
+   *
+   * @param uri the absolute URI references use to reach the schema
+   * @param schema the JSON Schema
+   * @return the normalized URI the schema is registered under
+   * @throws IllegalArgumentException if the URI is not absolute
+   */
+  public URI register(URI uri, JsonNode schema) {
+    if (!uri.isAbsolute()) {
+      throw new IllegalArgumentException("Registry URI must be absolute: " + uri);
+    }
+    URI documentUri = JsonSchemaRefResolver.documentUri(uri);
+    JsonNode document = schema.deepCopy();
+    JsonSchemaRefResolver.absolutizeRefs(document, documentUri);
+    documents.put(documentUri, document);
+    return documentUri;
+  }
+
+  /**
+   * Registers a JSON Schema classpath resource under its {@code $id}, or under
+   * {@code classpath:/<resourceName>} if it has no absolute {@code $id}.
+   *
+   * @param resourceName the resource name, e.g. {@code schemas/common.json}
+   * @return the URI the schema is registered under
+   * @throws IOException if the resource does not exist or cannot be parsed
+   */
+  public URI registerResource(String resourceName) throws IOException {
+    URI resourceUri = classpathUri(resourceName);
+    JsonNode document = readResource(resourceUri);
+    if (document.isMissingNode()) {
+      throw new IOException("Classpath resource not found: " + resourceName);
+    }
+    return register(idOf(document).orElse(resourceUri), document);
+  }
+
+  /**
+   * Returns whether a document is registered under the given URI. The fragment of the URI is
+   * ignored.
+   *
+   * @param uri the URI to check
+   * @return true if a document is registered under the URI
+   */
+  public boolean contains(URI uri) {
+    return documents.containsKey(JsonSchemaRefResolver.documentUri(uri));
+  }
+
+  /**
+   * Returns a copy of the document registered under the given URI. The fragment of the URI is
+   * ignored.
+   *
+   * @param uri the URI of the document
+   * @return an Optional containing a deep copy of the document
+   */
+  public Optional<JsonNode> get(URI uri) {
+    return Optional.ofNullable(documents.get(JsonSchemaRefResolver.documentUri(uri)))
+        .map(JsonNode::deepCopy);
+  }
+
+  /**
+   * Returns the URIs of all registered documents.
+   *
+   * @return an unmodifiable snapshot of the registered URIs
+   */
+  public Set<URI> getRegisteredUris() {
+    return Collections.unmodifiableSet(Set.copyOf(documents.keySet()));
+  }
+
+  /**
+   * Removes the document registered under the given URI. Resolvers that already loaded it keep
+   * their reference.
+   *
+   * @param uri the URI of the document
+   * @return true if a document was removed
+   */
+  public boolean unregister(URI uri) {
+    return documents.remove(JsonSchemaRefResolver.documentUri(uri)) != null;
+  }
+
+  // Returns the shared document, loading unregistered classpath URIs on first use
+  JsonNode lookup(URI documentUri) {
+    JsonNode document = documents.get(documentUri);
+    if (document != null || !CLASSPATH_SCHEME.equals(documentUri.getScheme())) {
+      return document;
+    }
+
+    // Read outside the document map, so loading one resource does not block lookups of others
+    document = JsonSchemaRefResolver.loadOnce(resourceLoads, documentUri, this::loadResource);
+    // Missing resources are not cached, so they can still be registered later
+    return document.isMissingNode() ? null : document;
+  }
+
+  private JsonNode loadResource(URI uri) {
+    try {
+      JsonNode document = documents.get(uri); // Another load may have finished meanwhile
+      if (document == null) {
+        JsonNode resource = readResource(uri);
+        if (!resource.isMissingNode()) {
+          JsonSchemaRefResolver.absolutizeRefs(resource, uri);
+          document = documents.putIfAbsent(uri, resource);
+        }
+        document = document == null ? resource : document;
+      }
+      return document;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to load referenced schema: " + uri, e);
+    } finally {
+      resourceLoads.remove(uri); // Loaded resources are kept in the document map
+    }
+  }
+
+  private static JsonNode parse(String jsonSchema) throws IOException {
+    try {
+      return ObjectMapperFactory.getObjectMapper().readTree(jsonSchema);
+    } catch (JacksonException e) {
+      throw new IOException("Failed to parse JSON schema", e);
+    }
+  }
+
+  private static JsonNode readResource(URI resourceUri) throws IOException {
+    String name = resourceUri.getPath().substring(1);
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    if (classLoader == null) {
+      classLoader = JsonSchemaRegistry.class.getClassLoader();
+    }
+
+    try (InputStream in = classLoader.getResourceAsStream(name)) {
+      if (in == null) {
+        return MissingNode.getInstance();
+      }
+      return ObjectMapperFactory.getObjectMapper().readTree(in);
+    } catch (JacksonException e) {
+      throw new IOException("Failed to parse JSON schema resource: " + name, e);
+    }
+  }
+
+  private static Optional<URI> idOf(JsonNode document) {
+    JsonNode id = document.get("$id");
+    if (id == null || !id.isString()) {
+      return Optional.empty();
+    }
+    try {
+      URI uri = URI.create(id.asString());
+      return uri.isAbsolute() ? Optional.of(uri) : Optional.empty();
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static URI classpathUri(String resourceName) {
+    String path = resourceName.startsWith("/") ? resourceName : "/" + resourceName;
+    return URI.create(CLASSPATH_SCHEME + ":" + path).normalize();
+  }
+
+}
@@ -0,0 +1,149 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * An input stream over a file that is memory-mapped one window at a time, so a streaming parser
+ * reads the file without an on-heap copy of its text.
+ *
+ * <p>
+ * A mapping normally outlives its channel until the garbage collector frees it, and keeps the file
+ * locked on Windows meanwhile. This stream unmaps each window as soon as it has been read, and the
+ * last one on {@link #close()}, so nothing of the file stays mapped once parsing is done. Unmapping
+ * needs {@code sun.misc.Unsafe#invokeCleaner}; where it is not available, {@link #isSupported()}
+ * is false and callers read the file as a plain stream instead.
+ *
+ * @author Wei-Ming Wu
+ */
+final class MappedFileInputStream extends InputStream {
+
+  /**
+   * The default number of bytes mapped at a time.
+   */
+  static final long WINDOW_SIZE = 1L << 26;
+
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafe = theUnsafe.get(null);
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Not available on this runtime, so files are not mapped
+      unsafe = null;
+      invokeCleaner = null;
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  private final FileChannel channel;
+  private final long size;
+  private final long windowSize;
+  private long position;
+  private MappedByteBuffer window;
+
+  /**
+   * Returns whether windows can be unmapped deterministically on this runtime.
+   *
+   * @return true if files can be read through this stream
+   */
+  static boolean isSupported() {
+    return INVOKE_CLEANER != null;
+  }
+
+  MappedFileInputStream(Path file) throws IOException {
+    this(file, WINDOW_SIZE);
+  }
+
+  MappedFileInputStream(Path file, long windowSize) throws IOException {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("Mapped buffers cannot be unmapped on this runtime");
+    }
+    this.windowSize = windowSize;
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    size = channel.size();
+  }
+
+  @Override
+  public int read() throws IOException {
+    return fill() ? window.get() & 0xff : -1;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, b.length);
+    if (len == 0) {
+      return 0;
+    }
+    if (!fill()) {
+      return -1;
+    }
+    int count = Math.min(len, window.remaining());
+    window.get(b, off, count);
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return window == null ? 0 : window.remaining();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      unmap();
+    } finally {
+      channel.close();
+    }
+  }
+
+  // Maps the next window once the current one is read; false at the end of the file
+  private boolean fill() throws IOException {
+    if (!channel.isOpen()) {
+      throw new IOException("Stream closed");
+    }
+    if (window != null && window.hasRemaining()) {
+      return true;
+    }
+    unmap();
+    if (position >= size) {
+      return false;
+    }
+    long length = Math.min(windowSize, size - position);
+    window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    position += length;
+    return true;
+  }
+
+  private void unmap() throws IOException {
+    MappedByteBuffer mapped = window;
+    // Dropped first: touching an unmapped buffer crashes the JVM
+    window = null;
+    if (mapped == null) {
+      return;
+    }
+    try {
+      INVOKE_CLEANER.invoke(UNSAFE, mapped);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IOException("Failed to unmap schema file window", e);
+    }
+  }
+
+}
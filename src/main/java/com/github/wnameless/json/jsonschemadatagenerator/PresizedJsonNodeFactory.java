@@ -0,0 +1,72 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.util.LinkedHashMap;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.JsonNodeFactory;
+import tools.jackson.databind.node.ObjectNode;
+
+/**
+ * A {@link JsonNodeFactory} that creates object and array nodes with room for a known number of
+ * children, so filling them never rehashes or copies their backing collections.
+ *
+ * <p>
+ * {@link JsonSchemaDataGenerator} knows how many properties and items each generated container
+ * gets before filling it, and asks its node factory for nodes of that size. Subclass this factory
+ * to plug different node types or collections into generation:
+ *
+ * <pre>
+ * JsonSchemaDataGenerator generator =
+ *     JsonSchemaDataGenerator.normal().withNodeFactory(new PresizedJsonNodeFactory() {
+ *       &#64;Override
+ *       public ObjectNode objectNode(int expectedSize) {
+ *         return new ObjectNode(this, new TreeMap&lt;&gt;());
+ *       }
+ *     });
+ * </pre>
+ *
+ * Capacities above {@link #MAX_CAPACITY} are clamped, so a huge {@code minItems} or a container
+ * cut short by a {@link GenerationBudget} does not allocate its full size up front.
+ *
+ * @author Wei-Ming Wu
+ */
+public class PresizedJsonNodeFactory extends JsonNodeFactory {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The largest number of children a node is presized for.
+   */
+  public static final int MAX_CAPACITY = 1 << 16;
+
+  /**
+   * The shared default instance.
+   */
+  public static final PresizedJsonNodeFactory instance = new PresizedJsonNodeFactory();
+
+  /**
+   * Creates an empty object node with room for the given number of properties.
+   *
+   * @param expectedSize the number of properties the node will hold
+   * @return a new empty ObjectNode
+   */
+  public ObjectNode objectNode(int expectedSize) {
+    // Sized so that the expected properties stay below the default load factor of 0.75
+    return new ObjectNode(this, new LinkedHashMap<>((int) (clamp(expectedSize) / 0.75f) + 1));
+  }
+
+  /**
+   * Creates an empty array node with room for the given number of items.
+   *
+   * @param expectedSize the number of items the node will hold
+   * @return a new empty ArrayNode
+   */
+  @Override
+  public ArrayNode arrayNode(int expectedSize) {
+    return new ArrayNode(this, clamp(expectedSize));
+  }
+
+  private static int clamp(int expectedSize) {
+    return Math.max(0, Math.min(expectedSize, MAX_CAPACITY));
+  }
+
+}
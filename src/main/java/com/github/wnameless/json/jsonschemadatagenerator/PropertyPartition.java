@@ -0,0 +1,101 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import tools.jackson.databind.JsonNode;
+
+/**
+ * The {@code properties} of an object schema split into required and optional ones, with the
+ * {@code minProperties}/{@code maxProperties} bounds, as {@link JsonSchemaDataGenerator} selects
+ * from them. Required properties come first, each group in declaration order.
+ *
+ * <p>
+ * Partitions of compiled schemas are built once by {@link SchemaNodeIndex}, so generating an
+ * object only picks indices instead of collecting names and sets on every instance.
+ *
+ * @author Wei-Ming Wu
+ */
+final class PropertyPartition {
+
+  private final String[] names;
+  private final JsonNode[] schemas;
+  private final int requiredCount;
+  private final int minProperties;
+  private final int maxProperties;
+
+  private PropertyPartition(String[] names, JsonNode[] schemas, int requiredCount,
+      int minProperties, int maxProperties) {
+    this.names = names;
+    this.schemas = schemas;
+    this.requiredCount = requiredCount;
+    this.minProperties = minProperties;
+    this.maxProperties = maxProperties;
+  }
+
+  /**
+   * Partitions the properties of the given schema.
+   *
+   * @return the partition, or null if the schema has no {@code properties}
+   */
+  static PropertyPartition of(JsonNode schema) {
+    JsonNode properties = schema.get("properties");
+    if (properties == null || !properties.isObject()) {
+      return null;
+    }
+    Set<String> requiredFields = new HashSet<>();
+    if (schema.has("required")) {
+      schema.get("required").forEach(node -> requiredFields.add(node.asString()));
+    }
+
+    List<Map.Entry<String, JsonNode>> required = new ArrayList<>();
+    List<Map.Entry<String, JsonNode>> optional = new ArrayList<>();
+    for (Map.Entry<String, JsonNode> property : properties.properties()) {
+      (requiredFields.contains(property.getKey()) ? required : optional).add(property);
+    }
+    required.addAll(optional);
+
+    String[] names = new String[required.size()];
+    JsonNode[] schemas = new JsonNode[required.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = required.get(i).getKey();
+      schemas[i] = required.get(i).getValue();
+    }
+    int minProperties = schema.has("minProperties") ? schema.get("minProperties").asInt() : 0;
+    int maxProperties =
+        schema.has("maxProperties") ? schema.get("maxProperties").asInt() : Integer.MAX_VALUE;
+    return new PropertyPartition(names, schemas, names.length - optional.size(), minProperties,
+        maxProperties);
+  }
+
+  int size() {
+    return names.length;
+  }
+
+  int requiredCount() {
+    return requiredCount;
+  }
+
+  int optionalCount() {
+    return names.length - requiredCount;
+  }
+
+  int minProperties() {
+    return minProperties;
+  }
+
+  int maxProperties() {
+    return maxProperties;
+  }
+
+  String name(int index) {
+    return names[index];
+  }
+
+  JsonNode schema(int index) {
+    return schemas[index];
+  }
+
+}
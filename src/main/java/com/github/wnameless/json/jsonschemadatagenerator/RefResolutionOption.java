@@ -0,0 +1,38 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.io.File;
+
+/**
+ * Controls when {@code $ref} references are resolved during data generation.
+ *
+ * @see JsonSchemaDataGenerator#withRefResolutionOption(RefResolutionOption)
+ * @see JsonSchemaRefResolver
+ * @author Wei-Ming Wu
+ */
+public enum RefResolutionOption {
+
+  /**
+   * Dereference the whole schema with {@link JsonSchemaFlattener} before generation (default
+   * behavior). The {@link AllOfOption} is applied during flattening.
+   */
+  EAGER,
+
+  /**
+   * Resolve each {@code $ref} only when the generator reaches it, caching every resolved target.
+   * Definitions that the other options never visit (e.g. optional properties under
+   * {@link PropertyScopeOption#REQUIRED_ONLY} or unchosen {@code oneOf} branches) are never
+   * dereferenced, and referenced files are only parsed when needed. Under
+   * {@link AllOfOption#MERGE} and {@link AllOfOption#LAZY}, {@code allOf} is merged when generation
+   * first reaches it, as with {@link AllOfOption#LAZY}, so the data matches {@link #EAGER}.
+   */
+  LAZY,
+
+  /**
+   * Dereference the whole schema before generation, like {@link #EAGER}, but directly into a
+   * Jackson tree with {@link JsonSchemaFlattener#flattenToJsonNode(File, AllOfOption)}. This skips
+   * {@code $RefParser} and the intermediate {@code Map}, so {@link RefParserFactory} options do not
+   * apply. The {@link AllOfOption} is applied during flattening.
+   */
+  NATIVE;
+
+}
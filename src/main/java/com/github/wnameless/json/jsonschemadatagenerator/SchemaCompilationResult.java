@@ -0,0 +1,52 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Outcome of compiling one schema file in a
+ * {@link JsonSchemaDataGenerator#compileAll(java.util.Collection, int)} batch.
+ *
+ * <p>
+ * Exactly one of {@code compiledSchema} and {@code failure} is set. The elapsed time covers
+ * reading, flattening and pruning the schema, including any wait for a shared document another
+ * schema of the batch was parsing at the same time.
+ *
+ * @param schemaFile the compiled schema file
+ * @param compiledSchema the compiled schema, or null if compilation failed
+ * @param failure the exception compilation failed with, or null if it succeeded
+ * @param elapsed the wall-clock time spent compiling the schema
+ * @author Wei-Ming Wu
+ */
+public record SchemaCompilationResult(File schemaFile, CompiledJsonSchema compiledSchema,
+    Exception failure, Duration elapsed) {
+
+  /**
+   * Returns whether the schema compiled successfully.
+   *
+   * @return true if a compiled schema is available
+   */
+  public boolean isSuccessful() {
+    return failure == null;
+  }
+
+  /**
+   * Returns the compiled schema, if compilation succeeded.
+   *
+   * @return an Optional containing the compiled schema
+   */
+  public Optional<CompiledJsonSchema> getCompiledSchema() {
+    return Optional.ofNullable(compiledSchema);
+  }
+
+  /**
+   * Returns the exception compilation failed with, if any.
+   *
+   * @return an Optional containing the failure
+   */
+  public Optional<Exception> getFailure() {
+    return Optional.ofNullable(failure);
+  }
+
+}
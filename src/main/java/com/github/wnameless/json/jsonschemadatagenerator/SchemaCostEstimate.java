@@ -0,0 +1,60 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.util.List;
+
+/**
+ * Static estimate of the documents a {@link JsonSchemaDataGenerator} generates for a compiled
+ * schema, returned by {@link JsonSchemaDataGenerator#estimate(CompiledJsonSchema)}.
+ *
+ * <p>
+ * Nodes are the JSON values of a document and bytes its compact serialized length, counted as
+ * {@link GenerationReport} counts them. Expected values average over the random choices the
+ * options make; maxima take the largest choice everywhere at once and are upper bounds. Byte
+ * counts of generated strings and numbers are estimated from their constraints and typical
+ * generated lengths.
+ *
+ * @param expectedNodes the expected number of nodes per document
+ * @param maxNodes the largest number of nodes a document can have
+ * @param expectedBytes the expected serialized size per document
+ * @param maxBytes the largest serialized size a document can have
+ * @param recursionBlowUp expected nodes relative to the same options under
+ *        {@link RecursionDepthOption#NONE}
+ * @param hotspots the costly generation sites, most expected calls first
+ * @author Wei-Ming Wu
+ */
+public record SchemaCostEstimate(double expectedNodes, double maxNodes, double expectedBytes,
+    double maxBytes, double recursionBlowUp, List<Hotspot> hotspots) {
+
+  /**
+   * Kinds of values that cost far more to generate than a plain value.
+   */
+  public enum HotspotKind {
+
+    /**
+     * Strings and property names generated from a regular expression by RgxGen.
+     */
+    PATTERN,
+
+    /**
+     * Strings generated by DataFaker (formats such as {@code email} and free text).
+     */
+    DATAFAKER,
+
+    /**
+     * Arrays with {@code uniqueItems}, whose items are generated again while they repeat.
+     */
+    UNIQUE_ITEMS;
+
+  }
+
+  /**
+   * A schema location whose values are costly to generate.
+   *
+   * @param path the location in the document, e.g. {@code $.orders[].id}, as first reached
+   * @param kind what makes the values costly
+   * @param expectedCalls the expected number of values generated there per document, counting
+   *        every recursion level the schema is reached at
+   */
+  public record Hotspot(String path, HotspotKind kind, double expectedCalls) {}
+
+}
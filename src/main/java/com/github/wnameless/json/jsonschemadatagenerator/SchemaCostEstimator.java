@@ -0,0 +1,574 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import com.github.wnameless.json.jsonschemadatagenerator.SchemaCostEstimate.Hotspot;
+import com.github.wnameless.json.jsonschemadatagenerator.SchemaCostEstimate.HotspotKind;
+import tools.jackson.databind.JsonNode;
+
+/**
+ * Estimates the size of the documents a {@link JsonSchemaDataGenerator} generates for a compiled
+ * schema, and where their generation time goes, without generating anything.
+ *
+ * <p>
+ * The estimator walks the schema the way generation does: the same keyword precedence, property
+ * selection and item counts for the generator's options, and the same recursion limit per
+ * fingerprint. Subtrees reached again in the same recursion state are estimated once, so
+ * recursive schemas cost time linear in the recursion depth rather than in the document size.
+ *
+ * @author Wei-Ming Wu
+ */
+final class SchemaCostEstimator {
+
+  private static final Set<String> PRIMITIVE_TYPES =
+      Set.of("string", "number", "integer", "boolean", "null");
+  // Expected and largest lengths of generated strings whose schema gives no bound
+  private static final double[] PATTERN_LENGTH = {12, 64};
+  private static final Map<String, double[]> FORMAT_LENGTHS = Map.of(
+      "email", new double[] {24, 40}, "uri", new double[] {30, 60},
+      "url", new double[] {30, 60}, "date", new double[] {10, 10},
+      "date-time", new double[] {26, 29}, "time", new double[] {8, 8},
+      "uuid", new double[] {36, 36}, "hostname", new double[] {15, 30},
+      "ipv4", new double[] {13, 15}, "ipv6", new double[] {39, 39});
+  private static final Set<String> DATAFAKER_FORMATS =
+      Set.of("email", "uri", "url", "hostname", "ipv4", "ipv6");
+
+  private final JsonSchemaDataGenerator generator;
+  private final UnaryOperator<JsonNode> resolver;
+  private final int maxDepth;
+  private final Map<JsonNode, String> fingerprints = new IdentityHashMap<>();
+  private final Map<String, Integer> recursionTracker = new HashMap<>();
+  private final Map<State, Cost> estimated = new HashMap<>();
+  private final Map<Site, String> sitePaths = new HashMap<>();
+
+  private SchemaCostEstimator(JsonSchemaDataGenerator generator, UnaryOperator<JsonNode> resolver,
+      int maxDepth) {
+    this.generator = generator;
+    this.resolver = resolver;
+    this.maxDepth = maxDepth;
+  }
+
+  /**
+   * Estimates the documents the generator generates from the given root schema.
+   *
+   * @param rootSchema the root of a compiled schema
+   * @param generator the generator whose options decide what is generated
+   * @param resolver resolves the $refs and lazy allOf merges of the compiled schema
+   * @return the estimate
+   */
+  static SchemaCostEstimate estimate(JsonNode rootSchema, JsonSchemaDataGenerator generator,
+      UnaryOperator<JsonNode> resolver) {
+    SchemaCostEstimator estimator = new SchemaCostEstimator(generator, resolver,
+        generator.getRecursionDepthOption().getMaxDepth());
+    Cost cost = estimator.estimate(rootSchema, "$");
+    Cost unrecursed = new SchemaCostEstimator(generator, resolver, 0).estimate(rootSchema, "$");
+
+    List<Hotspot> hotspots = new ArrayList<>();
+    cost.calls.forEach((site, calls) -> hotspots
+        .add(new Hotspot(estimator.sitePaths.get(site), site.kind(), calls)));
+    hotspots.sort(Comparator.comparingDouble(Hotspot::expectedCalls).reversed());
+    return new SchemaCostEstimate(cost.expectedNodes, cost.maxNodes, cost.expectedBytes,
+        cost.maxBytes, cost.expectedNodes / unrecursed.expectedNodes, List.copyOf(hotspots));
+  }
+
+  // A schema reached with the given recursion depths on the path to it
+  private record State(Site schema, Map<String, Integer> recursionTracker) {}
+
+  // Schema nodes compare by identity, as generation tells them apart
+  private record Site(JsonNode schema, HotspotKind kind) {
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Site other && schema == other.schema && kind == other.kind;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(schema) * 31 + (kind == null ? 0 : kind.hashCode());
+    }
+
+  }
+
+  // Sizes of one subtree's values, and its hotspot calls per value
+  private static final class Cost {
+
+    private double expectedNodes;
+    private double maxNodes;
+    private double expectedBytes;
+    private double maxBytes;
+    private final Map<Site, Double> calls = new LinkedHashMap<>();
+
+    private static Cost of(double expectedNodes, double maxNodes, double expectedBytes,
+        double maxBytes) {
+      Cost cost = new Cost();
+      cost.expectedNodes = expectedNodes;
+      cost.maxNodes = maxNodes;
+      cost.expectedBytes = expectedBytes;
+      cost.maxBytes = maxBytes;
+      return cost;
+    }
+
+    private static Cost scalar(double expectedBytes, double maxBytes) {
+      return of(1, 1, expectedBytes, maxBytes);
+    }
+
+    // Adds a child generated the given expected and largest number of times
+    private void add(Cost child, double expectedTimes, double maxTimes) {
+      expectedNodes += child.expectedNodes * expectedTimes;
+      maxNodes += child.maxNodes * maxTimes;
+      expectedBytes += child.expectedBytes * expectedTimes;
+      maxBytes += child.maxBytes * maxTimes;
+      child.calls.forEach((site, n) -> calls.merge(site, n * expectedTimes, Double::sum));
+    }
+
+    private void call(Site site, double times) {
+      calls.merge(site, times, Double::sum);
+    }
+
+    // One of the choices, each as likely as the others
+    private static Cost anyOf(List<Cost> choices) {
+      Cost cost = new Cost();
+      double weight = 1.0 / choices.size();
+      for (Cost choice : choices) {
+        cost.expectedNodes += choice.expectedNodes * weight;
+        cost.expectedBytes += choice.expectedBytes * weight;
+        cost.maxNodes = Math.max(cost.maxNodes, choice.maxNodes);
+        cost.maxBytes = Math.max(cost.maxBytes, choice.maxBytes);
+        choice.calls.forEach((site, n) -> cost.calls.merge(site, n * weight, Double::sum));
+      }
+      return cost;
+    }
+
+  }
+
+  private Cost estimate(JsonNode schema, String path) {
+    schema = resolver.apply(schema);
+
+    // Same recursion limit as generation
+    String fingerprint = fingerprints.computeIfAbsent(schema, SchemaNodeIndex::fingerprint);
+    int currentDepth = recursionTracker.getOrDefault(fingerprint, 0);
+    if (currentDepth > maxDepth) {
+      return Cost.scalar(4, 4);
+    }
+
+    State state = new State(new Site(schema, null), Map.copyOf(recursionTracker));
+    Cost cost = estimated.get(state);
+    if (cost != null) {
+      return cost;
+    }
+    recursionTracker.put(fingerprint, currentDepth + 1);
+    try {
+      cost = estimateInternal(schema, path);
+    } finally {
+      if (currentDepth == 0) {
+        recursionTracker.remove(fingerprint);
+      } else {
+        recursionTracker.put(fingerprint, currentDepth);
+      }
+    }
+    estimated.put(state, cost);
+    return cost;
+  }
+
+  // Mirrors the keyword precedence of JsonSchemaDataGenerator#generateValueInternal
+  private Cost estimateInternal(JsonNode schema, String path) {
+    if (schema.has("const")) {
+      return measure(schema.get("const"));
+    }
+    if (generator.getDefaultValueOption() == DefaultValueOption.USE && schema.has("default")) {
+      return measure(schema.get("default"));
+    }
+    if (schema.has("enum")) {
+      return choose(schema.get("enum"), switch (generator.getEnumOption()) {
+        case NULL -> Choice.NONE;
+        case FIRST -> Choice.FIRST;
+        case LAST -> Choice.LAST;
+        case RANDOM -> Choice.ANY;
+      }, SchemaCostEstimator::measure);
+    }
+    if (generator.getExamplesOption() != ExamplesOption.NONE && schema.has("examples")) {
+      return choose(schema.get("examples"), switch (generator.getExamplesOption()) {
+        case NONE -> Choice.NONE;
+        case FIRST -> Choice.FIRST;
+        case LAST -> Choice.LAST;
+        case RANDOM -> Choice.ANY;
+      }, SchemaCostEstimator::measure);
+    }
+    if (schema.has("anyOf")) {
+      return choose(schema.get("anyOf"), switch (generator.getAnyOfOption()) {
+        case NULL -> Choice.NONE;
+        case FIRST -> Choice.FIRST;
+        case LAST -> Choice.LAST;
+        case RANDOM -> Choice.ANY;
+      }, branch -> estimate(branch, path));
+    }
+    if (schema.has("oneOf")) {
+      return choose(schema.get("oneOf"), switch (generator.getOneOfOption()) {
+        case NULL -> Choice.NONE;
+        case FIRST -> Choice.FIRST;
+        case LAST -> Choice.LAST;
+        case RANDOM -> Choice.ANY;
+      }, branch -> estimate(branch, path));
+    }
+
+    JsonNode type = schema.get("type");
+    if (type != null && type.isArray() && !type.isEmpty()
+        && generator.getUnionTypeOption() == UnionTypeOption.RANDOM) {
+      List<Cost> choices = new ArrayList<>();
+      type.forEach(t -> choices.add(estimateType(schema, t.asString(), path)));
+      return Cost.anyOf(choices);
+    }
+    return estimateType(schema, typeOf(schema), path);
+  }
+
+  private enum Choice {
+    NONE, FIRST, LAST, ANY;
+  }
+
+  private Cost choose(JsonNode array, Choice choice, Function<JsonNode, Cost> estimator) {
+    if (array == null || array.isEmpty() || choice == Choice.NONE) {
+      return Cost.scalar(4, 4);
+    }
+    return switch (choice) {
+      case FIRST -> estimator.apply(array.get(0));
+      case LAST -> estimator.apply(array.get(array.size() - 1));
+      default -> {
+        List<Cost> choices = new ArrayList<>();
+        array.forEach(element -> choices.add(estimator.apply(element)));
+        yield Cost.anyOf(choices);
+      }
+    };
+  }
+
+  // Mirrors JsonSchemaDataGenerator#getType for every union type option but RANDOM
+  private String typeOf(JsonNode schema) {
+    if (!schema.has("type")) {
+      return "object";
+    }
+    JsonNode type = schema.get("type");
+    if (!type.isArray()) {
+      return type.asString();
+    }
+    if (type.isEmpty()) {
+      return "object";
+    }
+    List<String> types = new ArrayList<>();
+    type.forEach(t -> types.add(t.asString()));
+    return switch (generator.getUnionTypeOption()) {
+      case FIRST, RANDOM -> types.get(0);
+      case LAST -> types.get(types.size() - 1);
+      case NULL_FIRST -> types.contains("null") ? "null" : types.get(0);
+      case FIRST_NON_NULL -> types.stream().filter(t -> !"null".equals(t)).findFirst()
+          .orElse("null");
+    };
+  }
+
+  private Cost estimateType(JsonNode schema, String type, String path) {
+    return switch (type) {
+      case "object" -> estimateObject(schema, path);
+      case "array" -> estimateArray(schema, path);
+      case "string" -> estimateString(schema, path);
+      case "integer", "number" -> estimateNumber(schema);
+      case "boolean" -> switch (generator.getBooleanOption()) {
+        case NULL, TRUE -> Cost.scalar(4, 4);
+        case FALSE -> Cost.scalar(5, 5);
+        case RANDOM -> Cost.scalar(4.5, 5);
+      };
+      default -> Cost.scalar(4, 4);
+    };
+  }
+
+  private Cost estimateObject(JsonNode schema, String path) {
+    Cost cost = Cost.of(1, 1, 2, 2);
+
+    if (schema.has("properties")) {
+      JsonNode properties = schema.get("properties");
+      Set<String> requiredFields = new HashSet<>();
+      if (schema.has("required")) {
+        schema.get("required").forEach(node -> requiredFields.add(node.asString()));
+      }
+      int minProps = schema.has("minProperties") ? schema.get("minProperties").asInt() : 0;
+      int maxProps =
+          schema.has("maxProperties") ? schema.get("maxProperties").asInt() : Integer.MAX_VALUE;
+
+      List<String> requiredList = new ArrayList<>();
+      List<String> optionalList = new ArrayList<>();
+      Iterator<String> names = properties.propertyNames().iterator();
+      while (names.hasNext()) {
+        String name = names.next();
+        (requiredFields.contains(name) ? requiredList : optionalList).add(name);
+      }
+
+      // Same count and selection as generation: required first, then random optional ones
+      int targetCount = propertyCount(minProps, maxProps, requiredList.size(),
+          requiredList.size() + optionalList.size());
+      int requiredCount = Math.min(requiredList.size(), targetCount);
+      for (String name : requiredList.subList(0, requiredCount)) {
+        cost.add(property(name, properties.get(name), path), 1, 1);
+      }
+      int optionalSlots =
+          generator.getPropertyScopeOption() == PropertyScopeOption.REQUIRED_ONLY ? 0
+              : Math.min(targetCount - requiredCount, optionalList.size());
+      if (optionalSlots > 0) {
+        double chance = (double) optionalSlots / optionalList.size();
+        List<Cost> optional = new ArrayList<>();
+        for (String name : optionalList) {
+          Cost property = property(name, properties.get(name), path);
+          optional.add(property);
+          cost.add(property, chance, 0);
+        }
+        // The largest selection takes the largest optional properties
+        optional.stream().mapToDouble(c -> c.maxNodes).boxed()
+            .sorted(Comparator.reverseOrder()).limit(optionalSlots)
+            .forEach(n -> cost.maxNodes += n);
+        optional.stream().mapToDouble(c -> c.maxBytes).boxed()
+            .sorted(Comparator.reverseOrder()).limit(optionalSlots)
+            .forEach(n -> cost.maxBytes += n);
+      }
+    }
+
+    double[] extraCount = switch (generator.getPatternPropertiesOption()) {
+      case NONE -> null;
+      case GENERATE_ONE -> new double[] {1, 1};
+      case GENERATE_FEW -> new double[] {2.5, 3};
+    };
+    if (extraCount != null && schema.has("patternProperties")) {
+      for (Map.Entry<String, JsonNode> pattern : schema.get("patternProperties").properties()) {
+        String patternPath = path + "./" + pattern.getKey() + "/";
+        Cost property = Cost.of(0, 0, PATTERN_LENGTH[0] + 4, PATTERN_LENGTH[1] + 4);
+        property.add(estimate(pattern.getValue(), patternPath), 1, 1);
+        property.call(site(pattern.getValue(), HotspotKind.PATTERN, patternPath), 1);
+        cost.add(property, extraCount[0], extraCount[1]);
+      }
+    }
+
+    extraCount = switch (generator.getAdditionalPropertiesOption()) {
+      case NONE -> null;
+      case GENERATE_ONE -> new double[] {1, 1};
+      case GENERATE_FEW -> new double[] {2.5, 3};
+    };
+    JsonNode additional = schema.get("additionalProperties");
+    if (extraCount != null && additional != null
+        && (!additional.isBoolean() || additional.asBoolean())) {
+      String additionalPath = path + ".*";
+      Cost property;
+      JsonNode propertyNames = schema.get("propertyNames");
+      if (propertyNames != null && propertyNames.has("pattern")) {
+        property = Cost.of(0, 0, PATTERN_LENGTH[0] + 4, PATTERN_LENGTH[1] + 4);
+        property.call(site(propertyNames, HotspotKind.PATTERN, additionalPath), 1);
+      } else {
+        property = Cost.of(0, 0, "additional_0".length() + 4, "additional_0".length() + 4);
+      }
+      if (additional.isBoolean()) {
+        property.add(Cost.of(1, 1, 2, 2), 1, 1);
+      } else {
+        property.add(estimate(additional, additionalPath), 1, 1);
+      }
+      cost.add(property, extraCount[0], extraCount[1]);
+    }
+
+    return cost;
+  }
+
+  // The value of a property with its name, quotes, colon and separator
+  private Cost property(String name, JsonNode schema, String path) {
+    Cost property = Cost.of(0, 0, name.length() + 4, name.length() + 4);
+    property.add(estimate(schema, path + "." + name), 1, 1);
+    return property;
+  }
+
+  // Mirrors JsonSchemaDataGenerator#determinePropertyCount
+  private int propertyCount(int minProps, int maxProps, int requiredCount, int totalAvailable) {
+    int minimum = Math.max(minProps, requiredCount);
+    int maximum = Math.min(maxProps, totalAvailable);
+    if (generator.getPropertyScopeOption() == PropertyScopeOption.REQUIRED_ONLY) {
+      return Math.min(requiredCount, maximum);
+    }
+    return Math.max(minimum, Math.min(maximum, totalAvailable));
+  }
+
+  private Cost estimateArray(JsonNode schema, String path) {
+    Cost cost = Cost.of(1, 1, 2, 2);
+    int minItems = schema.has("minItems") ? schema.get("minItems").asInt() : 0;
+    int maxItems = schema.has("maxItems") ? schema.get("maxItems").asInt() : Integer.MAX_VALUE;
+    String itemPath = path + "[]";
+
+    // Tuples: one item per position, then additional items up to minItems
+    JsonNode tuple = schema.has("prefixItems") ? schema.get("prefixItems")
+        : schema.has("items") && schema.get("items").isArray() ? schema.get("items") : null;
+    if (tuple != null) {
+      for (int i = 0; i < tuple.size(); i++) {
+        cost.add(item(estimate(tuple.get(i), path + "[" + i + "]")), 1, 1);
+      }
+      JsonNode additional = schema.has("prefixItems") && schema.has("items")
+          && !schema.get("items").isArray() ? schema.get("items") : schema.get("additionalItems");
+      int fill = minItems - tuple.size();
+      if (additional != null && fill > 0 && (!additional.isBoolean() || additional.asBoolean())) {
+        Cost item = additional.isBoolean() ? Cost.of(1, 1, 2, 2) : estimate(additional, itemPath);
+        cost.add(item(item), fill, fill);
+      }
+      return cost;
+    }
+
+    JsonNode itemSchema = schema.get("items");
+    boolean isPrimitive = itemSchema != null && isPrimitiveType(resolver.apply(itemSchema));
+
+    if (schema.has("contains") && generator.getContainsOption() != ContainsOption.NONE) {
+      int minContains = schema.has("minContains") ? schema.get("minContains").asInt() : 1;
+      int maxContains =
+          schema.has("maxContains") ? schema.get("maxContains").asInt() : Integer.MAX_VALUE;
+      if (!schema.has("minItems")) {
+        minItems = minContains;
+      }
+      double[] target = itemCount(isPrimitive, minItems, maxItems);
+      int containsCount = Math.max(minContains, 1);
+      if (maxContains < Integer.MAX_VALUE) {
+        containsCount = Math.min(containsCount, maxContains);
+      }
+      double[] contains = new double[2];
+      double[] regular = new double[2];
+      for (int i = 0; i < 2; i++) {
+        double count = Math.max(target[i], minContains);
+        contains[i] = Math.min(containsCount, count);
+        regular[i] = itemSchema != null ? count - contains[i] : 0;
+      }
+      cost.add(item(estimate(schema.get("contains"), itemPath)), contains[0], contains[1]);
+      if (itemSchema != null) {
+        cost.add(item(estimate(itemSchema, itemPath)), regular[0], regular[1]);
+      }
+      return cost;
+    }
+
+    if (itemSchema == null) {
+      return cost;
+    }
+    double[] count = itemCount(isPrimitive, minItems, maxItems);
+    Cost item = item(estimate(itemSchema, itemPath));
+    if (generator.getUniqueItemsOption() == UniqueItemsOption.ENFORCE
+        && schema.has("uniqueItems") && schema.get("uniqueItems").asBoolean() && count[0] > 0) {
+      item.call(site(schema, HotspotKind.UNIQUE_ITEMS, path), 1);
+    }
+    cost.add(item, count[0], count[1]);
+    return cost;
+  }
+
+  // An array item with its separator
+  private static Cost item(Cost value) {
+    Cost item = Cost.of(0, 0, 1, 1);
+    item.add(value, 1, 1);
+    return item;
+  }
+
+  // Expected and largest item counts, mirroring JsonSchemaDataGenerator#determineArrayCount
+  private double[] itemCount(boolean isPrimitive, int minItems, int maxItems) {
+    String option = isPrimitive ? generator.getPrimitiveArrayOption().name()
+        : generator.getArrayOption().name();
+    return switch (option) {
+      case "NULL" -> new double[] {0, 0};
+      case "EMPTY" -> new double[] {Math.max(0, minItems), Math.max(0, minItems)};
+      case "ONE" -> new double[] {Math.max(1, minItems), Math.max(1, minItems)};
+      default -> {
+        int spread = Math.max(0, Math.min(maxItems, minItems + 10) - minItems);
+        yield new double[] {minItems + spread / 2.0, minItems + spread};
+      }
+    };
+  }
+
+  private static boolean isPrimitiveType(JsonNode schema) {
+    return schema.has("type") && PRIMITIVE_TYPES.contains(schema.get("type").asString());
+  }
+
+  // Mirrors JsonSchemaDataGenerator#generateStringValue
+  private Cost estimateString(JsonNode schema, String path) {
+    if (generator.getStringOption() == StringOption.NULL) {
+      return Cost.scalar(4, 4);
+    }
+    if (generator.getStringOption() == StringOption.EMPTY) {
+      return Cost.scalar(2, 2);
+    }
+    if (generator.getFormattedStringOption() == FormattedStringOption.NULL) {
+      return Cost.scalar(4, 4);
+    }
+
+    if (schema.has("pattern")) {
+      double maxLength =
+          schema.has("maxLength") ? schema.get("maxLength").asInt() : PATTERN_LENGTH[1];
+      Cost cost = Cost.scalar(Math.min(PATTERN_LENGTH[0], maxLength) + 2, maxLength + 2);
+      cost.call(site(schema, HotspotKind.PATTERN, path), 1);
+      return cost;
+    }
+    if (schema.has("format")) {
+      String format = schema.get("format").asString();
+      double[] length = FORMAT_LENGTHS.get(format);
+      if (length == null) {
+        return Cost.scalar(4, 4);
+      }
+      Cost cost = Cost.scalar(length[0] + 2, length[1] + 2);
+      if (DATAFAKER_FORMATS.contains(format)) {
+        cost.call(site(schema, HotspotKind.DATAFAKER, path), 1);
+      }
+      return cost;
+    }
+
+    int minLength = schema.has("minLength") ? schema.get("minLength").asInt() : 0;
+    int maxLength = schema.has("maxLength") ? schema.get("maxLength").asInt() : minLength + 20;
+    Cost cost = Cost.scalar((minLength + Math.max(minLength, maxLength)) / 2.0 + 2,
+        Math.max(minLength, maxLength) + 2);
+    cost.call(site(schema, HotspotKind.DATAFAKER, path), 1);
+    return cost;
+  }
+
+  // Mirrors JsonSchemaDataGenerator#generateIntegerValue and #generateNumberValue
+  private Cost estimateNumber(JsonNode schema) {
+    if (generator.getNumberOption() == NumberOption.NULL
+        || (generator.getNumberOption() == NumberOption.GENERATED
+            && generator.getConstrainedNumberOption() == ConstrainedNumberOption.NULL)) {
+      return Cost.scalar(4, 4);
+    }
+    if (generator.getNumberOption() == NumberOption.ZERO) {
+      return Cost.scalar(1, 1);
+    }
+    boolean integer = "integer".equals(typeOf(schema));
+    if (generator.getConstrainedNumberOption() == ConstrainedNumberOption.RANDOM) {
+      // A random long, or a random double up to 1000
+      return integer ? Cost.scalar(19, 20) : Cost.scalar(18, 22);
+    }
+
+    BigDecimal minimum =
+        schema.has("minimum") ? schema.get("minimum").decimalValue() : BigDecimal.ZERO;
+    BigDecimal maximum = schema.has("maximum") ? schema.get("maximum").decimalValue()
+        : minimum.add(BigDecimal.valueOf(1000));
+    double width = Math.max(minimum.toPlainString().length(), maximum.toPlainString().length());
+    // Generated decimals carry a few fraction digits
+    double fraction = integer ? 0 : 5;
+    return switch (generator.getConstrainedNumberOption()) {
+      case MINIMUM -> Cost.scalar(minimum.toPlainString().length(), width);
+      case MAXIMUM -> Cost.scalar(maximum.toPlainString().length(), width);
+      default -> Cost.scalar(width + fraction, width + fraction + 1);
+    };
+  }
+
+  private static Cost measure(JsonNode value) {
+    long[] size = JsonSchemaDataGenerator.measure(value);
+    return Cost.of(size[0], size[0], size[1], size[1]);
+  }
+
+  // Remembers the first path a hotspot is reached at
+  private Site site(JsonNode schema, HotspotKind kind, String path) {
+    Site site = new Site(schema, kind);
+    sitePaths.putIfAbsent(site, path);
+    return site;
+  }
+
+}
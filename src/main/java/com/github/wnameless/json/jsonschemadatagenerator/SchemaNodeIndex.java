@@ -0,0 +1,384 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import tools.jackson.databind.JsonNode;
+
+/**
+ * Per-node facts about a compiled JSON Schema that {@link JsonSchemaDataGenerator} would otherwise
+ * work out again on every visit: the recursion fingerprint of each schema node, and which subtrees
+ * generate the same value every time under the generator's options.
+ *
+ * <p>
+ * A subtree is deterministic when none of the schemas generation visits in it makes a random
+ * choice: {@code const}, {@code default} under {@link DefaultValueOption#USE}, {@code enum} under
+ * {@link EnumOption#FIRST}, {@code false} booleans, and objects or arrays made of such schemas. Its
+ * value still depends on how deep the enclosing recursion is, so each deterministic node records,
+ * per fingerprint, the most nodes on one path through it that share the fingerprint. The memoized
+ * value is reused only where none of them would reach the recursion limit. Property order within
+ * generated objects is not part of the value, so optional properties keep the order they were
+ * first generated in.
+ *
+ * <p>
+ * Values are memoized for the outermost deterministic nodes and for deterministic leaves, which
+ * are what generation reaches again when an enclosing subtree cannot be reused. The index is built
+ * once per {@link CompiledJsonSchema}; memoized values are filled in by the first generation that
+ * reaches them.
+ *
+ * @author Wei-Ming Wu
+ */
+final class SchemaNodeIndex {
+
+  private static final Set<String> PRIMITIVE_TYPES =
+      Set.of("string", "number", "integer", "boolean", "null");
+
+  private final JsonSchemaDataGenerator generator;
+  private final Map<JsonNode, Entry> entries = new IdentityHashMap<>();
+
+  /**
+   * What the index knows about one schema node.
+   */
+  static final class Entry {
+
+    private final String fingerprint;
+    // Fingerprint -> most nodes with it on one path through this subtree; null if not deterministic
+    private Map<String, Integer> pathCounts;
+    private boolean memoized;
+    private volatile JsonNode value;
+    private PropertyPartition partition;
+
+    private Entry(String fingerprint) {
+      this.fingerprint = fingerprint;
+    }
+
+    String fingerprint() {
+      return fingerprint;
+    }
+
+    // True if the memoized value is what generation would produce at this recursion state
+    boolean isReusable(Map<String, Integer> recursionTracker, int maxDepth) {
+      if (!memoized) {
+        return false;
+      }
+      for (Map.Entry<String, Integer> count : pathCounts.entrySet()) {
+        if (recursionTracker.getOrDefault(count.getKey(), 0) + count.getValue() - 1 > maxDepth) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    JsonNode value() {
+      return value;
+    }
+
+    void setValue(JsonNode value) {
+      this.value = value;
+    }
+
+    // The schema's properties as generation selects from them; null without properties
+    PropertyPartition partition() {
+      return partition;
+    }
+
+  }
+
+  private SchemaNodeIndex(JsonSchemaDataGenerator generator) {
+    this.generator = generator;
+  }
+
+  /**
+   * Indexes every schema node of a flattened schema for the options of the given generator.
+   */
+  static SchemaNodeIndex build(JsonNode root, JsonSchemaDataGenerator generator) {
+    SchemaNodeIndex index = new SchemaNodeIndex(generator);
+    Entry rootEntry = index.index(root);
+    rootEntry.memoized = rootEntry.pathCounts != null;
+    return index;
+  }
+
+  Entry get(JsonNode schema) {
+    return entries.get(schema);
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the fingerprint the generator tracks recursion depth by: the type, property names,
+   * title and {@code $id} of a schema.
+   */
+  static String fingerprint(JsonNode schema) {
+    StringBuilder sb = new StringBuilder();
+    if (schema.has("type")) {
+      JsonNode typeNode = schema.get("type");
+      if (typeNode.isArray()) {
+        sb.append("type:[");
+        for (JsonNode t : typeNode) {
+          sb.append(t.asString()).append(",");
+        }
+        sb.append("]");
+      } else {
+        sb.append("type:").append(typeNode.asString());
+      }
+    }
+    if (schema.has("properties")) {
+      sb.append("|props:");
+      schema.get("properties").propertyNames().forEach(sb::append);
+    }
+    if (schema.has("title")) {
+      sb.append("|title:").append(schema.get("title").asString());
+    }
+    if (schema.has("$id")) {
+      sb.append("|$id:").append(schema.get("$id").asString());
+    }
+    return sb.toString();
+  }
+
+  private Entry index(JsonNode schema) {
+    Entry entry = entries.get(schema);
+    if (entry != null) {
+      return entry;
+    }
+    entry = new Entry(fingerprint(schema));
+    entry.partition = PropertyPartition.of(schema);
+    entries.put(schema, entry);
+
+    List<JsonNode> children = schemaChildren(schema);
+    for (JsonNode child : children) {
+      index(child);
+    }
+
+    List<JsonNode> generated = deterministicChildren(schema);
+    if (generated != null && generated.stream().allMatch(c -> index(c).pathCounts != null)) {
+      Map<String, Integer> pathCounts = new HashMap<>();
+      for (JsonNode child : generated) {
+        index(child).pathCounts.forEach((key, count) -> pathCounts.merge(key, count, Math::max));
+      }
+      pathCounts.merge(entry.fingerprint, 1, Integer::sum);
+      entry.pathCounts = pathCounts;
+      entry.memoized = generated.isEmpty();
+    } else {
+      // Generation reaches the deterministic children of a random schema on every visit
+      for (JsonNode child : children) {
+        Entry childEntry = entries.get(child);
+        childEntry.memoized = childEntry.pathCounts != null;
+      }
+    }
+    return entry;
+  }
+
+  // Every subschema generation could visit, whatever the options
+  private static List<JsonNode> schemaChildren(JsonNode schema) {
+    List<JsonNode> children = new ArrayList<>();
+    for (String keyword : List.of("properties", "patternProperties")) {
+      if (schema.has(keyword)) {
+        schema.get(keyword).values().forEach(children::add);
+      }
+    }
+    for (String keyword : List.of("anyOf", "oneOf", "prefixItems", "items")) {
+      JsonNode value = schema.get(keyword);
+      if (value != null && value.isArray()) {
+        value.values().forEach(children::add);
+      }
+    }
+    for (String keyword : List.of("items", "contains", "additionalItems", "additionalProperties")) {
+      JsonNode value = schema.get(keyword);
+      if (value != null && !value.isArray()) {
+        children.add(value);
+      }
+    }
+    return children;
+  }
+
+  // The subschemas generation visits, or null if it makes a random choice at this schema.
+  // Same precedence as JsonSchemaDataGenerator#generateValueInternal.
+  private List<JsonNode> deterministicChildren(JsonNode schema) {
+    if (schema.has("allOf") && generator.getAllOfOption() == AllOfOption.LAZY) {
+      return null; // Generation visits the merged schema instead
+    }
+    if (schema.has("const")) {
+      return List.of();
+    }
+    if (generator.getDefaultValueOption() == DefaultValueOption.USE && schema.has("default")) {
+      return List.of();
+    }
+    if (schema.has("enum")) {
+      return pick(schema.get("enum"), generator.getEnumOption() == EnumOption.RANDOM)
+          ? List.of() : null;
+    }
+    if (generator.getExamplesOption() != ExamplesOption.NONE && schema.has("examples")) {
+      return pick(schema.get("examples"), generator.getExamplesOption() == ExamplesOption.RANDOM)
+          ? List.of() : null;
+    }
+    if (schema.has("anyOf")) {
+      AnyOfOption option = generator.getAnyOfOption();
+      return branch(schema.get("anyOf"), option == AnyOfOption.RANDOM,
+          option == AnyOfOption.NULL, option == AnyOfOption.LAST);
+    }
+    if (schema.has("oneOf")) {
+      OneOfOption option = generator.getOneOfOption();
+      return branch(schema.get("oneOf"), option == OneOfOption.RANDOM,
+          option == OneOfOption.NULL, option == OneOfOption.LAST);
+    }
+
+    String type = typeOf(schema);
+    if (type == null) {
+      return null;
+    }
+    return switch (type) {
+      case "object" -> objectChildren(schema);
+      case "array" -> arrayChildren(schema);
+      case "string" -> generator.getStringOption() != StringOption.GENERATED
+          || generator.getFormattedStringOption() == FormattedStringOption.NULL ? List.of() : null;
+      case "integer", "number" -> generator.getNumberOption() != NumberOption.GENERATED
+          || (generator.getConstrainedNumberOption() != ConstrainedNumberOption.DATAFAKER
+              && generator.getConstrainedNumberOption() != ConstrainedNumberOption.RANDOM)
+                  ? List.of() : null;
+      case "boolean" -> generator.getBooleanOption() != BooleanOption.RANDOM ? List.of() : null;
+      default -> List.of();
+    };
+  }
+
+  // A random pick among one value is no choice at all
+  private static boolean pick(JsonNode values, boolean random) {
+    return !random || values.size() <= 1;
+  }
+
+  private static List<JsonNode> branch(JsonNode branches, boolean random, boolean none,
+      boolean last) {
+    if (none || branches.isEmpty()) {
+      return List.of();
+    }
+    if (random && branches.size() > 1) {
+      return null;
+    }
+    return List.of(branches.get(last ? branches.size() - 1 : 0));
+  }
+
+  // Same as JsonSchemaDataGenerator#getType, or null if the type is picked at random
+  private String typeOf(JsonNode schema) {
+    if (!schema.has("type")) {
+      return "object";
+    }
+    JsonNode typeNode = schema.get("type");
+    if (!typeNode.isArray()) {
+      return typeNode.asString();
+    }
+    if (typeNode.isEmpty()) {
+      return "object";
+    }
+
+    List<String> types = new ArrayList<>();
+    typeNode.forEach(t -> types.add(t.asString()));
+    return switch (generator.getUnionTypeOption()) {
+      case FIRST -> types.get(0);
+      case LAST -> types.get(types.size() - 1);
+      case RANDOM -> types.size() == 1 ? types.get(0) : null;
+      case NULL_FIRST -> types.contains("null") ? "null" : types.get(0);
+      case FIRST_NON_NULL -> types.stream()
+          .filter(t -> !"null".equals(t))
+          .findFirst()
+          .orElse("null");
+    };
+  }
+
+  private List<JsonNode> objectChildren(JsonNode schema) {
+    if (generator.getPatternPropertiesOption() != PatternPropertiesOption.NONE
+        && schema.has("patternProperties")) {
+      return null;
+    }
+    if (generator.getAdditionalPropertiesOption() != AdditionalPropertiesOption.NONE
+        && schema.has("additionalProperties")) {
+      JsonNode additionalProps = schema.get("additionalProperties");
+      if (!additionalProps.isBoolean() || additionalProps.asBoolean()) {
+        return null;
+      }
+    }
+    PropertyPartition partition = entries.get(schema).partition;
+    if (partition == null) {
+      return List.of();
+    }
+
+    // The same selection as JsonSchemaDataGenerator.ObjectFrame
+    int requiredCount = partition.requiredCount();
+    int optionalCount = partition.optionalCount();
+    int targetCount = generator.determinePropertyCount(partition.minProperties(),
+        partition.maxProperties(), requiredCount, partition.size());
+    int mandatory = Math.min(requiredCount, targetCount);
+    int slots = generator.getPropertyScopeOption() == PropertyScopeOption.REQUIRED_ONLY ? 0
+        : Math.min(targetCount - mandatory, optionalCount);
+    if (slots > 0 && slots < optionalCount) {
+      return null; // A random subset of the optional properties
+    }
+
+    List<JsonNode> children = new ArrayList<>(mandatory + slots);
+    for (int i = 0; i < mandatory; i++) {
+      children.add(partition.schema(i));
+    }
+    for (int i = 0; i < slots; i++) {
+      children.add(partition.schema(requiredCount + i));
+    }
+    return children;
+  }
+
+  // Over-approximates the visited items, which only makes fewer arrays deterministic
+  private List<JsonNode> arrayChildren(JsonNode schema) {
+    JsonNode items = schema.get("items");
+    if (schema.has("prefixItems") || (items != null && items.isArray())) {
+      List<JsonNode> children = new ArrayList<>();
+      if (schema.has("prefixItems")) {
+        schema.get("prefixItems").values().forEach(children::add);
+      }
+      if (items != null) {
+        if (items.isArray()) {
+          items.values().forEach(children::add);
+        } else {
+          children.add(items);
+        }
+      }
+      JsonNode additionalItems = schema.get("additionalItems");
+      if (additionalItems != null && additionalItems.isBoolean() && additionalItems.asBoolean()) {
+        return null; // Filled with fresh empty schemas the index does not know
+      }
+      if (additionalItems != null && !additionalItems.isBoolean()) {
+        children.add(additionalItems);
+      }
+      return children;
+    }
+
+    boolean hasContains =
+        schema.has("contains") && generator.getContainsOption() != ContainsOption.NONE;
+    if (hasContains && (generator.getContainsOption() == ContainsOption.RANDOM
+        || generator.getContainsOption() == ContainsOption.DISTRIBUTE)) {
+      return null;
+    }
+    if (!hasContains && items == null) {
+      return List.of();
+    }
+
+    boolean primitive = items != null && items.has("type")
+        && PRIMITIVE_TYPES.contains(items.get("type").asString());
+    boolean randomCount = primitive
+        ? generator.getPrimitiveArrayOption() == PrimitiveArrayOption.RANDOM
+        : generator.getArrayOption() == ArrayOption.RANDOM;
+    if (randomCount) {
+      return null;
+    }
+
+    List<JsonNode> children = new ArrayList<>();
+    if (hasContains) {
+      children.add(schema.get("contains"));
+    }
+    if (items != null) {
+      children.add(items);
+    }
+    return children;
+  }
+
+}
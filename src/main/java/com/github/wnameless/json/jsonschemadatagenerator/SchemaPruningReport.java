@@ -0,0 +1,34 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+/**
+ * Summary of a {@link JsonSchemaPruner} pass.
+ *
+ * <p>
+ * Nodes are the JSON objects and arrays of the flattened schema. Nodes shared through resolved
+ * {@code $ref}s are counted once.
+ *
+ * @param totalNodes the number of distinct nodes reachable before pruning
+ * @param retainedNodes the number of distinct nodes reachable after pruning
+ * @author Wei-Ming Wu
+ */
+public record SchemaPruningReport(int totalNodes, int retainedNodes) {
+
+  /**
+   * Returns the number of nodes removed by pruning.
+   *
+   * @return the number of pruned nodes
+   */
+  public int prunedNodes() {
+    return totalNodes - retainedNodes;
+  }
+
+  /**
+   * Returns the fraction of nodes removed by pruning.
+   *
+   * @return a value between 0.0 and 1.0
+   */
+  public double prunedRatio() {
+    return totalNodes == 0 ? 0.0 : (double) prunedNodes() / totalNodes;
+  }
+
+}
@@ -3,14 +3,36 @@ package com.github.wnameless.json.jsonschemadatagenerator;
 import static org.junit.jupiter.api.Assertions.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.io.TempDir;
+import io.zenwave360.jsonrefparser.$RefParserOptions;
+import io.zenwave360.jsonrefparser.$RefParserOptions.OnCircular;
+import io.zenwave360.jsonrefparser.$RefParserOptions.OnMissing;
 import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.JsonNodeFactory;
+import tools.jackson.databind.node.ObjectNode;
 
 class JsonSchemaDataGeneratorTest {
 
@@ -1477,6 +1499,100 @@ class JsonSchemaDataGeneratorTest {
       assertTrue(result.has("id"));
       assertEquals(1, result.size());
     }
+
+    @Test
+    void allPropertiesIncluded_requiredFirstThenDeclarationOrder() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "required": ["c"],
+            "properties": {
+              "a": { "type": "integer", "default": 1 },
+              "b": { "type": "integer", "default": 2 },
+              "c": { "type": "integer", "default": 3 },
+              "d": { "type": "integer", "default": 4 }
+            }
+          }
+          """;
+      var gen = JsonSchemaDataGenerator.builder().build();
+
+      for (int i = 0; i < 20; i++) {
+        assertEquals(List.of("c", "a", "b", "d"),
+            List.copyOf(gen.generate(schema).propertyNames()));
+      }
+    }
+
+    @Test
+    void maxProperties_picksEveryOptionalSubset() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "required": ["id"],
+            "maxProperties": 3,
+            "properties": {
+              "id": { "type": "integer", "default": 1 },
+              "a": { "type": "integer", "default": 2 },
+              "b": { "type": "integer", "default": 3 },
+              "c": { "type": "integer", "default": 4 }
+            }
+          }
+          """;
+      var gen = JsonSchemaDataGenerator.builder().build();
+      CompiledJsonSchema compiled = gen.compile(schema);
+      Set<Set<String>> subsets = new HashSet<>();
+
+      for (int i = 0; i < 200; i++) {
+        JsonNode result = gen.generate(compiled);
+        assertEquals(3, result.size());
+        assertEquals("id", result.propertyNames().iterator().next());
+        subsets.add(new HashSet<>(result.propertyNames()));
+      }
+
+      assertEquals(3, subsets.size());
+    }
+
+    @Test
+    void maxProperties_nestedPicksKeepTheirOwnOffsets() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "maxProperties": 2,
+            "properties": {
+              "a": { "$ref": "#/definitions/inner" },
+              "b": { "$ref": "#/definitions/inner" },
+              "c": { "$ref": "#/definitions/inner" },
+              "d": { "$ref": "#/definitions/inner" }
+            },
+            "definitions": {
+              "inner": {
+                "type": "object",
+                "maxProperties": 2,
+                "properties": {
+                  "w": { "type": "integer", "default": 1 },
+                  "x": { "type": "integer", "default": 2 },
+                  "y": { "type": "integer", "default": 3 },
+                  "z": { "type": "integer", "default": 4 }
+                }
+              }
+            }
+          }
+          """;
+      var gen = JsonSchemaDataGenerator.builder().build();
+      CompiledJsonSchema compiled = gen.compile(schema);
+      Set<Set<String>> subsets = new HashSet<>();
+
+      for (int i = 0; i < 300; i++) {
+        JsonNode result = gen.generate(compiled);
+        // The outer names are read after the nested objects picked their own properties
+        assertEquals(2, result.size());
+        for (JsonNode inner : result) {
+          assertEquals(2, inner.size());
+        }
+        subsets.add(new HashSet<>(result.propertyNames()));
+      }
+
+      assertEquals(6, subsets.size());
+    }
   }
 
   @Nested
@@ -3239,4 +3355,1526 @@ class JsonSchemaDataGeneratorTest {
       assertTrue(result.isEmpty());
     }
   }
+
+  @Nested
+  class RefResolutionOptionTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void nativeGeneratorgeneratesSameDataAsEager() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "properties": {
+              "home": { "$ref": "#/definitions/address" },
+              "tags": { "type": "array", "items": { "type": "string", "const": "t" } }
+            },
+            "definitions": {
+              "address": {
+                "type": "object",
+                "properties": { "city": { "type": "string", "default": "Taipei" } }
+              }
+            }
+          }
+          """;
+      var eager = JsonSchemaDataGenerator.normal();
+      var nativeGen = eager.withRefResolutionOption(RefResolutionOption.NATIVE);
+
+      assertEquals(eager.generate(schema), nativeGen.generate(schema));
+      assertTrue(nativeGen.compile(schema).getPruningReport().isPresent());
+    }
+
+    @Test
+    void lazy_resolvesLocalReferences() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "properties": {
+              "home": { "$ref": "#/definitions/address" },
+              "work": { "$ref": "#/definitions/address" }
+            },
+            "required": ["home", "work"],
+            "definitions": {
+              "address": {
+                "type": "object",
+                "properties": { "city": { "type": "string", "default": "Taipei" } },
+                "required": ["city"]
+              }
+            }
+          }
+          """;
+      var gen = JsonSchemaDataGenerator.builder()
+          .refResolutionOption(RefResolutionOption.LAZY)
+          .build();
+
+      JsonNode result = gen.generate(schema);
+
+      assertEquals("Taipei", result.get("home").get("city").asString());
+      assertEquals("Taipei", result.get("work").get("city").asString());
+    }
+
+    @Test
+    void lazy_defaultAllOfOption_mergesAllOfLikeNative() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "properties": {
+              "item": {
+                "allOf": [
+                  { "$ref": "#/definitions/base" },
+                  { "properties": { "extra": { "const": "e" } }, "required": ["extra"] }
+                ]
+              }
+            },
+            "required": ["item"],
+            "definitions": {
+              "base": {
+                "type": "object",
+                "properties": { "id": { "const": 1 } },
+                "required": ["id"]
+              }
+            }
+          }
+          """;
+      var generator = JsonSchemaDataGenerator.minimal();
+      var nativeGen = generator.withRefResolutionOption(RefResolutionOption.NATIVE);
+      var lazy = generator.withRefResolutionOption(RefResolutionOption.LAZY);
+
+      JsonNode item = lazy.generate(schema).get("item");
+
+      assertEquals(1, item.get("id").asInt());
+      assertEquals("e", item.get("extra").asString());
+      assertEquals(nativeGen.generate(schema), lazy.generate(schema));
+      assertFalse(lazy.withAllOfOption(AllOfOption.SKIP).generate(schema).get("item").has("id"));
+    }
+
+    @Test
+    void lazy_compiledFile_mergesExternalAllOfLikeNative() throws Exception {
+      Files.writeString(tempDir.resolve("base.json"), """
+          {
+            "type": "object",
+            "properties": { "id": { "type": "integer", "const": 7 } },
+            "required": ["id"]
+          }
+          """);
+      File schemaFile = tempDir.resolve("root.json").toFile();
+      Files.writeString(schemaFile.toPath(), """
+          {
+            "allOf": [
+              { "$ref": "base.json" },
+              { "properties": { "name": { "const": "n" } }, "required": ["name"] }
+            ]
+          }
+          """);
+      var generator = JsonSchemaDataGenerator.minimal();
+      var nativeGen = generator.withRefResolutionOption(RefResolutionOption.NATIVE);
+      var lazy = generator.withRefResolutionOption(RefResolutionOption.LAZY);
+
+      JsonNode data = lazy.generate(lazy.compile(schemaFile));
+
+      assertEquals(7, data.get("id").asInt());
+      assertEquals("n", data.get("name").asString());
+      assertEquals(nativeGen.generate(nativeGen.compile(schemaFile)), data);
+    }
+
+    @Test
+    void lazy_neverLoadsUnvisitedReferences() throws Exception {
+      Files.writeString(tempDir.resolve("name.json"), """
+          { "type": "string", "const": "lazy" }
+          """);
+      Files.writeString(tempDir.resolve("broken.json"), "{ not json");
+      Path schemaPath = tempDir.resolve("root.json");
+      Files.writeString(schemaPath, """
+          {
+            "type": "object",
+            "properties": {
+              "name": { "$ref": "name.json" },
+              "optional": { "$ref": "broken.json" }
+            },
+            "required": ["name"]
+          }
+          """);
+
+      JsonNode result = JsonSchemaDataGenerator.minimal()
+          .withRefResolutionOption(RefResolutionOption.LAZY)
+          .generate(schemaPath.toFile());
+
+      assertEquals("lazy", result.get("name").asString());
+      assertFalse(result.has("optional"));
+    }
+
+    @Test
+    void lazy_recursiveSchema_isBoundedByRecursionDepth() throws Exception {
+      String schema = """
+          {
+            "$ref": "#/definitions/node",
+            "definitions": {
+              "node": {
+                "type": "object",
+                "properties": {
+                  "name": { "type": "string", "default": "node" },
+                  "child": { "$ref": "#/definitions/node" }
+                }
+              }
+            }
+          }
+          """;
+      var gen = JsonSchemaDataGenerator.builder()
+          .refResolutionOption(RefResolutionOption.LAZY)
+          .recursionDepthOption(RecursionDepthOption.SHALLOW)
+          .build();
+
+      JsonNode result = gen.generate(schema);
+
+      assertEquals("node", result.get("child").get("name").asString());
+      assertTrue(result.get("child").get("child").isNull());
+    }
+
+    @Test
+    void lazy_primitiveArrayItemsReference_usesPrimitiveArrayOption() throws Exception {
+      String schema = """
+          {
+            "type": "array",
+            "items": { "$ref": "#/definitions/tag" },
+            "definitions": { "tag": { "type": "string", "default": "t" } }
+          }
+          """;
+      var gen = JsonSchemaDataGenerator.builder()
+          .refResolutionOption(RefResolutionOption.LAZY)
+          .arrayOption(ArrayOption.EMPTY)
+          .primitiveArrayOption(PrimitiveArrayOption.ONE)
+          .build();
+
+      JsonNode result = gen.generate(schema);
+
+      assertEquals(1, result.size());
+      assertEquals("t", result.get(0).asString());
+    }
+
+    @Test
+    void withRefResolutionOption_fluentApi() {
+      var gen = JsonSchemaDataGenerator.normal()
+          .withRefResolutionOption(RefResolutionOption.LAZY);
+
+      assertEquals(RefResolutionOption.LAZY, gen.getRefResolutionOption());
+      assertEquals(RefResolutionOption.EAGER,
+          JsonSchemaDataGenerator.normal().getRefResolutionOption());
+    }
+  }
+
+  @Nested
+  class CompileTests {
+
+    private static final String SCHEMA = """
+        {
+          "type": "object",
+          "properties": {
+            "id": { "type": "string", "default": "id-1" },
+            "note": { "type": "string" },
+            "kind": { "oneOf": [{ "const": "a" }, { "const": "b" }] }
+          },
+          "required": ["id", "kind"],
+          "definitions": { "unused": { "type": "object" } }
+        }
+        """;
+
+    @Test
+    void compiledSchema_generatesSameDataAsSchemaString() throws Exception {
+      var gen = JsonSchemaDataGenerator.minimal();
+
+      CompiledJsonSchema compiled = gen.compile(SCHEMA);
+
+      assertEquals(gen.generate(SCHEMA), gen.generate(compiled));
+      assertEquals(gen.generate(compiled), gen.generate(compiled));
+    }
+
+    @Test
+    void compiledSchema_isPrunedForGeneratorOptions() throws Exception {
+      CompiledJsonSchema compiled = JsonSchemaDataGenerator.minimal().compile(SCHEMA);
+
+      JsonNode schema = compiled.getSchema();
+      assertFalse(schema.has("definitions"));
+      assertTrue(schema.get("properties").get("note").isEmpty());
+      assertEquals(1, schema.get("properties").get("kind").get("oneOf").size());
+      assertTrue(compiled.getPruningReport().orElseThrow().prunedNodes() > 0);
+    }
+
+    @Test
+    void compiledSchema_rejectsGeneratorWithDifferentOptions() throws Exception {
+      CompiledJsonSchema compiled = JsonSchemaDataGenerator.minimal().compile(SCHEMA);
+
+      assertThrows(IllegalArgumentException.class,
+          () -> JsonSchemaDataGenerator.verbose().generate(compiled));
+    }
+
+    @Test
+    void compiledSchema_acceptsEqualGenerator() throws Exception {
+      CompiledJsonSchema compiled = JsonSchemaDataGenerator.minimal()
+          .withRecursionDepthOption(RecursionDepthOption.SHALLOW)
+          .compile(SCHEMA);
+
+      JsonNode result = JsonSchemaDataGenerator.minimal()
+          .withRecursionDepthOption(RecursionDepthOption.SHALLOW)
+          .generate(compiled);
+
+      assertEquals("id-1", result.get("id").asString());
+      assertEquals("a", result.get("kind").asString());
+      assertFalse(result.has("note"));
+    }
+
+    @Test
+    void lazyCompile_hasNoPruningReport() throws Exception {
+      var gen = JsonSchemaDataGenerator.builder()
+          .refResolutionOption(RefResolutionOption.LAZY)
+          .build();
+
+      CompiledJsonSchema compiled = gen.compile(SCHEMA);
+
+      assertTrue(compiled.getPruningReport().isEmpty());
+      assertEquals("id-1", gen.generate(compiled).get("id").asString());
+    }
+  }
+
+  @Nested
+  class SnapshotTests {
+
+    private static final String SCHEMA = """
+        {
+          "type": "object",
+          "properties": {
+            "id": { "type": "string", "default": "id-1" },
+            "count": { "type": "integer", "minimum": 3, "maximum": 3 },
+            "ratio": { "type": "number", "const": 0.5 },
+            "big": { "const": 123456789012345678901234567890 },
+            "tags": { "type": "array", "items": { "enum": ["x", "y", null, true] } }
+          },
+          "required": ["id", "count", "ratio", "big", "tags"]
+        }
+        """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void snapshot_roundTripsCompiledSchema() throws Exception {
+      var gen = JsonSchemaDataGenerator.normal();
+      CompiledJsonSchema compiled = gen.compile(SCHEMA);
+      File file = tempDir.resolve("schema.snapshot").toFile();
+
+      compiled.writeSnapshot(file);
+      CompiledJsonSchema loaded = CompiledJsonSchema.readSnapshot(file, gen);
+
+      assertEquals(compiled.getSchema(), loaded.getSchema());
+      assertEquals(compiled.getPruningReport(), loaded.getPruningReport());
+      assertEquals(gen.generate(compiled), gen.generate(loaded));
+    }
+
+    @Test
+    void snapshot_rejectsGeneratorWithDifferentOptions() throws Exception {
+      File file = tempDir.resolve("schema.snapshot").toFile();
+      JsonSchemaDataGenerator.normal().compile(SCHEMA).writeSnapshot(file);
+
+      assertThrows(IllegalArgumentException.class,
+          () -> CompiledJsonSchema.readSnapshot(file, JsonSchemaDataGenerator.verbose()));
+    }
+
+    @Test
+    void snapshot_detectsCorruptedContent() throws Exception {
+      File file = tempDir.resolve("schema.snapshot").toFile();
+      JsonSchemaDataGenerator.normal().compile(SCHEMA).writeSnapshot(file);
+      byte[] bytes = Files.readAllBytes(file.toPath());
+      bytes[bytes.length - 2] ^= 0x7F;
+      Files.write(file.toPath(), bytes);
+
+      assertThrows(IOException.class,
+          () -> CompiledJsonSchema.readSnapshot(file, JsonSchemaDataGenerator.normal()));
+    }
+
+    @Test
+    void snapshot_corruptLength_throwsIOException() throws Exception {
+      File file = tempDir.resolve("schema.snapshot").toFile();
+      JsonSchemaDataGenerator.normal().compile(SCHEMA).writeSnapshot(file);
+      byte[] bytes = Files.readAllBytes(file.toPath());
+
+      // The length of the options text follows the magic and the format version
+      for (int length : new int[] {-5, Integer.MAX_VALUE - 8}) {
+        ByteBuffer.wrap(bytes).putInt(8, length);
+        Files.write(file.toPath(), bytes);
+
+        IOException e = assertThrows(IOException.class,
+            () -> CompiledJsonSchema.readSnapshot(file, JsonSchemaDataGenerator.normal()));
+        assertTrue(e.getMessage().startsWith("Corrupt snapshot"), e::getMessage);
+      }
+    }
+
+    @Test
+    void snapshot_readsNodesWithGeneratorNodeFactory() throws Exception {
+      AtomicInteger objects = new AtomicInteger();
+      var gen = JsonSchemaDataGenerator.normal().withNodeFactory(new PresizedJsonNodeFactory() {
+        @Override
+        public ObjectNode objectNode(int expectedSize) {
+          objects.incrementAndGet();
+          return super.objectNode(expectedSize);
+        }
+      });
+      File file = tempDir.resolve("schema.snapshot").toFile();
+      gen.compile(SCHEMA).writeSnapshot(file);
+      objects.set(0);
+
+      CompiledJsonSchema loaded = CompiledJsonSchema.readSnapshot(file, gen);
+      int created = objects.get();
+
+      assertEquals(gen.compile(SCHEMA).getSchema(), loaded.getSchema());
+      assertTrue(created >= 7, () -> created + " objects");
+    }
+
+    @Test
+    void snapshot_rejectsNonSnapshotFile() throws Exception {
+      File file = tempDir.resolve("schema.json").toFile();
+      Files.writeString(file.toPath(), SCHEMA);
+
+      assertThrows(IOException.class,
+          () -> CompiledJsonSchema.readSnapshot(file, JsonSchemaDataGenerator.normal()));
+    }
+
+    @Test
+    void lazyCompiledSchema_cannotBeSnapshotted() throws Exception {
+      CompiledJsonSchema compiled = JsonSchemaDataGenerator.builder()
+          .refResolutionOption(RefResolutionOption.LAZY)
+          .build()
+          .compile(SCHEMA);
+
+      assertThrows(IllegalStateException.class,
+          () -> compiled.writeSnapshot(tempDir.resolve("lazy.snapshot").toFile()));
+    }
+  }
+
+  @Nested
+  class LazyAllOfTests {
+
+    private static final String SCHEMA = """
+        {
+          "type": "object",
+          "properties": {
+            "pet": {
+              "allOf": [
+                { "$ref": "#/definitions/named" },
+                {
+                  "type": "object",
+                  "properties": { "legs": { "type": "integer", "minimum": 4, "maximum": 4 } },
+                  "required": ["legs"]
+                }
+              ]
+            },
+            "note": { "allOf": [{ "type": "string", "const": "optional" }] }
+          },
+          "required": ["pet"],
+          "definitions": {
+            "named": {
+              "type": "object",
+              "properties": { "name": { "type": "string", "default": "Rex" } },
+              "required": ["name"]
+            }
+          }
+        }
+        """;
+
+    @Test
+    void lazy_generatesSameDataAsMerge() throws Exception {
+      var merge = JsonSchemaDataGenerator.normal()
+          .withRefResolutionOption(RefResolutionOption.NATIVE);
+      var lazy = merge.withAllOfOption(AllOfOption.LAZY);
+
+      JsonNode result = lazy.generate(SCHEMA);
+
+      assertEquals(merge.generate(SCHEMA), result);
+      assertEquals("Rex", result.get("pet").get("name").asString());
+      assertEquals(4, result.get("pet").get("legs").asInt());
+    }
+
+    @Test
+    void lazy_requiredOnly_generatesSameDataAsMerge() throws Exception {
+      var merge = JsonSchemaDataGenerator.minimal()
+          .withRecursionDepthOption(RecursionDepthOption.SHALLOW)
+          .withRefResolutionOption(RefResolutionOption.NATIVE);
+      var lazy = merge.withAllOfOption(AllOfOption.LAZY);
+
+      assertEquals(merge.generate(SCHEMA), lazy.generate(SCHEMA));
+    }
+
+    @Test
+    void lazy_memoizesMergesAcrossGenerateCalls() throws Exception {
+      var gen = JsonSchemaDataGenerator.normal().withAllOfOption(AllOfOption.LAZY);
+      CompiledJsonSchema compiled = gen.compile(SCHEMA);
+
+      gen.generate(compiled);
+      List<JsonNode> merges = List.copyOf(compiled.getAllOfMerges().values());
+      gen.generate(compiled);
+
+      assertEquals(2, merges.size());
+      assertEquals(merges, List.copyOf(compiled.getAllOfMerges().values()));
+      assertTrue(compiled.getSchema().get("properties").get("pet").has("allOf"));
+    }
+
+    @Test
+    void lazy_onlyMergesVisitedSchemas() throws Exception {
+      var gen = JsonSchemaDataGenerator.minimal()
+          .withRecursionDepthOption(RecursionDepthOption.SHALLOW)
+          .withAllOfOption(AllOfOption.LAZY);
+      CompiledJsonSchema compiled = gen.compile(SCHEMA);
+
+      JsonNode result = gen.generate(compiled);
+
+      assertFalse(result.has("note"));
+      assertEquals(1, compiled.getAllOfMerges().size());
+    }
+
+    @Test
+    void lazy_leavesCircularAllOfUnmerged() throws Exception {
+      var gen = JsonSchemaDataGenerator.normal().withAllOfOption(AllOfOption.LAZY);
+
+      JsonNode result = gen.generate("""
+          {
+            "type": "object",
+            "properties": { "id": { "type": "string", "default": "n1" } },
+            "allOf": [{ "$ref": "#" }]
+          }
+          """);
+
+      assertEquals("n1", result.get("id").asString());
+    }
+  }
+
+  @Nested
+  class PerInstanceConfigurationTests {
+
+    private static final String SCHEMA = """
+        {
+          "type": "object",
+          "properties": {
+            "name": { "type": "string", "default": "Ada" },
+            "address": {
+              "type": "object",
+              "properties": { "city": { "type": "string", "default": "Paris" } }
+            }
+          },
+          "required": ["name", "address"]
+        }
+        """;
+
+    @Test
+    void getters_fallBackToGlobalFactories() {
+      assertSame(RefParserFactory.getOptions(), generator.getRefParserOptions());
+      assertSame(ObjectMapperFactory.getObjectMapper(), generator.getObjectMapper());
+      assertSame(PresizedJsonNodeFactory.instance, generator.getNodeFactory());
+    }
+
+    @Test
+    void withRefParserOptions_overridesGlobalOptions() {
+      $RefParserOptions options = new $RefParserOptions()
+          .withOnCircular(OnCircular.SKIP)
+          .withOnMissing(OnMissing.FAIL);
+
+      var tenant = generator.withRefParserOptions(options);
+
+      assertSame(options, tenant.getRefParserOptions());
+      assertSame(RefParserFactory.getOptions(), generator.getRefParserOptions());
+    }
+
+    @Test
+    void withObjectMapper_buildsOutputWithGivenMapper() throws Exception {
+      AtomicInteger objectNodes = new AtomicInteger();
+      JsonNodeFactory countingFactory = new JsonNodeFactory() {
+        @Override
+        public ObjectNode objectNode() {
+          objectNodes.incrementAndGet();
+          return super.objectNode();
+        }
+      };
+      ObjectMapper mapper = JsonMapper.builder().nodeFactory(countingFactory).build();
+
+      JsonNode result = generator.withObjectMapper(mapper).generate(SCHEMA);
+
+      assertEquals("Paris", result.get("address").get("city").asString());
+      assertTrue(objectNodes.get() >= 2);
+    }
+
+    @Test
+    void withNullConfiguration_throwsIllegalArgumentException() {
+      assertThrows(IllegalArgumentException.class, () -> generator.withRefParserOptions(null));
+      assertThrows(IllegalArgumentException.class, () -> generator.withObjectMapper(null));
+      assertThrows(IllegalArgumentException.class, () -> generator.withNodeFactory(null));
+    }
+
+    @Test
+    void withNodeFactory_presizesNodesForTheirChildren() throws Exception {
+      List<Integer> objectSizes = new ArrayList<>();
+      List<Integer> arraySizes = new ArrayList<>();
+      var presizing = generator.withNodeFactory(new PresizedJsonNodeFactory() {
+        @Override
+        public ObjectNode objectNode(int expectedSize) {
+          objectSizes.add(expectedSize);
+          return super.objectNode(expectedSize);
+        }
+
+        @Override
+        public ArrayNode arrayNode(int expectedSize) {
+          arraySizes.add(expectedSize);
+          return super.arrayNode(expectedSize);
+        }
+      });
+
+      CompiledJsonSchema compiled = presizing.compile("""
+          {
+            "type": "object",
+            "properties": {
+              "name": { "type": "string", "default": "Ada" },
+              "tags": { "type": "array", "minItems": 3, "items": { "type": "string" } },
+              "pair": { "type": "array", "prefixItems": [{ "type": "string" }, { "const": 2 }] }
+            }
+          }
+          """);
+      // Compiling converts the schema into nodes as well
+      objectSizes.clear();
+      arraySizes.clear();
+
+      JsonNode result = presizing.generate(compiled);
+
+      assertEquals(List.of(3), objectSizes);
+      assertEquals(List.of(3, 2), arraySizes);
+      assertEquals(3, result.get("tags").size());
+    }
+
+    @Test
+    void withNodeFactory_plainFactoryBuildsSameDocument() throws Exception {
+      JsonNode expected = generator.generate(SCHEMA);
+
+      assertEquals(expected,
+          generator.withNodeFactory(JsonNodeFactory.instance).generate(SCHEMA));
+    }
+
+    @Test
+    void configuredGenerators_generateConcurrently() throws Exception {
+      var skipping = generator.withRefParserOptions(
+          new $RefParserOptions().withOnCircular(OnCircular.SKIP).withOnMissing(OnMissing.SKIP));
+      var resolving = generator.withRefParserOptions(
+          new $RefParserOptions().withOnCircular(OnCircular.RESOLVE).withOnMissing(OnMissing.SKIP))
+          .withObjectMapper(JsonMapper.builder().build());
+      JsonNode expected = generator.generate(SCHEMA);
+
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        List<Future<JsonNode>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+          var tenant = i % 2 == 0 ? skipping : resolving;
+          results.add(executor.submit(() -> tenant.generate(SCHEMA)));
+        }
+        for (Future<JsonNode> result : results) {
+          assertEquals(expected, result.get());
+        }
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    @Test
+    void configuration_doesNotChangeSnapshotOptions() {
+      var tenant = generator.withObjectMapper(JsonMapper.builder().build());
+
+      assertEquals(generator.toString(), tenant.toString());
+    }
+  }
+
+  @Nested
+  class BatchCompileTests {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void writeSchemas() throws IOException {
+      Files.createDirectories(tempDir.resolve("common"));
+      Files.writeString(tempDir.resolve("common/money.json"), """
+          {
+            "type": "object",
+            "properties": {
+              "amount": { "type": "integer", "minimum": 5, "maximum": 5 },
+              "currency": { "type": "string", "const": "EUR" }
+            },
+            "required": ["amount", "currency"]
+          }
+          """);
+      Files.writeString(tempDir.resolve("order.json"), """
+          {
+            "type": "object",
+            "properties": { "total": { "$ref": "common/money.json" } },
+            "required": ["total"]
+          }
+          """);
+      Files.writeString(tempDir.resolve("refund.json"), """
+          {
+            "type": "object",
+            "properties": { "amount": { "$ref": "common/money.json" } },
+            "required": ["amount"]
+          }
+          """);
+      Files.writeString(tempDir.resolve("broken.json"), "{ invalid");
+      Files.writeString(tempDir.resolve("notes.txt"), "not a schema");
+    }
+
+    @Test
+    void compileAll_directory_compilesEveryJsonFileInPathOrder() throws Exception {
+      var results = generator.compileAll(tempDir.toFile(), 2);
+
+      assertEquals(List.of("broken.json", "money.json", "order.json", "refund.json"),
+          results.stream().map(result -> result.schemaFile().getName()).toList());
+      assertTrue(results.stream().allMatch(result -> !result.elapsed().isNegative()));
+    }
+
+    @Test
+    void compileAll_reportsFailuresWithoutStoppingBatch() throws Exception {
+      var results = generator.compileAll(tempDir.toFile(), 2);
+
+      SchemaCompilationResult broken = results.get(0);
+      assertFalse(broken.isSuccessful());
+      assertTrue(broken.getCompiledSchema().isEmpty());
+      assertInstanceOf(IOException.class, broken.failure());
+      assertEquals(3, results.stream().filter(SchemaCompilationResult::isSuccessful).count());
+    }
+
+    @Test
+    void compileAll_generatesSameDataAsCompile() throws Exception {
+      File order = tempDir.resolve("order.json").toFile();
+      var nativeGenerator = generator.withRefResolutionOption(RefResolutionOption.NATIVE);
+
+      var results = generator.compileAll(List.of(order), 1);
+      JsonNode result = generator.generate(results.get(0).getCompiledSchema().orElseThrow());
+
+      assertEquals(nativeGenerator.generate(nativeGenerator.compile(order)), result);
+      assertEquals("EUR", result.get("total").get("currency").asString());
+    }
+
+    @Test
+    void compileAll_lazy_sharesParsedDocumentsAcrossSchemas() throws Exception {
+      var lazy = generator.withRefResolutionOption(RefResolutionOption.LAZY);
+
+      var results = lazy.compileAll(List.of(tempDir.resolve("order.json").toFile(),
+          tempDir.resolve("refund.json").toFile(), tempDir.resolve("common/money.json").toFile()),
+          2);
+      var order = results.get(0).compiledSchema();
+      var refund = results.get(1).compiledSchema();
+      JsonNode total = order.getRefResolver()
+          .resolve(order.getRootSchema().get("properties").get("total"));
+      JsonNode amount = refund.getRefResolver()
+          .resolve(refund.getRootSchema().get("properties").get("amount"));
+
+      assertSame(total, amount);
+      assertSame(total, results.get(2).compiledSchema().getRootSchema());
+    }
+
+    @Test
+    void compileAll_invalidParallelism_throwsIllegalArgumentException() {
+      assertThrows(IllegalArgumentException.class,
+          () -> generator.compileAll(tempDir.toFile(), 0));
+    }
+  }
+
+  @Nested
+  class DeterministicMemoTests {
+
+    private static final String SCHEMA = """
+        {
+          "type": "object",
+          "properties": {
+            "id": { "type": "integer", "minimum": 7 },
+            "name": { "type": "string", "format": "email" },
+            "tags": { "type": "array", "items": { "type": "string" } }
+          },
+          "required": ["id", "name", "tags"]
+        }
+        """;
+
+    @Test
+    void isDeterministic_reflectsOptions() {
+      assertTrue(JsonSchemaDataGenerator.skeleton().isDeterministic());
+      assertTrue(JsonSchemaDataGenerator.minimal()
+          .withFormattedStringOption(FormattedStringOption.NULL).isDeterministic());
+      assertFalse(JsonSchemaDataGenerator.minimal().isDeterministic());
+      assertFalse(JsonSchemaDataGenerator.normal().isDeterministic());
+      assertFalse(JsonSchemaDataGenerator.verbose().isDeterministic());
+      assertFalse(JsonSchemaDataGenerator.skeleton()
+          .withContainsOption(ContainsOption.DISTRIBUTE).isDeterministic());
+    }
+
+    @Test
+    void generate_deterministic_memoizesDocumentPerCompiledSchema() throws Exception {
+      var minimal = JsonSchemaDataGenerator.minimal()
+          .withFormattedStringOption(FormattedStringOption.NULL);
+      CompiledJsonSchema compiled = minimal.compile(SCHEMA);
+
+      JsonNode first = minimal.generate(compiled);
+      JsonNode memoized = compiled.getGeneratedDocument();
+      JsonNode second = minimal.generate(compiled);
+
+      assertNotNull(memoized);
+      assertSame(memoized, compiled.getGeneratedDocument());
+      assertEquals(first, second);
+      assertEquals(7, second.get("id").asInt());
+      assertTrue(second.get("name").isNull());
+    }
+
+    @Test
+    void generate_deterministic_returnsIndependentCopies() throws Exception {
+      var skeleton = JsonSchemaDataGenerator.skeleton();
+      CompiledJsonSchema compiled = skeleton.compile(SCHEMA);
+
+      JsonNode first = skeleton.generate(compiled);
+      ((ObjectNode) first).put("id", 99);
+      JsonNode second = skeleton.generate(compiled);
+
+      assertNotSame(first, second);
+      assertTrue(second.get("id").isNull());
+      assertEquals(1, second.get("tags").size());
+    }
+
+    @Test
+    void generate_randomOptions_doesNotMemoize() throws Exception {
+      CompiledJsonSchema compiled = generator.compile(SCHEMA);
+
+      generator.generate(compiled);
+
+      assertNull(compiled.getGeneratedDocument());
+    }
+
+    @Test
+    void generate_maxPropertiesChoosingOptionals_doesNotMemoize() throws Exception {
+      var skeleton = JsonSchemaDataGenerator.skeleton();
+      CompiledJsonSchema compiled = skeleton.compile("""
+          {
+            "type": "object",
+            "maxProperties": 1,
+            "properties": { "a": { "type": "string" }, "b": { "type": "string" } }
+          }
+          """);
+
+      assertEquals(1, skeleton.generate(compiled).size());
+      assertNull(compiled.getGeneratedDocument());
+    }
+
+    @Test
+    void generate_lazyRefResolution_doesNotMemoize() throws Exception {
+      var skeleton = JsonSchemaDataGenerator.skeleton()
+          .withRefResolutionOption(RefResolutionOption.LAZY);
+      CompiledJsonSchema compiled = skeleton.compile(SCHEMA);
+
+      skeleton.generate(compiled);
+
+      assertNull(compiled.getGeneratedDocument());
+    }
+  }
+
+  @Nested
+  class DeepSchemaTests {
+
+    private String nestedSchema(int depth) {
+      StringBuilder schema = new StringBuilder();
+      for (int i = 0; i < depth; i++) {
+        schema.append("{\"type\":\"object\",\"title\":\"level").append(i)
+            .append("\",\"required\":[\"child\"],\"properties\":{\"child\":");
+      }
+      schema.append("{\"type\":\"string\"}");
+      schema.append("}}".repeat(depth));
+      return schema.toString();
+    }
+
+    @Test
+    void generate_deepSchema_doesNotNeedDeepThreadStack() throws Exception {
+      var nativeGenerator = generator.withRefResolutionOption(RefResolutionOption.NATIVE);
+      CompiledJsonSchema compiled = nativeGenerator.compile(nestedSchema(240));
+      AtomicReference<Object> outcome = new AtomicReference<>();
+
+      Thread thread = new Thread(null, () -> {
+        try {
+          outcome.set(nativeGenerator.generate(compiled));
+        } catch (Throwable e) {
+          outcome.set(e);
+        }
+      }, "small-stack", 64 * 1024);
+      thread.start();
+      thread.join();
+
+      JsonNode node = assertInstanceOf(JsonNode.class, outcome.get());
+      for (int i = 0; i < 240; i++) {
+        node = node.get("child");
+      }
+      assertTrue(node.isString());
+    }
+
+    @Test
+    void generate_nestedContainers_keepPropertyAndItemOrder() throws Exception {
+      var skeleton = JsonSchemaDataGenerator.skeleton()
+          .withAdditionalPropertiesOption(AdditionalPropertiesOption.GENERATE_ONE);
+      JsonNode result = skeleton.generate("""
+          {
+            "type": "object",
+            "required": ["a", "b"],
+            "properties": {
+              "a": {
+                "type": "array",
+                "prefixItems": [{ "const": 1 }, { "type": "array", "items": [{ "const": 2 }] }],
+                "items": { "const": 3 },
+                "minItems": 3
+              },
+              "b": { "anyOf": [{ "type": "object", "properties": { "c": { "const": 4 } } }] }
+            },
+            "additionalProperties": { "const": 5 }
+          }
+          """);
+
+      assertEquals("{\"a\":[1,[2],3],\"b\":{\"c\":4},\"additional_0\":5}",
+          result.toString());
+    }
+  }
+
+  @Nested
+  class GenerationBudgetTests {
+
+    private static final String TREE = """
+        {
+          "type": "object",
+          "title": "Tree",
+          "required": ["value"],
+          "properties": {
+            "value": { "type": "integer", "minimum": 1 },
+            "children": { "type": "array", "minItems": 1, "maxItems": 8, "items": { "$ref": "#" } }
+          }
+        }
+        """;
+
+    private long countNodes(JsonNode node) {
+      long count = 1;
+      for (JsonNode child : node) {
+        count += countNodes(child);
+      }
+      return count;
+    }
+
+    @Test
+    void generateWithReport_unlimited_countsWholeDocument() throws Exception {
+      var skeleton = JsonSchemaDataGenerator.skeleton();
+      GenerationReport report = skeleton.generateWithReport(skeleton.compile(TREE));
+
+      assertFalse(report.isTruncated());
+      assertEquals(countNodes(report.document()), report.nodes());
+      // Separators after the last field or item are counted too
+      int serialized = report.document().toString().length();
+      assertTrue(report.estimatedBytes() >= serialized);
+      assertTrue(report.estimatedBytes() <= serialized + report.nodes());
+    }
+
+    @Test
+    void generate_nodeBudget_capsRecursiveDocument() throws Exception {
+      // Unlimited, such a document averages millions of nodes
+      var verbose = JsonSchemaDataGenerator.verbose()
+          .withRecursionDepthOption(RecursionDepthOption.VERY_DEEP)
+          .withRefResolutionOption(RefResolutionOption.LAZY)
+          .withGenerationBudget(GenerationBudget.ofNodes(200));
+      CompiledJsonSchema compiled = verbose.compile(TREE);
+
+      GenerationReport report = verbose.generateWithReport(compiled);
+
+      assertTrue(report.isTruncated());
+      assertEquals(countNodes(report.document()), report.nodes());
+      // Required values and minItems may overshoot the budget by one subtree per level
+      assertTrue(report.nodes() < 400, () -> report.nodes() + " nodes");
+      assertTrue(countNodes(verbose.generate(compiled)) < 400);
+    }
+
+    @Test
+    void generate_exhaustedBudget_keepsRequiredPropertiesAndMinItems() throws Exception {
+      var generator = JsonSchemaDataGenerator.normal()
+          .withPrimitiveArrayOption(PrimitiveArrayOption.RANDOM)
+          .withGenerationBudget(GenerationBudget.ofNodes(1));
+      String schema = """
+          {
+            "type": "object",
+            "required": ["id", "tags"],
+            "properties": {
+              "id": { "type": "integer", "minimum": 1, "maximum": 9 },
+              "tags": { "type": "array", "minItems": 2, "items": { "type": "string" } },
+              "extra": { "type": "string" }
+            }
+          }
+          """;
+
+      GenerationReport report = generator.generateWithReport(generator.compile(schema));
+
+      assertTrue(report.document().has("id"));
+      assertFalse(report.document().has("extra"));
+      assertEquals(2, report.document().get("tags").size());
+      assertTrue(report.isTruncated());
+    }
+
+    @Test
+    void generate_budget_isSharedBySiblings() throws Exception {
+      var skeleton = JsonSchemaDataGenerator.skeleton()
+          .withGenerationBudget(GenerationBudget.ofNodes(7));
+      String group = """
+          { "type": "object", "properties": { "p1": {}, "p2": {}, "p3": {}, "p4": {} } }
+          """;
+      String schema = "{ \"type\": \"object\", \"properties\": { \"a\": " + group
+          + ", \"b\": " + group + " } }";
+
+      JsonNode result = skeleton.generate(skeleton.compile(schema));
+
+      assertFalse(result.get("a").isEmpty());
+      assertFalse(result.get("b").isEmpty());
+      assertTrue(result.get("a").size() < 4);
+    }
+
+    @Test
+    void generate_byteBudget_capsSerializedSize() throws Exception {
+      var generator = JsonSchemaDataGenerator.normal()
+          .withPrimitiveArrayOption(PrimitiveArrayOption.RANDOM)
+          .withGenerationBudget(GenerationBudget.ofBytes(40));
+      String schema = """
+          {
+            "type": "array",
+            "minItems": 5,
+            "items": { "type": "string", "enum": ["abcdefghijklmnopqrstuvwxyz"] }
+          }
+          """;
+      CompiledJsonSchema compiled = generator.compile(schema);
+
+      for (int i = 0; i < 10; i++) {
+        GenerationReport report = generator.generateWithReport(compiled);
+
+        // Each item takes 29 bytes, but minItems is kept
+        assertEquals(5, report.document().size());
+        assertEquals(report.document().toString().length() + 1, report.estimatedBytes());
+      }
+    }
+
+    @Test
+    void generate_truncatedDocument_isNotMemoized() throws Exception {
+      var skeleton = JsonSchemaDataGenerator.skeleton()
+          .withGenerationBudget(GenerationBudget.ofNodes(1));
+      CompiledJsonSchema compiled = skeleton.compile("""
+          { "type": "object", "properties": { "a": { "type": "string" }, "b": {} } }
+          """);
+
+      assertTrue(skeleton.generateWithReport(compiled).isTruncated());
+      assertNull(compiled.getGeneratedDocument());
+    }
+
+    @Test
+    void budget_rejectsInvalidLimits() {
+      assertThrows(IllegalArgumentException.class, () -> GenerationBudget.ofNodes(0));
+      assertThrows(IllegalArgumentException.class, () -> GenerationBudget.ofBytes(-1));
+      assertThrows(IllegalArgumentException.class,
+          () -> JsonSchemaDataGenerator.normal().withGenerationBudget(null));
+      assertFalse(GenerationBudget.UNLIMITED.isLimited());
+      assertTrue(GenerationBudget.ofBytes(1024).isLimited());
+    }
+  }
+
+  @Nested
+  class TimeoutTests {
+
+    // Unlimited, a document of this tree averages millions of nodes
+    private static final String TREE = """
+        {
+          "type": "object",
+          "title": "Tree",
+          "properties": {
+            "value": { "type": "integer" },
+            "children": { "type": "array", "minItems": 1, "maxItems": 8, "items": { "$ref": "#" } }
+          }
+        }
+        """;
+
+    private JsonSchemaDataGenerator explosive() {
+      return JsonSchemaDataGenerator.verbose()
+          .withRecursionDepthOption(RecursionDepthOption.VERY_DEEP)
+          .withRefResolutionOption(RefResolutionOption.LAZY);
+    }
+
+    @Test
+    void generate_timeout_completesSmallDocument() throws Exception {
+      CompiledJsonSchema compiled = generator.compile("""
+          { "type": "object", "properties": { "id": { "type": "integer" } } }
+          """);
+
+      JsonNode result = generator.generate(compiled, Duration.ofSeconds(10));
+
+      assertTrue(result.has("id"));
+    }
+
+    @Test
+    void generate_timeout_throwsOnceDeadlinePasses() throws Exception {
+      var verbose = explosive();
+      CompiledJsonSchema compiled = verbose.compile(TREE);
+
+      long start = System.nanoTime();
+      assertThrows(TimeoutException.class,
+          () -> verbose.generate(compiled, Duration.ofMillis(50)));
+      assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+    }
+
+    @Test
+    void generate_zeroTimeout_throwsImmediately() throws Exception {
+      CompiledJsonSchema compiled = generator.compile("{ \"type\": \"string\" }");
+
+      assertThrows(TimeoutException.class,
+          () -> generator.generateWithReport(compiled, Duration.ZERO));
+    }
+
+    @Test
+    void generate_interruptedThread_throwsInterruptedException() throws Exception {
+      var verbose = explosive();
+      CompiledJsonSchema compiled = verbose.compile(TREE);
+
+      Thread.currentThread().interrupt();
+      assertThrows(InterruptedException.class,
+          () -> verbose.generate(compiled, Duration.ofDays(365)));
+      assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    void generate_interruptFromAnotherThread_stopsGeneration() throws Exception {
+      var verbose = explosive();
+      CompiledJsonSchema compiled = verbose.compile(TREE);
+      AtomicReference<Object> outcome = new AtomicReference<>();
+
+      Thread thread = new Thread(() -> {
+        try {
+          outcome.set(verbose.generate(compiled, ChronoUnit.FOREVER.getDuration()));
+        } catch (Exception e) {
+          outcome.set(e);
+        }
+      });
+      thread.start();
+      Thread.sleep(50);
+      thread.interrupt();
+      thread.join(5000);
+
+      assertFalse(thread.isAlive());
+      assertInstanceOf(InterruptedException.class, outcome.get());
+    }
+
+    @Test
+    void generate_schemaStringWithTimeout_compilesAndGenerates() throws Exception {
+      var verbose = explosive();
+
+      JsonNode result = generator.generate("""
+          { "type": "object", "properties": { "id": { "type": "integer" } } }
+          """, Duration.ofSeconds(10));
+
+      assertTrue(result.has("id"));
+      assertThrows(TimeoutException.class, () -> verbose.generate(TREE, Duration.ofMillis(50)));
+    }
+
+    @Test
+    void generate_schemaFileWithTimeout_throwsOnceDeadlinePasses(@TempDir Path tempDir)
+        throws Exception {
+      File schemaFile = tempDir.resolve("tree.json").toFile();
+      Files.writeString(schemaFile.toPath(), TREE);
+
+      assertThrows(TimeoutException.class,
+          () -> explosive().generate(schemaFile, Duration.ofMillis(50)));
+      assertTrue(generator.generate(schemaFile, Duration.ofSeconds(10)).isObject());
+    }
+
+    @Test
+    void generate_uncompiledSchemaWithInvalidTimeout_failsBeforeCompiling() {
+      assertThrows(IllegalArgumentException.class,
+          () -> generator.generate("{ invalid", Duration.ofMillis(-1)));
+      assertThrows(IllegalArgumentException.class,
+          () -> generator.generate(new File("missing.json"), (Duration) null));
+    }
+
+    @Test
+    void generate_invalidTimeout_throwsIllegalArgumentException() throws Exception {
+      CompiledJsonSchema compiled = generator.compile("{ \"type\": \"string\" }");
+
+      assertThrows(IllegalArgumentException.class, () -> generator.generate(compiled, null));
+      assertThrows(IllegalArgumentException.class,
+          () -> generator.generate(compiled, Duration.ofMillis(-1)));
+    }
+  }
+
+
+  @Nested
+  class DocumentArenaTests {
+
+    private static final String ORDER = """
+        {
+          "type": "object",
+          "required": ["id", "customer", "lines", "meta"],
+          "properties": {
+            "id": { "type": "integer", "minimum": 1, "maximum": 1000 },
+            "customer": {
+              "type": "object",
+              "required": ["name"],
+              "properties": { "name": { "type": "string" } }
+            },
+            "lines": {
+              "type": "array",
+              "minItems": 0,
+              "maxItems": 5,
+              "items": { "type": "integer", "minimum": 1, "maximum": 9 }
+            },
+            "meta": {
+              "type": "object",
+              "properties": { "version": { "const": 2 }, "source": { "const": "load" } }
+            }
+          }
+        }
+        """;
+
+    private final JsonSchemaDataGenerator random =
+        JsonSchemaDataGenerator.normal().withPrimitiveArrayOption(PrimitiveArrayOption.RANDOM);
+
+    @Test
+    void next_overwritesContainersOfPreviousDocument() throws Exception {
+      DocumentArena arena = random.newArena(random.compile(ORDER));
+
+      JsonNode first = arena.next();
+      JsonNode customer = first.get("customer");
+      JsonNode lines = first.get("lines");
+      JsonNode second = arena.next();
+
+      assertSame(first, second);
+      assertSame(customer, second.get("customer"));
+      assertSame(lines, second.get("lines"));
+    }
+
+    @Test
+    void next_growsAndTrimsArraysToEachDocument() throws Exception {
+      DocumentArena arena = random.newArena(random.compile(ORDER));
+      Set<Integer> sizes = new HashSet<>();
+
+      for (int i = 0; i < 200; i++) {
+        JsonNode lines = arena.next().get("lines");
+        sizes.add(lines.size());
+        assertTrue(lines.size() <= 5);
+        lines.forEach(line -> assertTrue(line.asInt() >= 1 && line.asInt() <= 9, line::toString));
+      }
+
+      assertTrue(sizes.size() > 2, sizes::toString);
+    }
+
+    @Test
+    void next_reshapesObjectsWhosePropertiesChange() throws Exception {
+      var generator = JsonSchemaDataGenerator.normal();
+      DocumentArena arena = generator.newArena(generator.compile("""
+          {
+            "type": "object",
+            "maxProperties": 2,
+            "properties": {
+              "a": { "type": "object", "properties": { "x": { "type": "string" } } },
+              "b": { "type": "array", "items": { "type": "string" } },
+              "c": { "type": "string" }
+            }
+          }
+          """));
+      Set<Set<String>> shapes = new HashSet<>();
+
+      for (int i = 0; i < 100; i++) {
+        JsonNode document = arena.next();
+        assertEquals(2, document.size());
+        if (document.has("a")) {
+          assertTrue(document.get("a").get("x").isString());
+        }
+        if (document.has("b")) {
+          assertTrue(document.get("b").get(0).isString());
+        }
+        shapes.add(new HashSet<>(document.propertyNames()));
+      }
+
+      assertEquals(3, shapes.size());
+    }
+
+    @Test
+    void next_branchesOfDifferentTypesReplaceEachOther() throws Exception {
+      var generator = JsonSchemaDataGenerator.normal().withAnyOfOption(AnyOfOption.RANDOM);
+      DocumentArena arena = generator.newArena(generator.compile("""
+          {
+            "type": "object",
+            "properties": {
+              "value": {
+                "anyOf": [
+                  { "type": "object", "properties": { "k": { "const": 1 } } },
+                  { "type": "array", "minItems": 2, "items": { "const": 2 } },
+                  { "type": "string", "default": "s" }
+                ]
+              }
+            }
+          }
+          """));
+
+      for (int i = 0; i < 100; i++) {
+        JsonNode value = arena.next().get("value");
+        switch (value.getNodeType()) {
+          case OBJECT -> assertEquals(1, value.get("k").asInt());
+          case ARRAY -> assertEquals(List.of(2, 2), List.of(value.get(0).asInt(),
+              value.get(1).asInt()));
+          default -> assertEquals("s", value.asString());
+        }
+        assertTrue(value.size() <= 2);
+      }
+    }
+
+    @Test
+    void next_withBudget_dropsPropertiesTruncatedFromPreviousDocument() throws Exception {
+      var generator = JsonSchemaDataGenerator.normal().withAnyOfOption(AnyOfOption.RANDOM)
+          .withGenerationBudget(GenerationBudget.ofNodes(8));
+      DocumentArena arena = generator.newArena(generator.compile("""
+          {
+            "type": "object",
+            "required": ["value"],
+            "properties": {
+              "value": {
+                "anyOf": [
+                  { "const": 1 },
+                  {
+                    "type": "object",
+                    "required": ["a", "b", "c", "d", "e", "f", "g", "h", "i", "j"],
+                    "properties": {
+                      "a": { "const": 1 }, "b": { "const": 1 }, "c": { "const": 1 },
+                      "d": { "const": 1 }, "e": { "const": 1 }, "f": { "const": 1 },
+                      "g": { "const": 1 }, "h": { "const": 1 }, "i": { "const": 1 },
+                      "j": { "const": 1 }
+                    }
+                  }
+                ]
+              },
+              "x": { "const": "x" },
+              "y": { "const": "y" }
+            }
+          }
+          """));
+      Set<Set<String>> shapes = new HashSet<>();
+
+      for (int i = 0; i < 100; i++) {
+        JsonNode document = arena.next();
+        Set<String> names = new HashSet<>(document.propertyNames());
+        assertEquals(document.get("value").isObject() ? Set.of("value")
+            : Set.of("value", "x", "y"), names);
+        shapes.add(names);
+      }
+
+      assertEquals(2, shapes.size());
+    }
+
+    @Test
+    void next_copiesMemoizedSubtreesWithoutChangingThem() throws Exception {
+      CompiledJsonSchema compiled = random.compile(ORDER);
+      DocumentArena arena = random.newArena(compiled);
+      JsonNode meta = random.generate(compiled).get("meta");
+      JsonNode memoized = compiled.getNodeIndex().get(compiled.getRootSchema()
+          .get("properties").get("meta")).value();
+
+      for (int i = 0; i < 20; i++) {
+        JsonNode placed = arena.next().get("meta");
+        assertNotSame(memoized, placed);
+        assertEquals(meta, placed);
+        ((ObjectNode) placed).put("version", i);
+      }
+
+      assertEquals(meta, memoized);
+      assertEquals(meta, arena.next().get("meta"));
+      assertEquals(meta, random.generate(compiled).get("meta"));
+    }
+
+    @Test
+    void next_deterministicOptions_returnMemoizedDocument() throws Exception {
+      var skeleton = JsonSchemaDataGenerator.skeleton();
+      CompiledJsonSchema compiled = skeleton.compile(ORDER);
+      DocumentArena arena = skeleton.newArena(compiled);
+
+      JsonNode expected = skeleton.generate(compiled);
+
+      JsonNode first = arena.next();
+      assertEquals(expected, first);
+      assertSame(first, arena.next());
+      assertNotSame(compiled.getGeneratedDocument(), first);
+      assertEquals(expected, skeleton.generate(compiled));
+    }
+
+    @Test
+    void next_withTimeout_generatesWithinDeadline() throws Exception {
+      DocumentArena arena = random.newArena(random.compile(ORDER));
+
+      assertTrue(arena.next(Duration.ofSeconds(10)).has("lines"));
+      assertThrows(IllegalArgumentException.class, () -> arena.next(null));
+    }
+
+    @Test
+    void newArena_foreignCompiledSchema_throwsIllegalArgumentException() throws Exception {
+      CompiledJsonSchema compiled = JsonSchemaDataGenerator.minimal().compile(ORDER);
+
+      assertThrows(IllegalArgumentException.class, () -> random.newArena(compiled));
+    }
+  }
+
+
+  @Nested
+  class BatchGenerationTests {
+
+    private static final String EVENT = """
+        {
+          "type": "object",
+          "required": ["id", "kind", "score"],
+          "properties": {
+            "active": { "type": "boolean" },
+            "id": { "type": "integer", "minimum": 10, "maximum": 40, "multipleOf": 5 },
+            "kind": { "enum": ["click", "view", "buy"] },
+            "label": { "type": "string", "minLength": 2, "maxLength": 4 },
+            "score": { "type": "number", "minimum": 0, "maximum": 1 },
+            "source": { "const": "fixture" },
+            "tags": { "type": "array", "minItems": 1, "items": { "type": "string" } },
+            "geo": {
+              "type": "object",
+              "required": ["lat"],
+              "properties": { "lat": { "type": "number", "minimum": -90, "maximum": 90 } }
+            }
+          }
+        }
+        """;
+
+    private final JsonSchemaDataGenerator random = JsonSchemaDataGenerator.normal()
+        .withEnumOption(EnumOption.RANDOM).withBooleanOption(BooleanOption.RANDOM);
+
+    @Test
+    void generateBatch_objectSchema_generatesColumnsInRowOrder() throws Exception {
+      ColumnarBatch batch = random.generateBatch(random.compile(EVENT), 50);
+
+      assertTrue(batch.isColumnar());
+      assertEquals(50, batch.size());
+      assertEquals(List.of("id", "kind", "score", "active", "label", "source", "tags", "geo"),
+          batch.getColumnNames());
+      for (JsonNode row : batch.rows()) {
+        assertEquals(batch.getColumnNames(), List.copyOf(row.propertyNames()));
+        int id = row.get("id").asInt();
+        assertTrue(id >= 10 && id <= 40 && id % 5 == 0, row::toString);
+        assertTrue(List.of("click", "view", "buy").contains(row.get("kind").asString()));
+        assertTrue(row.get("active").isBoolean());
+        int length = row.get("label").asString().length();
+        assertTrue(length >= 2 && length <= 4, row::toString);
+        assertEquals("fixture", row.get("source").asString());
+        assertTrue(row.get("tags").get(0).isString());
+        assertTrue(Math.abs(row.get("geo").get("lat").asDouble()) <= 90);
+      }
+    }
+
+    @Test
+    void generateBatch_randomColumns_coverTheirValues() throws Exception {
+      ColumnarBatch batch = random.generateBatch(random.compile(EVENT), 500);
+      Set<Integer> ids = new HashSet<>();
+      Set<String> kinds = new HashSet<>();
+      Set<Boolean> flags = new HashSet<>();
+
+      for (int row = 0; row < batch.size(); row++) {
+        ids.add(batch.get(row, "id").asInt());
+        kinds.add(batch.get(row, "kind").asString());
+        flags.add(batch.get(row, "active").asBoolean());
+      }
+
+      assertEquals(Set.of(10, 15, 20, 25, 30, 35, 40), ids);
+      assertEquals(Set.of("click", "view", "buy"), kinds);
+      assertEquals(Set.of(true, false), flags);
+    }
+
+    @Test
+    void generateBatch_matchesGenerateNodeForNode() throws Exception {
+      var skeleton = JsonSchemaDataGenerator.skeleton().withNumberOption(NumberOption.GENERATED)
+          .withConstrainedNumberOption(ConstrainedNumberOption.MIDPOINT);
+      CompiledJsonSchema compiled = skeleton.compile(EVENT);
+
+      ColumnarBatch batch = skeleton.generateBatch(compiled, 3);
+
+      assertEquals(skeleton.generate(compiled), batch.row(2));
+      assertEquals(batch.row(0), batch.row(1));
+    }
+
+    @Test
+    void generateBatch_recursiveSchema_keepsRecursionDepth() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "title": "Node",
+            "required": ["child"],
+            "properties": {
+              "value": { "const": 1 },
+              "child": {
+                "type": "object",
+                "title": "Node",
+                "properties": {
+                  "child": {
+                    "type": "object",
+                    "title": "Node",
+                    "properties": { "child": { "const": 2 } }
+                  }
+                }
+              }
+            }
+          }
+          """;
+      for (RecursionDepthOption depth : RecursionDepthOption.values()) {
+        var generator = JsonSchemaDataGenerator.normal().withRecursionDepthOption(depth);
+        CompiledJsonSchema compiled = generator.compile(schema);
+
+        assertEquals(generator.generate(compiled),
+            generator.generateBatch(compiled, 1).row(0), depth.name());
+      }
+    }
+
+    @Test
+    void generateBatch_randomPropertySubset_generatesDocumentByDocument() throws Exception {
+      var generator = JsonSchemaDataGenerator.normal();
+      ColumnarBatch batch = generator.generateBatch(generator.compile("""
+          {
+            "type": "object",
+            "maxProperties": 1,
+            "properties": { "a": { "const": 1 }, "b": { "const": 2 } }
+          }
+          """), 20);
+
+      assertFalse(batch.isColumnar());
+      assertTrue(batch.getColumnNames().isEmpty());
+      for (JsonNode row : batch.rows()) {
+        assertEquals(1, row.size());
+      }
+      assertNotNull(batch.get(0, batch.row(0).propertyNames().iterator().next()));
+    }
+
+    @Test
+    void generateBatch_nonObjectRootOrBudget_generatesDocumentByDocument() throws Exception {
+      var generator = JsonSchemaDataGenerator.normal();
+      CompiledJsonSchema array = generator.compile(
+          "{ \"type\": \"array\", \"minItems\": 2, \"items\": { \"type\": \"integer\" } }");
+      var budgeted = generator.withGenerationBudget(GenerationBudget.ofNodes(3));
+
+      assertFalse(generator.generateBatch(array, 2).isColumnar());
+      assertEquals(2, generator.generateBatch(array, 2).row(1).size());
+      assertFalse(budgeted.generateBatch(budgeted.compile(EVENT), 2).isColumnar());
+    }
+
+    @Test
+    void generateBatch_invalidArguments_throw() throws Exception {
+      CompiledJsonSchema compiled = random.compile(EVENT);
+      ColumnarBatch batch = random.generateBatch(compiled, 2);
+
+      assertThrows(IllegalArgumentException.class, () -> random.generateBatch(compiled, -1));
+      assertThrows(IllegalArgumentException.class,
+          () -> JsonSchemaDataGenerator.minimal().generateBatch(compiled, 1));
+      assertThrows(IndexOutOfBoundsException.class, () -> batch.row(2));
+      assertNull(batch.get(0, "missing"));
+      assertEquals(0, random.generateBatch(compiled, 0).rows().size());
+    }
+  }
+
 }
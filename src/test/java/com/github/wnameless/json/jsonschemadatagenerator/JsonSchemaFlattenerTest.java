@@ -5,12 +5,14 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import io.zenwave360.jsonrefparser.$RefParser;
+import tools.jackson.databind.JsonNode;
 
 class JsonSchemaFlattenerTest {
 
@@ -504,4 +506,244 @@ class JsonSchemaFlattenerTest {
       assertTrue(required.contains("name"));
     }
   }
+
+  @Nested
+  class ParallelFlattenTests {
+
+    @TempDir
+    Path tempDir;
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> child(Map<String, Object> schema, String... keys) {
+      Map<String, Object> current = schema;
+      for (String key : keys) {
+        current = (Map<String, Object>) current.get(key);
+      }
+      return current;
+    }
+
+    private File writeSchemas() throws IOException {
+      Files.createDirectories(tempDir.resolve("common"));
+      Files.writeString(tempDir.resolve("common/address.json"), """
+          {
+            "type": "object",
+            "properties": {
+              "city": { "type": "string" },
+              "geo": { "$ref": "geo.json" }
+            },
+            "required": ["city"]
+          }
+          """);
+      Files.writeString(tempDir.resolve("common/geo.json"), """
+          { "type": "object", "properties": { "lat": { "type": "number" } } }
+          """);
+      Path root = tempDir.resolve("root.json");
+      Files.writeString(root, """
+          {
+            "type": "object",
+            "properties": {
+              "home": { "$ref": "common/address.json" },
+              "work": { "$ref": "common/address.json" },
+              "named": {
+                "allOf": [
+                  { "$ref": "common/address.json" },
+                  { "properties": { "name": { "type": "string" } }, "required": ["name"] }
+                ]
+              },
+              "tree": { "$ref": "#/definitions/node" },
+              "missing": { "$ref": "missing.json" }
+            },
+            "definitions": {
+              "node": {
+                "type": "object",
+                "properties": { "child": { "$ref": "#/definitions/node" } }
+              }
+            }
+          }
+          """);
+      return root.toFile();
+    }
+
+    @Test
+    void file_resolvesExternalReferences() throws IOException {
+      Map<String, Object> result =
+          JsonSchemaFlattener.flattenJsonSchema(writeSchemas(), AllOfOption.SKIP, 4);
+
+      assertEquals("number",
+          child(result, "properties", "home", "properties", "geo", "properties", "lat")
+              .get("type"));
+    }
+
+    @Test
+    void file_sharesSchemasReferencedMoreThanOnce() throws IOException {
+      Map<String, Object> result =
+          JsonSchemaFlattener.flattenJsonSchema(writeSchemas(), AllOfOption.SKIP, 4);
+
+      assertSame(child(result, "properties", "home"), child(result, "properties", "work"));
+    }
+
+    @Test
+    void file_circularReferencesBecomeCycles() throws IOException {
+      Map<String, Object> result =
+          JsonSchemaFlattener.flattenJsonSchema(writeSchemas(), AllOfOption.SKIP, 4);
+
+      Map<String, Object> tree = child(result, "properties", "tree");
+      assertSame(tree, child(tree, "properties", "child"));
+    }
+
+    @Test
+    void file_missingReferencesAreKept() throws IOException {
+      Map<String, Object> result =
+          JsonSchemaFlattener.flattenJsonSchema(writeSchemas(), AllOfOption.SKIP, 4);
+
+      assertEquals("missing.json", child(result, "properties", "missing").get("$ref"));
+    }
+
+    @Test
+    void mergeOption_mergesAllOf() throws IOException {
+      Map<String, Object> result =
+          JsonSchemaFlattener.flattenJsonSchema(writeSchemas(), AllOfOption.MERGE, 4);
+
+      Map<String, Object> named = child(result, "properties", "named");
+      assertFalse(named.containsKey("allOf"));
+      assertEquals("object", named.get("type"));
+      assertTrue(child(named, "properties").containsKey("city"));
+      assertTrue(child(named, "properties").containsKey("name"));
+      assertEquals(List.of("city", "name"), named.get("required"));
+      // The shared address schema itself is left untouched
+      assertFalse(child(result, "properties", "home", "properties").containsKey("name"));
+    }
+
+    @Test
+    void string_resolvesLocalReferences() throws IOException {
+      Map<String, Object> result = JsonSchemaFlattener.flattenJsonSchema("""
+          {
+            "properties": { "a": { "$ref": "#/definitions/a" } },
+            "definitions": { "a": { "type": "integer" } }
+          }
+          """, AllOfOption.MERGE, 2);
+
+      assertEquals("integer", child(result, "properties", "a").get("type"));
+    }
+  }
+
+  @Nested
+  class FlattenToJsonNodeTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void string_matchesConvertedMap() throws IOException {
+      String schema = """
+          {
+            "type": "object",
+            "properties": {
+              "a": { "$ref": "#/definitions/a" },
+              "b": { "type": "array", "items": { "$ref": "#/definitions/a" }, "minItems": 2 }
+            },
+            "required": ["a"],
+            "definitions": { "a": { "type": "integer", "minimum": 1, "enum": [1, 2] } }
+          }
+          """;
+
+      JsonNode tree = JsonSchemaFlattener.flattenToJsonNode(schema, AllOfOption.MERGE);
+
+      assertEquals(ObjectMapperFactory.getObjectMapper()
+          .valueToTree(JsonSchemaFlattener.flattenJsonSchema(schema, AllOfOption.MERGE)), tree);
+    }
+
+    @Test
+    void circularReference_becomesNull() throws IOException {
+      JsonNode tree = JsonSchemaFlattener.flattenToJsonNode("""
+          {
+            "type": "object",
+            "properties": { "child": { "$ref": "#" } }
+          }
+          """, AllOfOption.MERGE);
+
+      assertTrue(tree.get("properties").get("child").isNull());
+    }
+
+    @Test
+    void mutualReferences_matchMapConversionInAnyPropertyOrder() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "properties": {
+              "x": { "$ref": "#/definitions/B" },
+              "y": { "$ref": "#/definitions/A" }
+            },
+            "definitions": {
+              "A": {
+                "type": "object",
+                "title": "A",
+                "properties": { "b": { "$ref": "#/definitions/B" } }
+              },
+              "B": {
+                "type": "object",
+                "title": "B",
+                "properties": { "a": { "$ref": "#/definitions/A" } }
+              }
+            }
+          }
+          """;
+
+      JsonNode tree = JsonSchemaFlattener.flattenToJsonNode(schema, AllOfOption.MERGE);
+
+      assertTrue(tree.at("/properties/y/properties/b/properties/a").isNull());
+      assertTrue(tree.at("/properties/x/properties/a/properties/b").isNull());
+      // EAGER generation converts the $RefParser map, whose cycles become null the same way
+      JsonNode eager = JsonSchemaDataGenerator.normal().compile(schema).getRootSchema();
+      JsonNode nativeTree = JsonSchemaDataGenerator.normal()
+          .withRefResolutionOption(RefResolutionOption.NATIVE).compile(schema).getRootSchema();
+      assertEquals(eager, nativeTree);
+    }
+
+    @Test
+    void mergeOption_mergesAllOf() throws IOException {
+      JsonNode tree = JsonSchemaFlattener.flattenToJsonNode("""
+          {
+            "allOf": [
+              { "type": "object", "properties": { "a": { "type": "string" } }, "required": ["a"] },
+              { "properties": { "b": { "type": "integer" } }, "required": ["a", "b"] }
+            ]
+          }
+          """, AllOfOption.MERGE);
+
+      assertFalse(tree.has("allOf"));
+      assertEquals("object", tree.get("type").asString());
+      assertTrue(tree.get("properties").has("a"));
+      assertTrue(tree.get("properties").has("b"));
+      assertEquals(2, tree.get("required").size());
+    }
+
+    @Test
+    void skipOption_keepsAllOf() throws IOException {
+      JsonNode tree = JsonSchemaFlattener.flattenToJsonNode("""
+          { "allOf": [{ "type": "object" }] }
+          """, AllOfOption.SKIP);
+
+      assertEquals(1, tree.get("allOf").size());
+    }
+
+    @Test
+    void file_resolvesExternalReferences() throws IOException {
+      Files.writeString(tempDir.resolve("name.json"), """
+          { "type": "string", "minLength": 2 }
+          """);
+      Path root = tempDir.resolve("root.json");
+      Files.writeString(root, """
+          { "type": "object", "properties": { "name": { "$ref": "name.json" } } }
+          """);
+
+      JsonNode tree = JsonSchemaFlattener.flattenToJsonNode(root.toFile(), AllOfOption.MERGE);
+      JsonNode prefetched =
+          JsonSchemaFlattener.flattenToJsonNode(root.toFile(), AllOfOption.MERGE, 2);
+
+      assertEquals(2, tree.get("properties").get("name").get("minLength").asInt());
+      assertEquals(tree, prefetched);
+    }
+  }
+
 }
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -702,6 +704,73 @@ class JsonSchemaPathNavigatorTest {
       // [0] on array with no items/prefixItems
       assertThrows(InvalidJsonPathException.class, () -> navigator.getSchema("$.empty[0]"));
     }
+
+    @Test
+    void repeatedLookup_isServedFromCache() throws Exception {
+      ObjectNode schema = (ObjectNode) ObjectMapperFactory.getObjectMapper().readTree("""
+          {
+            "type": "object",
+            "properties": {
+              "list": { "type": "array", "items": { "title": "Cached" } }
+            }
+          }
+          """);
+      var navigator = JsonSchemaPathNavigator.of(schema);
+
+      assertEquals("Cached", navigator.getSchema("$.list[3]").get("title").asString());
+      // The navigator does not copy the schema, so only a cached lookup misses this change
+      ((ObjectNode) schema.get("properties").get("list")).putObject("items").put("title", "New");
+
+      assertEquals("Cached", navigator.getSchema("$.list[3]").get("title").asString());
+    }
+
+    @Test
+    void indexesPastTuple_shareOneCacheEntry() throws Exception {
+      ObjectNode schema = (ObjectNode) ObjectMapperFactory.getObjectMapper().readTree("""
+          {
+            "type": "object",
+            "properties": {
+              "list": {
+                "type": "array",
+                "prefixItems": [{ "title": "First" }],
+                "items": { "title": "Rest" }
+              }
+            }
+          }
+          """);
+      var navigator = JsonSchemaPathNavigator.of(schema);
+
+      assertEquals("Rest", navigator.getSchema("$.list[1]").get("title").asString());
+      ((ObjectNode) schema.get("properties").get("list")).putObject("items").put("title", "New");
+
+      // Any index past the tuple reuses the entry of the first one
+      assertEquals("Rest", navigator.getSchema("$.list[900000]").get("title").asString());
+      assertEquals("First", navigator.getSchema("$.list[0]").get("title").asString());
+    }
+
+    @Test
+    void undeclaredPropertyNames_shareOneCacheEntry() throws Exception {
+      ObjectNode schema = (ObjectNode) ObjectMapperFactory.getObjectMapper().readTree("""
+          {
+            "type": "object",
+            "properties": {
+              "map": {
+                "type": "object",
+                "properties": { "id": { "title": "Id" } },
+                "additionalProperties": { "title": "Extra" }
+              }
+            }
+          }
+          """);
+      var navigator = JsonSchemaPathNavigator.of(schema);
+
+      assertEquals("Extra", navigator.getSchema("$.map.a").get("title").asString());
+      ((ObjectNode) schema.get("properties").get("map")).putObject("additionalProperties")
+          .put("title", "New");
+
+      assertEquals("Extra", navigator.getSchema("$.map.b").get("title").asString());
+      assertEquals("Id", navigator.getSchema("$.map.id").get("title").asString());
+    }
   }
 
   @Nested
@@ -739,4 +808,435 @@ class JsonSchemaPathNavigatorTest {
     }
   }
 
+  @Nested
+  class PathIteratorTests {
+
+    @Test
+    void paths_enumeratesPropertiesItemsAndTuplePositions() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "properties": {
+              "user": {
+                "type": "object",
+                "properties": {
+                  "name": { "type": "string" }
+                }
+              },
+              "tags": {
+                "type": "array",
+                "items": { "type": "string" }
+              },
+              "point": {
+                "type": "array",
+                "prefixItems": [
+                  { "type": "number" },
+                  { "type": "number" }
+                ]
+              }
+            }
+          }
+          """;
+      var navigator = JsonSchemaPathNavigator.of(schema);
+      List<String> paths =
+          navigator.paths().map(JsonSchemaPathNavigator.SchemaPathEntry::path).toList();
+
+      assertEquals(List.of("$", "$.user", "$.user.name", "$.tags", "$.tags[*]", "$.point",
+          "$.point[0]", "$.point[1]"), paths);
+    }
+
+    @Test
+    void paths_areNavigable() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "properties": {
+              "first-name": { "type": "string", "title": "First" },
+              "orders": {
+                "type": "array",
+                "items": {
+                  "type": "object",
+                  "properties": {
+                    "id": { "type": "integer" }
+                  }
+                }
+              }
+            }
+          }
+          """;
+      var navigator = JsonSchemaPathNavigator.of(schema);
+
+      navigator.paths().forEach(entry -> assertEquals(entry.schema(),
+          navigator.getSchema(entry.path()), entry.path()));
+      assertEquals("First", navigator.getSchema("$['first-name']").get("title").asString());
+    }
+
+    @Test
+    void pathIterator_isLazy() {
+      // Ten self-references expanded ten deep reach about 10^11 paths
+      ObjectNode node = ObjectMapperFactory.getObjectMapper().createObjectNode();
+      ObjectNode properties = node.put("type", "object").putObject("properties");
+      for (int i = 0; i < 10; i++) {
+        properties.set("p" + i, node);
+      }
+      Iterator<JsonSchemaPathNavigator.SchemaPathEntry> iterator =
+          JsonSchemaPathNavigator.of(node).pathIterator(RecursionDepthOption.VERY_DEEP);
+
+      assertEquals("$", iterator.next().path());
+      assertEquals("$.p0", iterator.next().path());
+      assertEquals("$.p0.p0", iterator.next().path());
+      assertTrue(iterator.hasNext());
+      assertEquals(List.of("$", "$.p0", "$.p0.p0", "$.p0.p0.p0"),
+          JsonSchemaPathNavigator.of(node).paths(RecursionDepthOption.VERY_DEEP).limit(4)
+              .map(JsonSchemaPathNavigator.SchemaPathEntry::path).toList());
+    }
+
+    @Test
+    void pathIterator_boundsCyclicSchemas() {
+      ObjectNode node = ObjectMapperFactory.getObjectMapper().createObjectNode();
+      node.put("type", "object");
+      node.putObject("properties").set("child", node);
+
+      var navigator = JsonSchemaPathNavigator.of(node);
+
+      assertEquals(List.of("$"), navigator.paths(RecursionDepthOption.NONE)
+          .map(JsonSchemaPathNavigator.SchemaPathEntry::path).toList());
+      assertEquals(List.of("$", "$.child", "$.child.child", "$.child.child.child"),
+          navigator.paths(RecursionDepthOption.MODERATE)
+              .map(JsonSchemaPathNavigator.SchemaPathEntry::path).toList());
+    }
+  }
+
+  @Nested
+  class CompositionNavigationTests {
+
+    @Test
+    void oneOfBranch_propertyIsFound() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "properties": {
+              "payment": {
+                "oneOf": [
+                  {
+                    "type": "object",
+                    "properties": { "cardNumber": { "type": "string", "title": "Card" } }
+                  },
+                  {
+                    "type": "object",
+                    "properties": { "iban": { "type": "string", "title": "IBAN" } }
+                  }
+                ]
+              }
+            }
+          }
+          """;
+      var navigator = JsonSchemaPathNavigator.of(schema);
+
+      assertEquals("Card", navigator.getSchema("$.payment.cardNumber").get("title").asString());
+      assertEquals("IBAN", navigator.getSchema("$.payment.iban").get("title").asString());
+      // Repeated lookups are served from the memoized branch
+      assertEquals("IBAN", navigator.getSchema("$.payment.iban").get("title").asString());
+    }
+
+    @Test
+    void anyOfBranch_arrayItemsAreFound() throws Exception {
+      String schema = """
+          {
+            "anyOf": [
+              { "type": "string" },
+              { "type": "array", "items": { "type": "integer", "minimum": 1 } }
+            ]
+          }
+          """;
+      var navigator = JsonSchemaPathNavigator.of(schema);
+
+      assertEquals(1, navigator.getSchema("$[*]").get("minimum").asInt());
+      assertEquals(1, navigator.getSchema("$[3]").get("minimum").asInt());
+    }
+
+    @Test
+    void unmergedAllOf_propertyIsFound() throws Exception {
+      String schema = """
+          {
+            "allOf": [
+              { "type": "object", "properties": { "id": { "type": "integer" } } },
+              { "type": "object", "properties": { "name": { "type": "string" } } }
+            ]
+          }
+          """;
+      var navigator = JsonSchemaPathNavigator.of(schema, AllOfOption.SKIP);
+
+      assertEquals("integer", navigator.getSchema("$.id").get("type").asString());
+      assertEquals("string", navigator.getSchema("$.name").get("type").asString());
+    }
+
+    @Test
+    void patternProperties_matchingNameIsFound() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "patternProperties": {
+              "^x_": { "type": "string", "title": "Extension" }
+            },
+            "additionalProperties": { "type": "integer" }
+          }
+          """;
+      var navigator = JsonSchemaPathNavigator.of(schema);
+
+      assertEquals("Extension", navigator.getSchema("$.x_vendor").get("title").asString());
+      assertEquals("integer", navigator.getSchema("$.other").get("type").asString());
+    }
+
+    @Test
+    void additionalPropertiesBoolean_isNotNavigable() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "properties": { "name": { "type": "string" } },
+            "additionalProperties": true
+          }
+          """;
+      var navigator = JsonSchemaPathNavigator.of(schema);
+
+      assertFalse(navigator.hasPath("$.unknown"));
+      // Misses are memoized as well
+      assertFalse(navigator.hasPath("$.unknown"));
+    }
+
+    @Test
+    void cyclicComposition_terminates() {
+      ObjectNode node = ObjectMapperFactory.getObjectMapper().createObjectNode();
+      node.putArray("anyOf").add(node);
+
+      var navigator = JsonSchemaPathNavigator.of(node);
+
+      assertFalse(navigator.hasPath("$.missing"));
+    }
+  }
+
+  @Nested
+  class LazyNavigationTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void lazy_resolvesReferencesAlongThePath() throws IOException {
+      Files.writeString(tempDir.resolve("address.json"), """
+          {
+            "type": "object",
+            "properties": {
+              "street": { "type": "string", "maxLength": 80 }
+            }
+          }
+          """);
+      Files.writeString(tempDir.resolve("unrelated.json"), """
+          { "type": "string" }
+          """);
+      Path schemaPath = tempDir.resolve("customer.json");
+      Files.writeString(schemaPath, """
+          {
+            "type": "object",
+            "properties": {
+              "addresses": {
+                "type": "array",
+                "items": { "$ref": "address.json" }
+              },
+              "other": { "$ref": "unrelated.json" }
+            }
+          }
+          """);
+
+      var resolver = JsonSchemaRefResolver.of(schemaPath.toFile());
+      var navigator = JsonSchemaPathNavigator.of(resolver);
+
+      assertEquals(80, navigator.getSchema("$.addresses[*].street").get("maxLength").asInt());
+      // unrelated.json is never parsed
+      assertEquals(2, resolver.getLoadedDocuments().size());
+    }
+
+    @Test
+    void lazy_pathsOnlyResolveTheEntriesTaken() throws IOException {
+      StringBuilder properties = new StringBuilder();
+      for (int i = 0; i < 5; i++) {
+        Files.writeString(tempDir.resolve("part" + i + ".json"), """
+            { "type": "object", "properties": { "value": { "type": "integer" } } }
+            """);
+        properties.append(i == 0 ? "" : ",")
+            .append("\"part%d\": { \"$ref\": \"part%d.json\" }".formatted(i, i));
+      }
+      Path schemaPath = tempDir.resolve("parts.json");
+      Files.writeString(schemaPath,
+          "{ \"type\": \"object\", \"properties\": { " + properties + " } }");
+
+      var resolver = JsonSchemaRefResolver.of(schemaPath.toFile());
+      var navigator = JsonSchemaPathNavigator.of(resolver);
+
+      assertEquals(List.of("$", "$.part0", "$.part0.value"), navigator.paths().limit(3)
+          .map(JsonSchemaPathNavigator.SchemaPathEntry::path).toList());
+      // Only the document of the first property has been parsed
+      assertEquals(2, resolver.getLoadedDocuments().size());
+
+      assertEquals(11, navigator.paths().count());
+      assertEquals(6, resolver.getLoadedDocuments().size());
+    }
+
+    @Test
+    void lazy_returnsResolvedTarget() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "properties": {
+              "name": { "$ref": "#/$defs/name" }
+            },
+            "$defs": {
+              "name": { "type": "string", "title": "Name" }
+            }
+          }
+          """;
+      var navigator = JsonSchemaPathNavigator.lazy(schema);
+
+      assertEquals("Name", navigator.getSchema("$.name").get("title").asString());
+    }
+
+    @Test
+    void lazy_pathsOfRecursiveSchema_areBounded() throws Exception {
+      String schema = """
+          {
+            "$ref": "#/$defs/node",
+            "$defs": {
+              "node": {
+                "type": "object",
+                "properties": {
+                  "children": { "type": "array", "items": { "$ref": "#/$defs/node" } }
+                }
+              }
+            }
+          }
+          """;
+      var navigator = JsonSchemaPathNavigator.lazy(schema);
+
+      assertEquals(List.of("$", "$.children", "$.children[*]", "$.children[*].children"),
+          navigator.paths(RecursionDepthOption.SHALLOW)
+              .map(JsonSchemaPathNavigator.SchemaPathEntry::path).toList());
+      assertTrue(navigator.hasPath("$.children[*].children[*].children[*]"));
+    }
+  }
+
+  @Nested
+  class RecursiveDescentTests {
+
+    private static final String SCHEMA = """
+        {
+          "type": "object",
+          "properties": {
+            "customerId": { "type": "string", "title": "Root" },
+            "orders": {
+              "type": "array",
+              "items": {
+                "type": "object",
+                "properties": {
+                  "customerId": { "type": "string", "title": "Order" },
+                  "lines": {
+                    "type": "array",
+                    "items": {
+                      "type": "object",
+                      "properties": {
+                        "sku": { "type": "string" }
+                      }
+                    }
+                  }
+                }
+              }
+            },
+            "payer": {
+              "oneOf": [
+                { "type": "object", "properties": { "customerId": { "type": "integer" } } },
+                { "type": "object", "properties": { "iban": { "type": "string" } } }
+              ]
+            }
+          }
+        }
+        """;
+
+    @Test
+    void findAll_recursiveDescent_returnsEveryMatch() throws Exception {
+      var navigator = JsonSchemaPathNavigator.of(SCHEMA);
+      List<String> paths = navigator.findAll("$..customerId").stream()
+          .map(JsonSchemaPathNavigator.SchemaPathEntry::path).toList();
+
+      assertEquals(List.of("$.customerId", "$.orders[*].customerId", "$.payer.customerId"), paths);
+    }
+
+    @Test
+    void findAll_recursiveDescentBelowPrefix_isScoped() throws Exception {
+      var navigator = JsonSchemaPathNavigator.of(SCHEMA);
+      var matches = navigator.findAll("$.orders..customerId");
+
+      assertEquals(1, matches.size());
+      assertEquals("Order", matches.get(0).schema().get("title").asString());
+    }
+
+    @Test
+    void findAll_recursiveDescentBelowArrayIndex_searchesItemsSchema() throws Exception {
+      var navigator = JsonSchemaPathNavigator.of(SCHEMA);
+      var matches = navigator.findAll("$.orders[3]..sku");
+
+      assertEquals(1, matches.size());
+      assertEquals("$.orders[3].lines[*].sku", matches.get(0).path());
+    }
+
+    @Test
+    void findAll_recursiveDescentBelowPatternOrAdditionalProperty_searchesItsSchema()
+        throws Exception {
+      var navigator = JsonSchemaPathNavigator.of("""
+          {
+            "type": "object",
+            "patternProperties": {
+              "^x-": { "type": "object", "properties": { "id": { "title": "Pattern" } } }
+            },
+            "additionalProperties": {
+              "type": "object",
+              "properties": { "id": { "title": "Additional" } }
+            }
+          }
+          """);
+
+      var pattern = navigator.findAll("$['x-tag']..id");
+      var additional = navigator.findAll("$.other..id");
+
+      assertEquals(List.of("$['x-tag'].id"), pattern.stream()
+          .map(JsonSchemaPathNavigator.SchemaPathEntry::path).toList());
+      assertEquals("Pattern", pattern.get(0).schema().get("title").asString());
+      assertEquals(1, additional.size());
+      assertEquals("Additional", additional.get(0).schema().get("title").asString());
+    }
+
+    @Test
+    void findAll_segmentsAfterRecursiveDescent_areNavigated() throws Exception {
+      var navigator = JsonSchemaPathNavigator.of(SCHEMA);
+      var matches = navigator.findAll("$..lines[*].sku");
+
+      assertEquals(1, matches.size());
+      assertEquals("$.orders[*].lines[*].sku", matches.get(0).path());
+    }
+
+    @Test
+    void findAll_noMatch_returnsEmptyList() throws Exception {
+      var navigator = JsonSchemaPathNavigator.of(SCHEMA);
+
+      assertTrue(navigator.findAll("$..unknown").isEmpty());
+      assertFalse(navigator.hasPath("$..unknown"));
+    }
+
+    @Test
+    void getSchema_recursiveDescent_returnsFirstMatch() throws Exception {
+      var navigator = JsonSchemaPathNavigator.of(SCHEMA);
+
+      assertEquals("Root", navigator.getSchema("$..customerId").get("title").asString());
+      assertTrue(navigator.hasPath("$..['sku']"));
+    }
+  }
+
 }
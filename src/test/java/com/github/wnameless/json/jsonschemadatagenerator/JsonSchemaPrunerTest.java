@@ -0,0 +1,303 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.node.ObjectNode;
+
+class JsonSchemaPrunerTest {
+
+  private static Map<String, Object> flatten(String schema) throws Exception {
+    return JsonSchemaFlattener.flattenJsonSchema(schema, AllOfOption.MERGE);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> child(Map<String, Object> schema, String... keys) {
+    Map<String, Object> current = schema;
+    for (String key : keys) {
+      current = (Map<String, Object>) current.get(key);
+    }
+    return current;
+  }
+
+  @Nested
+  class ObjectPruningTests {
+
+    private static final String SCHEMA = """
+        {
+          "type": "object",
+          "properties": {
+            "id": { "type": "string" },
+            "nickname": { "type": "object", "properties": { "first": { "type": "string" } } }
+          },
+          "required": ["id"],
+          "additionalProperties": { "type": "object", "properties": { "x": { "type": "string" } } },
+          "patternProperties": { "^x-": { "type": "string" } },
+          "propertyNames": { "pattern": "^[a-z]+$" }
+        }
+        """;
+
+    @Test
+    void requiredOnly_stubsOptionalPropertiesButKeepsNames() throws Exception {
+      Map<String, Object> schema = flatten(SCHEMA);
+
+      JsonSchemaPruner.prune(schema, JsonSchemaDataGenerator.minimal());
+
+      Map<String, Object> properties = child(schema, "properties");
+      assertEquals(List.of("id", "nickname"), List.copyOf(properties.keySet()));
+      assertEquals("string", child(properties, "id").get("type"));
+      assertTrue(child(properties, "nickname").isEmpty());
+    }
+
+    @Test
+    void noneOptions_removeAdditionalAndPatternProperties() throws Exception {
+      Map<String, Object> schema = flatten(SCHEMA);
+
+      JsonSchemaPruner.prune(schema, JsonSchemaDataGenerator.normal());
+
+      assertFalse(schema.containsKey("additionalProperties"));
+      assertFalse(schema.containsKey("patternProperties"));
+      assertFalse(schema.containsKey("propertyNames"));
+      assertTrue(child(schema, "properties", "nickname").containsKey("properties"));
+    }
+
+    @Test
+    void generateOptions_keepAdditionalAndPatternProperties() throws Exception {
+      Map<String, Object> schema = flatten(SCHEMA);
+
+      JsonSchemaPruner.prune(schema, JsonSchemaDataGenerator.verbose());
+
+      assertTrue(schema.containsKey("additionalProperties"));
+      assertTrue(schema.containsKey("patternProperties"));
+      assertTrue(schema.containsKey("propertyNames"));
+    }
+  }
+
+  @Nested
+  class KeywordPruningTests {
+
+    @Test
+    void examplesNone_removesExamples() throws Exception {
+      Map<String, Object> schema = flatten("""
+          { "type": "string", "examples": ["a", "b"] }
+          """);
+
+      JsonSchemaPruner.prune(schema,
+          JsonSchemaDataGenerator.builder().examplesOption(ExamplesOption.NONE).build());
+
+      assertFalse(schema.containsKey("examples"));
+    }
+
+    @Test
+    void unreadKeywords_areRemoved() throws Exception {
+      Map<String, Object> schema = flatten("""
+          {
+            "type": "object",
+            "properties": { "a": { "type": "string" } },
+            "definitions": { "unused": { "type": "object" } },
+            "not": { "type": "null" }
+          }
+          """);
+
+      JsonSchemaPruner.prune(schema, JsonSchemaDataGenerator.normal());
+
+      assertFalse(schema.containsKey("definitions"));
+      assertFalse(schema.containsKey("not"));
+      assertTrue(schema.containsKey("properties"));
+    }
+
+    @Test
+    void const_removesStructuralKeywords() throws Exception {
+      Map<String, Object> schema = flatten("""
+          {
+            "type": "object",
+            "const": { "a": 1 },
+            "properties": { "a": { "type": "integer", "minimum": 1 } },
+            "anyOf": [{ "type": "object" }]
+          }
+          """);
+
+      JsonSchemaPruner.prune(schema, JsonSchemaDataGenerator.normal());
+
+      assertTrue(schema.containsKey("const"));
+      assertFalse(schema.containsKey("anyOf"));
+      assertTrue(child(schema, "properties", "a").isEmpty());
+    }
+
+    @Test
+    void arrayWithoutGeneratedItems_keepsOnlyItemType() throws Exception {
+      Map<String, Object> schema = flatten("""
+          {
+            "type": "array",
+            "items": { "type": "object", "properties": { "a": { "type": "string" } } }
+          }
+          """);
+
+      JsonSchemaPruner.prune(schema, JsonSchemaDataGenerator.minimal());
+
+      assertEquals(Map.of("type", "object"), child(schema, "items"));
+    }
+  }
+
+  @Nested
+  class CompositionPruningTests {
+
+    private static final String SCHEMA = """
+        {
+          "oneOf": [
+            { "type": "string", "title": "first" },
+            { "type": "integer", "title": "middle" },
+            { "type": "boolean", "title": "last" }
+          ]
+        }
+        """;
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> branches(Map<String, Object> schema) {
+      return (List<Map<String, Object>>) schema.get("oneOf");
+    }
+
+    @Test
+    void first_keepsOnlyFirstBranch() throws Exception {
+      Map<String, Object> schema = flatten(SCHEMA);
+
+      JsonSchemaPruner.prune(schema, JsonSchemaDataGenerator.normal());
+
+      assertEquals(1, branches(schema).size());
+      assertEquals("first", branches(schema).get(0).get("title"));
+    }
+
+    @Test
+    void last_keepsOnlyLastBranch() throws Exception {
+      Map<String, Object> schema = flatten(SCHEMA);
+
+      JsonSchemaPruner.prune(schema,
+          JsonSchemaDataGenerator.builder().oneOfOption(OneOfOption.LAST).build());
+
+      assertEquals(1, branches(schema).size());
+      assertEquals("last", branches(schema).get(0).get("title"));
+    }
+
+    @Test
+    void random_keepsAllBranches() throws Exception {
+      Map<String, Object> schema = flatten(SCHEMA);
+
+      JsonSchemaPruner.prune(schema,
+          JsonSchemaDataGenerator.builder().oneOfOption(OneOfOption.RANDOM).build());
+
+      assertEquals(3, branches(schema).size());
+    }
+  }
+
+  @Nested
+  class ReportTests {
+
+    @Test
+    void report_countsPrunedNodes() throws Exception {
+      Map<String, Object> schema = flatten("""
+          {
+            "type": "object",
+            "properties": { "a": { "type": "string" } },
+            "definitions": { "unused": { "type": "object", "properties": {} } }
+          }
+          """);
+
+      SchemaPruningReport report = JsonSchemaPruner.prune(schema, JsonSchemaDataGenerator.normal());
+
+      assertTrue(report.prunedNodes() >= 3);
+      assertEquals(report.totalNodes() - report.retainedNodes(), report.prunedNodes());
+      assertTrue(report.prunedRatio() > 0.0 && report.prunedRatio() < 1.0);
+    }
+
+    @Test
+    void report_isEmptyWhenNothingIsUnreachable() throws Exception {
+      Map<String, Object> schema = flatten("""
+          { "type": "object", "properties": { "a": { "type": "string" } } }
+          """);
+
+      SchemaPruningReport report = JsonSchemaPruner.prune(schema, JsonSchemaDataGenerator.normal());
+
+      assertEquals(0, report.prunedNodes());
+      assertEquals(0.0, report.prunedRatio());
+    }
+
+    @Test
+    void cyclicSchema_terminates() throws Exception {
+      Map<String, Object> schema = flatten("""
+          {
+            "type": "object",
+            "properties": { "child": { "$ref": "#" } }
+          }
+          """);
+
+      SchemaPruningReport report = JsonSchemaPruner.prune(schema, JsonSchemaDataGenerator.normal());
+
+      assertTrue(report.totalNodes() > 0);
+    }
+  }
+
+  @Nested
+  class TreePruningTests {
+
+    @Test
+    void tree_isPrunedLikeMap() throws Exception {
+      String schema = """
+          {
+            "type": "object",
+            "properties": {
+              "id": { "type": "string" },
+              "kind": { "anyOf": [{ "type": "string" }, { "type": "integer" }] },
+              "tags": { "type": "array", "items": { "type": "object", "title": "Tag" } }
+            },
+            "required": ["id", "kind"],
+            "additionalProperties": { "type": "string" },
+            "definitions": { "unused": { "type": "object" } }
+          }
+          """;
+      Map<String, Object> map = flatten(schema);
+      ObjectNode tree = JsonSchemaFlattener.flattenToJsonNode(schema, AllOfOption.MERGE);
+
+      SchemaPruningReport mapReport =
+          JsonSchemaPruner.prune(map, JsonSchemaDataGenerator.minimal());
+      SchemaPruningReport treeReport =
+          JsonSchemaPruner.prune(tree, JsonSchemaDataGenerator.minimal());
+
+      assertEquals(ObjectMapperFactory.getObjectMapper().valueToTree(map), tree);
+      assertEquals(mapReport, treeReport);
+      assertTrue(tree.get("properties").get("tags").isEmpty());
+    }
+  }
+
+  @Nested
+  class LazyAllOfPruningTests {
+
+    @Test
+    void lazyAllOf_keepsEverythingReachableFromAllOf() throws Exception {
+      Map<String, Object> schema = JsonSchemaFlattener.flattenJsonSchema("""
+          {
+            "type": "object",
+            "properties": {
+              "pet": {
+                "allOf": [
+                  { "type": "object", "properties": { "name": { "type": "string" } } },
+                  { "required": ["name"], "definitions": { "x": {} } }
+                ]
+              },
+              "note": { "type": "object", "properties": { "text": { "type": "string" } } }
+            },
+            "required": ["pet", "note"]
+          }
+          """, AllOfOption.LAZY);
+
+      JsonSchemaPruner.prune(schema,
+          JsonSchemaDataGenerator.minimal().withAllOfOption(AllOfOption.LAZY));
+
+      Map<String, Object> pet = child(schema, "properties", "pet");
+      assertEquals(2, ((List<?>) pet.get("allOf")).size());
+      assertTrue(child(schema, "properties", "note", "properties", "text").isEmpty());
+    }
+  }
+
+}
@@ -0,0 +1,418 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.JsonNode;
+
+class JsonSchemaRefResolverTest {
+
+  @TempDir
+  Path tempDir;
+
+  Path rootFile;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    Files.createDirectories(tempDir.resolve("common"));
+    Files.writeString(tempDir.resolve("common/address.json"), """
+        {
+          "definitions": {
+            "address": {
+              "type": "object",
+              "properties": {
+                "country": { "$ref": "#/definitions/country" },
+                "geo": { "$ref": "geo.json" }
+              }
+            },
+            "country": { "type": "string", "title": "Country" }
+          }
+        }
+        """);
+    Files.writeString(tempDir.resolve("common/geo.json"), """
+        { "type": "object", "title": "Geo" }
+        """);
+    Files.writeString(tempDir.resolve("unused.json"), """
+        { "type": "string" }
+        """);
+    rootFile = tempDir.resolve("root.json");
+    Files.writeString(rootFile, """
+        {
+          "type": "object",
+          "properties": {
+            "home": { "$ref": "common/address.json#/definitions/address" },
+            "alias": { "$ref": "#/definitions/aliasOfName" },
+            "unused": { "$ref": "unused.json" },
+            "missing": { "$ref": "missing.json" }
+          },
+          "definitions": {
+            "aliasOfName": { "$ref": "#/definitions/name" },
+            "name": { "type": "string", "title": "Name" }
+          }
+        }
+        """);
+  }
+
+  @Nested
+  class ResolveTests {
+
+    @Test
+    void of_onlyParsesRootDocument() throws Exception {
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile());
+
+      assertEquals(1, resolver.getLoadedDocuments().size());
+      assertEquals("object", resolver.getRootSchema().get("type").asString());
+    }
+
+    @Test
+    void resolve_followsReferenceChains() throws Exception {
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile());
+      JsonNode alias = resolver.getRootSchema().get("properties").get("alias");
+
+      assertEquals("Name", resolver.resolve(alias).get("title").asString());
+    }
+
+    @Test
+    void resolve_loadsExternalDocumentsOnDemand() throws Exception {
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile());
+      JsonNode home = resolver.resolve(resolver.getRootSchema().get("properties").get("home"));
+
+      assertEquals(2, resolver.getLoadedDocuments().size());
+
+      // Relative references inside the external document resolve against that document
+      JsonNode properties = home.get("properties");
+      assertEquals("Country", resolver.resolve(properties.get("country")).get("title").asString());
+      assertEquals("Geo", resolver.resolve(properties.get("geo")).get("title").asString());
+      assertEquals(3, resolver.getLoadedDocuments().size());
+    }
+
+    @Test
+    void resolve_cachesResolvedReferences() throws Exception {
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile());
+      JsonNode home = resolver.getRootSchema().get("properties").get("home");
+
+      assertSame(resolver.resolve(home), resolver.resolve(home));
+    }
+
+    @Test
+    void resolve_missingReference_returnsSchemaUnchanged() throws Exception {
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile());
+      JsonNode missing = resolver.getRootSchema().get("properties").get("missing");
+
+      assertSame(missing, resolver.resolve(missing));
+    }
+
+    @Test
+    void resolve_circularReference_returnsSchemaUnchanged() throws Exception {
+      var resolver = JsonSchemaRefResolver.of("""
+          {
+            "definitions": {
+              "a": { "$ref": "#/definitions/b" },
+              "b": { "$ref": "#/definitions/a" }
+            }
+          }
+          """);
+      JsonNode a = resolver.getRootSchema().get("definitions").get("a");
+
+      assertSame(a, resolver.resolve(a));
+    }
+
+    @Test
+    void resolve_leavesReferenceKeysInsideDataKeywordsUntouched() throws Exception {
+      Files.writeString(tempDir.resolve("data.json"), """
+          {
+            "type": "object",
+            "const": { "$ref": "x.json" },
+            "enum": [{ "$ref": "x.json" }],
+            "properties": {
+              "const": { "$ref": "#/definitions/name" }
+            },
+            "definitions": {
+              "name": { "type": "string", "default": { "$ref": "y.json" } }
+            }
+          }
+          """);
+      var resolver = JsonSchemaRefResolver.of("""
+          { "$ref": "%s" }
+          """.formatted(tempDir.resolve("data.json").toUri()));
+      JsonNode data = resolver.resolve(resolver.getRootSchema());
+
+      assertEquals("x.json", data.get("const").get("$ref").asString());
+      assertEquals("x.json", data.get("enum").get(0).get("$ref").asString());
+      assertEquals("y.json",
+          data.get("definitions").get("name").get("default").get("$ref").asString());
+      // A property named after a data keyword is still a schema
+      JsonNode property = data.get("properties").get("const");
+      assertEquals("string", resolver.resolve(property).get("type").asString());
+    }
+
+    @Test
+    void of_invalidJson_throwsIOException() {
+      assertThrows(IOException.class, () -> JsonSchemaRefResolver.of("{ invalid"));
+    }
+  }
+
+  @Nested
+  class PrefetchTests {
+
+    @Test
+    void prefetch_loadsAllReachableDocuments() throws Exception {
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile());
+
+      // address.json, geo.json (referenced from address.json) and unused.json
+      assertEquals(3, resolver.prefetch(4));
+      assertEquals(4, resolver.getLoadedDocuments().size());
+    }
+
+    @Test
+    void prefetch_skipsAlreadyLoadedDocuments() throws Exception {
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile());
+      resolver.resolve(resolver.getRootSchema().get("properties").get("home"));
+
+      assertEquals(2, resolver.prefetch(2));
+      assertEquals(0, resolver.prefetch(2));
+    }
+
+    @Test
+    void prefetch_resolvedTargetsMatchLazyResolution() throws Exception {
+      var prefetched = JsonSchemaRefResolver.of(rootFile.toFile());
+      prefetched.prefetch(1);
+      var lazy = JsonSchemaRefResolver.of(rootFile.toFile());
+
+      JsonNode home = prefetched.getRootSchema().get("properties").get("home");
+      assertEquals(lazy.resolve(lazy.getRootSchema().get("properties").get("home")),
+          prefetched.resolve(home));
+    }
+
+    @Test
+    void prefetch_invalidParallelism_throwsIllegalArgumentException() throws Exception {
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile());
+
+      assertThrows(IllegalArgumentException.class, () -> resolver.prefetch(0));
+    }
+  }
+
+  @Nested
+  class InvalidationTests {
+
+    private URI uriOf(String fileName) {
+      return tempDir.resolve(fileName).toUri().normalize();
+    }
+
+    @Test
+    void getReferencedDocuments_recordsRefEdges() throws Exception {
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile());
+      resolver.prefetch(1);
+
+      assertEquals(Set.of(uriOf("common/geo.json")),
+          resolver.getReferencedDocuments(uriOf("common/address.json")));
+      assertTrue(resolver.getReferencedDocuments(uriOf("root.json"))
+          .contains(uriOf("common/address.json")));
+    }
+
+    @Test
+    void invalidate_returnsTransitiveDependents() throws Exception {
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile());
+      resolver.prefetch(1);
+
+      Set<URI> affected = resolver.invalidate(tempDir.resolve("common/geo.json").toFile());
+
+      assertEquals(Set.of(uriOf("common/geo.json"), uriOf("common/address.json"),
+          uriOf("root.json")), affected);
+      assertEquals(Set.of(uriOf("unused.json"), uriOf("root.json")),
+          resolver.invalidate(uriOf("unused.json")));
+    }
+
+    @Test
+    void invalidate_rereadsChangedDocumentOnly() throws Exception {
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile());
+      JsonSchemaFlattener.flattenToJsonNode(resolver, AllOfOption.MERGE);
+      Files.writeString(tempDir.resolve("common/geo.json"), """
+          { "type": "object", "title": "Location" }
+          """);
+      Files.delete(tempDir.resolve("unused.json"));
+
+      resolver.invalidate(tempDir.resolve("common/geo.json").toFile());
+      JsonNode schema = JsonSchemaFlattener.flattenToJsonNode(resolver, AllOfOption.MERGE);
+
+      assertEquals("Location", schema.at("/properties/home/properties/geo/title").asString());
+      assertEquals("string", schema.at("/properties/unused/type").asString());
+    }
+
+    @Test
+    void invalidate_dropsOnlySubtreesReadingChangedDocument() throws Exception {
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile());
+      JsonNode before = JsonSchemaFlattener.flattenToJsonNode(resolver, AllOfOption.MERGE);
+      var cache = resolver.getSubtreeCache(true);
+      int cached = cache.size();
+      URI geo = uriOf("common/geo.json");
+
+      resolver.invalidate(geo);
+
+      assertTrue(cache.size() > 0 && cache.size() < cached);
+      assertTrue(cache.values().stream().noneMatch(subtree -> subtree.documents().contains(geo)));
+      assertEquals(before, JsonSchemaFlattener.flattenToJsonNode(resolver, AllOfOption.MERGE));
+      assertEquals(cached, cache.size());
+    }
+
+    @Test
+    void invalidate_rootDocument_rereadsRoot() throws Exception {
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile());
+      JsonSchemaFlattener.flattenToJsonNode(resolver, AllOfOption.MERGE);
+      Files.writeString(rootFile, """
+          {
+            "type": "object",
+            "properties": { "alias": { "$ref": "#/definitions/name" } },
+            "definitions": { "name": { "type": "string", "title": "Renamed" } }
+          }
+          """);
+
+      resolver.invalidate(rootFile.toFile());
+      JsonNode schema = JsonSchemaFlattener.flattenToJsonNode(resolver, AllOfOption.MERGE);
+
+      assertEquals("Renamed", schema.at("/properties/alias/title").asString());
+      assertFalse(schema.get("properties").has("home"));
+    }
+  }
+
+  @Nested
+  class SharedDocumentTests {
+
+    @Test
+    void of_sharedDocuments_parsesEachDocumentOnce() throws Exception {
+      Map<URI, CompletableFuture<JsonNode>> shared = new ConcurrentHashMap<>();
+      var first = JsonSchemaRefResolver.of(rootFile.toFile(), null, shared);
+      var second = JsonSchemaRefResolver.of(rootFile.toFile(), null, shared);
+
+      JsonNode home = first.resolve(first.getRootSchema().get("properties").get("home"));
+
+      assertSame(first.getRootSchema(), second.getRootSchema());
+      assertSame(home, second.resolve(second.getRootSchema().get("properties").get("home")));
+      assertEquals(2, shared.size());
+    }
+
+    @Test
+    void of_sharedDocuments_concurrentResolvers_shareOneParse() throws Exception {
+      Map<URI, CompletableFuture<JsonNode>> shared = new ConcurrentHashMap<>();
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+        List<Future<JsonNode>> roots = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+          roots.add(executor.submit(
+              () -> JsonSchemaRefResolver.of(rootFile.toFile(), null, shared).getRootSchema()));
+        }
+        JsonNode expected = roots.get(0).get();
+        for (Future<JsonNode> root : roots) {
+          assertSame(expected, root.get());
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+    @Test
+    void of_sharedDocuments_missingFile_throwsIOException() {
+      assertThrows(IOException.class, () -> JsonSchemaRefResolver
+          .of(tempDir.resolve("absent.json").toFile(), null, new ConcurrentHashMap<>()));
+    }
+
+    @Test
+    void invalidate_removesChangedDocumentFromSharedDocuments() throws Exception {
+      Map<URI, CompletableFuture<JsonNode>> shared = new ConcurrentHashMap<>();
+      var resolver = JsonSchemaRefResolver.of(rootFile.toFile(), null, shared);
+      resolver.prefetch(1);
+      URI geo = tempDir.resolve("common/geo.json").toUri().normalize();
+      assertTrue(shared.containsKey(geo));
+
+      resolver.invalidate(geo);
+
+      assertFalse(shared.containsKey(geo));
+    }
+  }
+
+  @Nested
+  class LargeFileTests {
+
+    private Path writeLargeSchema(String fileName, String extraProperty) throws IOException {
+      StringBuilder values = new StringBuilder();
+      for (int i = 0; values.length() <= JsonSchemaRefResolver.MEMORY_MAP_THRESHOLD; i++) {
+        values.append(i == 0 ? "" : ",").append("\"value-").append(i).append('"');
+      }
+      Path file = tempDir.resolve(fileName);
+      Files.writeString(file, """
+          {
+            "type": "object",
+            "properties": {
+              "code": { "enum": [%s] }%s
+            }
+          }
+          """.formatted(values, extraProperty));
+      return file;
+    }
+
+    @Test
+    void of_largeFile_parsesMemoryMappedDocument() throws Exception {
+      Path file = writeLargeSchema("large.json", "");
+
+      var resolver = JsonSchemaRefResolver.of(file.toFile());
+
+      assertTrue(Files.size(file) >= JsonSchemaRefResolver.MEMORY_MAP_THRESHOLD);
+      assertEquals(ObjectMapperFactory.getObjectMapper().readTree(file.toFile()),
+          resolver.getRootSchema());
+      Files.delete(file); // Nothing stays mapped once parsed
+    }
+
+    @Test
+    void mappedFileInputStream_readsAcrossWindowsAndUnmapsOnClose() throws Exception {
+      assertTrue(MappedFileInputStream.isSupported());
+      Path file = tempDir.resolve("windows.txt");
+      Files.writeString(file, "0123456789abcdefghij");
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      InputStream in = new MappedFileInputStream(file, 7);
+      try (in) {
+        out.write(in.read());
+        byte[] buffer = new byte[5];
+        for (int count; (count = in.read(buffer, 0, buffer.length)) != -1;) {
+          assertTrue(count <= 5);
+          out.write(buffer, 0, count);
+        }
+        assertEquals(-1, in.read());
+      }
+
+      assertEquals("0123456789abcdefghij", out.toString(StandardCharsets.UTF_8));
+      assertThrows(IOException.class, in::read);
+      Files.delete(file);
+    }
+
+    @Test
+    void resolve_largeReferencedFile_parsesMemoryMappedDocument() throws Exception {
+      writeLargeSchema("large.json", "");
+      Path root = writeLargeSchema("root.json", ", \"other\": { \"$ref\": \"large.json\" }");
+
+      var resolver = JsonSchemaRefResolver.of(root.toFile());
+      JsonNode other = resolver.resolve(resolver.getRootSchema().get("properties").get("other"));
+
+      assertEquals("value-0", other.get("properties").get("code").get("enum").get(0).asString());
+    }
+  }
+
+}
@@ -0,0 +1,243 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.ObjectNode;
+
+class JsonSchemaRegistryTest {
+
+  private static final String COMMON = """
+      {
+        "$id": "https://example.com/schemas/common.json",
+        "$defs": {
+          "name": { "type": "string", "title": "Name" },
+          "person": {
+            "type": "object",
+            "properties": {
+              "name": { "$ref": "#/$defs/name" },
+              "address": { "$ref": "address.json" }
+            }
+          }
+        }
+      }
+      """;
+
+  private static final String ADDRESS = """
+      { "type": "object", "title": "Address", "properties": { "city": { "type": "string" } } }
+      """;
+
+  private static final String ROOT = """
+      {
+        "type": "object",
+        "properties": {
+          "owner": { "$ref": "https://example.com/schemas/common.json#/$defs/person" }
+        }
+      }
+      """;
+
+  JsonSchemaRegistry registry;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    registry = JsonSchemaRegistry.create();
+    registry.register(COMMON);
+    registry.register(URI.create("https://example.com/schemas/address.json"), ADDRESS);
+  }
+
+  @Nested
+  class RegisterTests {
+
+    @Test
+    void register_usesIdAsUri() {
+      assertTrue(registry.contains(URI.create("https://example.com/schemas/common.json")));
+      assertTrue(registry.contains(URI.create("https://example.com/schemas/common.json#/$defs")));
+      assertEquals(2, registry.getRegisteredUris().size());
+    }
+
+    @Test
+    void register_rejectsSchemaWithoutAbsoluteId() {
+      assertThrows(IllegalArgumentException.class,
+          () -> registry.register("{ \"$id\": \"common.json\" }"));
+      assertThrows(IllegalArgumentException.class,
+          () -> registry.register(URI.create("common.json"), "{}"));
+    }
+
+    @Test
+    void get_returnsCopy() {
+      URI uri = URI.create("https://example.com/schemas/address.json");
+      ((ObjectNode) registry.get(uri).orElseThrow()).put("title", "Changed");
+
+      assertEquals("Address", registry.get(uri).orElseThrow().get("title").asString());
+    }
+
+    @Test
+    void unregister_removesDocument() {
+      URI uri = URI.create("https://example.com/schemas/address.json");
+
+      assertTrue(registry.unregister(uri));
+      assertFalse(registry.contains(uri));
+      assertFalse(registry.unregister(uri));
+    }
+
+    @Test
+    void registerResource_missingResourceThrows() {
+      assertThrows(IOException.class, () -> registry.registerResource("no/such/schema.json"));
+    }
+  }
+
+  @Nested
+  class ResolutionTests {
+
+    @Test
+    void resolver_resolvesAgainstRegistry() throws Exception {
+      JsonSchemaRefResolver resolver = JsonSchemaRefResolver.of(ROOT, registry);
+      JsonNode owner = resolver.getRootSchema().get("properties").get("owner");
+
+      JsonNode person = resolver.resolve(owner);
+      assertEquals("Name", resolver.resolve(person.get("properties").get("name"))
+          .get("title").asString());
+      assertEquals("Address", resolver.resolve(person.get("properties").get("address"))
+          .get("title").asString());
+    }
+
+    @Test
+    void resolver_canStartFromRegisteredSchema() {
+      JsonSchemaRefResolver resolver = JsonSchemaRefResolver.of(
+          URI.create("https://example.com/schemas/common.json"), registry);
+
+      assertTrue(resolver.getRootSchema().has("$defs"));
+      assertThrows(IllegalArgumentException.class, () -> JsonSchemaRefResolver
+          .of(URI.create("https://example.com/schemas/unknown.json"), registry));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flattenJsonSchema_resolvesAgainstRegistry() throws Exception {
+      Map<String, Object> schema =
+          JsonSchemaFlattener.flattenJsonSchema(ROOT, AllOfOption.MERGE, registry);
+
+      Map<String, Object> owner =
+          (Map<String, Object>) ((Map<String, Object>) schema.get("properties")).get("owner");
+      Map<String, Object> ownerProperties = (Map<String, Object>) owner.get("properties");
+      assertEquals("Address", ((Map<String, Object>) ownerProperties.get("address")).get("title"));
+    }
+
+    @Test
+    void flattenToJsonNode_resolvesAgainstRegistry() throws Exception {
+      JsonNode schema = JsonSchemaFlattener.flattenToJsonNode(ROOT, AllOfOption.MERGE, registry);
+
+      assertEquals("Name", schema.at("/properties/owner/properties/name/title").asString());
+    }
+
+    @Test
+    void navigator_resolvesAgainstRegistry() throws Exception {
+      JsonSchemaPathNavigator navigator = JsonSchemaPathNavigator.lazy(ROOT, registry);
+
+      assertEquals("Address",
+          navigator.getSchema("$.owner.address").get("title").asString());
+    }
+
+    @Test
+    void generator_compilesResolverBackedByRegistry() throws Exception {
+      var gen = JsonSchemaDataGenerator.normal();
+
+      JsonNode data = gen.generate(gen.compile(JsonSchemaRefResolver.of(ROOT, registry)));
+
+      assertTrue(data.get("owner").get("address").has("city"));
+    }
+
+    @Test
+    void registryDocuments_areSharedBetweenResolvers() throws Exception {
+      JsonSchemaRefResolver first = JsonSchemaRefResolver.of(ROOT, registry);
+      JsonSchemaRefResolver second = JsonSchemaRefResolver.of(ROOT, registry);
+
+      JsonNode owner = first.getRootSchema().get("properties").get("owner");
+      assertSame(first.resolve(owner),
+          second.resolve(second.getRootSchema().get("properties").get("owner")));
+    }
+
+    @Test
+    void concurrentResolvers_shareRegistry() throws Exception {
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+        List<Future<JsonNode>> results = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+          results.add(executor.submit(
+              () -> JsonSchemaFlattener.flattenToJsonNode(ROOT, AllOfOption.MERGE, registry)));
+        }
+        JsonNode expected =
+            JsonSchemaFlattener.flattenToJsonNode(ROOT, AllOfOption.MERGE, registry);
+        for (Future<JsonNode> result : results) {
+          assertEquals(expected, result.get());
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  @Nested
+  class ClasspathTests {
+
+    @Test
+    void registerResource_resolvesRelativeClasspathRefs() throws Exception {
+      URI uri = registry.registerResource("json-schemas/registry/common.json");
+      String root = """
+          { "$ref": "%s#/$defs/money" }
+          """.formatted(uri);
+
+      JsonNode data = JsonSchemaDataGenerator.normal()
+          .generate(JsonSchemaDataGenerator.normal()
+              .compile(JsonSchemaRefResolver.of(root, registry)));
+
+      assertEquals(URI.create("classpath:/json-schemas/registry/common.json"), uri);
+      assertEquals(1, data.get("amount").asInt());
+      assertEquals("USD", data.get("currency").asString());
+      assertTrue(registry.contains(URI.create("classpath:/json-schemas/registry/currency.json")));
+    }
+
+    @Test
+    void unregisteredClasspathRef_isLoadedOnDemand() throws Exception {
+      JsonNode schema = JsonSchemaFlattener.flattenToJsonNode("""
+          { "$ref": "classpath:/json-schemas/registry/currency.json" }
+          """, AllOfOption.MERGE, registry);
+
+      assertEquals("Currency", schema.get("title").asString());
+    }
+
+    @Test
+    void unregisteredClasspathRef_concurrentResolvers_shareOneLoad() throws Exception {
+      String root = """
+          { "$ref": "classpath:/json-schemas/registry/currency.json" }
+          """;
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+        List<Future<JsonNode>> results = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+          results.add(executor.submit(
+              () -> JsonSchemaRefResolver.of(root, registry).getRootSchema()));
+        }
+        JsonNode expected = results.get(0).get();
+        for (Future<JsonNode> result : results) {
+          assertSame(expected, result.get());
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+      assertFalse(registry.contains(URI.create("classpath:/json-schemas/registry/absent.json")));
+      assertNull(registry.lookup(URI.create("classpath:/json-schemas/registry/absent.json")));
+    }
+  }
+
+}
@@ -0,0 +1,146 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import com.github.wnameless.json.jsonschemadatagenerator.SchemaCostEstimate.Hotspot;
+import com.github.wnameless.json.jsonschemadatagenerator.SchemaCostEstimate.HotspotKind;
+
+class SchemaCostEstimatorTest {
+
+  private static final String ORDER = """
+      {
+        "type": "object",
+        "required": ["id", "status", "lines"],
+        "properties": {
+          "id": { "type": "integer", "minimum": 1 },
+          "kind": { "const": "order" },
+          "status": { "enum": ["NEW", "PAID"] },
+          "paid": { "type": "boolean" },
+          "lines": {
+            "type": "array",
+            "minItems": 1,
+            "items": {
+              "type": "object",
+              "properties": { "sku": { "type": "string" }, "qty": { "type": "integer" } }
+            }
+          },
+          "tags": { "type": "array", "items": { "type": "string" } }
+        }
+      }
+      """;
+
+  private static final String TREE = """
+      {
+        "type": "object",
+        "title": "Tree",
+        "properties": {
+          "value": { "type": "integer" },
+          "children": { "type": "array", "minItems": 1, "maxItems": 8, "items": { "$ref": "#" } }
+        }
+      }
+      """;
+
+  @Nested
+  class SizeTests {
+
+    @Test
+    void estimate_deterministicOptions_matchesGeneratedDocument() throws Exception {
+      var skeleton = JsonSchemaDataGenerator.skeleton();
+      CompiledJsonSchema compiled = skeleton.compile(ORDER);
+
+      SchemaCostEstimate estimate = skeleton.estimate(compiled);
+      GenerationReport report = skeleton.generateWithReport(compiled);
+
+      assertEquals(report.nodes(), estimate.expectedNodes());
+      assertEquals(report.nodes(), estimate.maxNodes());
+      assertEquals(report.estimatedBytes(), estimate.expectedBytes());
+      assertEquals(report.estimatedBytes(), estimate.maxBytes());
+    }
+
+    @Test
+    void estimate_randomOptions_matchesAverageDocument() throws Exception {
+      var verbose = JsonSchemaDataGenerator.verbose();
+      CompiledJsonSchema compiled = verbose.compile(ORDER);
+      SchemaCostEstimate estimate = verbose.estimate(compiled);
+
+      double total = 0;
+      int runs = 2000;
+      for (int i = 0; i < runs; i++) {
+        long nodes = verbose.generateWithReport(compiled).nodes();
+        assertTrue(nodes <= estimate.maxNodes());
+        total += nodes;
+      }
+
+      assertEquals(estimate.expectedNodes(), total / runs, estimate.expectedNodes() * 0.1);
+    }
+
+    @Test
+    void estimate_recursiveSchema_reportsBlowUpWithoutGenerating() throws Exception {
+      var verbose = JsonSchemaDataGenerator.verbose()
+          .withRecursionDepthOption(RecursionDepthOption.VERY_DEEP)
+          .withRefResolutionOption(RefResolutionOption.LAZY);
+
+      SchemaCostEstimate estimate = verbose.estimate(verbose.compile(TREE));
+
+      assertTrue(estimate.expectedNodes() > 1_000_000, () -> estimate.expectedNodes() + " nodes");
+      assertTrue(estimate.maxNodes() > estimate.expectedNodes());
+      assertTrue(estimate.recursionBlowUp() > 1000);
+    }
+
+    @Test
+    void estimate_nonRecursiveSchema_hasNoBlowUp() throws Exception {
+      var normal = JsonSchemaDataGenerator.normal();
+
+      assertEquals(1.0, normal.estimate(normal.compile(ORDER)).recursionBlowUp());
+    }
+  }
+
+  @Nested
+  class HotspotTests {
+
+    @Test
+    void estimate_findsCostlySites_mostCallsFirst() throws Exception {
+      var normal = JsonSchemaDataGenerator.normal()
+          .withPrimitiveArrayOption(PrimitiveArrayOption.RANDOM);
+      CompiledJsonSchema compiled = normal.compile("""
+          {
+            "type": "object",
+            "properties": {
+              "email": { "type": "string", "format": "email" },
+              "codes": {
+                "type": "array",
+                "minItems": 4,
+                "maxItems": 4,
+                "uniqueItems": true,
+                "items": { "type": "string", "pattern": "[A-Z]{3}-[0-9]{4}" }
+              }
+            }
+          }
+          """);
+
+      List<Hotspot> hotspots = normal.estimate(compiled).hotspots();
+
+      assertEquals(new Hotspot("$.codes[]", HotspotKind.PATTERN, 4), hotspots.get(0));
+      assertTrue(hotspots.contains(new Hotspot("$.codes", HotspotKind.UNIQUE_ITEMS, 4)));
+      assertTrue(hotspots.contains(new Hotspot("$.email", HotspotKind.DATAFAKER, 1)));
+    }
+
+    @Test
+    void estimate_nullStrings_haveNoHotspots() throws Exception {
+      var skeleton = JsonSchemaDataGenerator.skeleton();
+
+      assertTrue(skeleton.estimate(skeleton.compile(ORDER)).hotspots().isEmpty());
+    }
+  }
+
+  @Test
+  void estimate_foreignCompiledSchema_throwsIllegalArgumentException() throws Exception {
+    CompiledJsonSchema compiled = JsonSchemaDataGenerator.minimal().compile(ORDER);
+
+    assertThrows(IllegalArgumentException.class,
+        () -> JsonSchemaDataGenerator.normal().estimate(compiled));
+  }
+
+}
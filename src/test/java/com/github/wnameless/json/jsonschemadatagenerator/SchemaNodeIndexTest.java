@@ -0,0 +1,197 @@
+package com.github.wnameless.json.jsonschemadatagenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.HashMap;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+
+class SchemaNodeIndexTest {
+
+  private static final String SCHEMA = """
+      {
+        "type": "object",
+        "properties": {
+          "kind": { "const": "order" },
+          "status": { "type": "string", "enum": ["NEW", "PAID"] },
+          "paid": { "type": "boolean" },
+          "note": { "type": "string" },
+          "meta": {
+            "type": "object",
+            "properties": {
+              "version": { "type": "integer", "default": 2 },
+              "flags": { "type": "array", "items": { "type": "boolean" } }
+            }
+          }
+        }
+      }
+      """;
+
+  private static JsonNode property(CompiledJsonSchema compiled, String name) {
+    return compiled.getRootSchema().get("properties").get(name);
+  }
+
+  @Nested
+  class DeterminismTests {
+
+    @Test
+    void build_marksDeterministicLeavesUnderNormalOptions() throws Exception {
+      CompiledJsonSchema compiled = JsonSchemaDataGenerator.normal().compile(SCHEMA);
+      SchemaNodeIndex index = compiled.getNodeIndex();
+
+      assertTrue(index.get(property(compiled, "kind")).isReusable(new HashMap<>(), 3));
+      assertTrue(index.get(property(compiled, "status")).isReusable(new HashMap<>(), 3));
+      assertTrue(index.get(property(compiled, "paid")).isReusable(new HashMap<>(), 3));
+      assertFalse(index.get(property(compiled, "note")).isReusable(new HashMap<>(), 3));
+    }
+
+    @Test
+    void build_memoizesOutermostDeterministicSubtreeOnly() throws Exception {
+      CompiledJsonSchema compiled = JsonSchemaDataGenerator.normal().compile(SCHEMA);
+      SchemaNodeIndex index = compiled.getNodeIndex();
+      JsonNode meta = property(compiled, "meta");
+
+      assertTrue(index.get(meta).isReusable(new HashMap<>(), 3));
+      assertFalse(index.get(meta.get("properties").get("flags")).isReusable(new HashMap<>(), 3));
+      assertFalse(index.get(compiled.getRootSchema()).isReusable(new HashMap<>(), 3));
+    }
+
+    @Test
+    void build_randomOptions_leaveSubtreesRandom() throws Exception {
+      var generator = JsonSchemaDataGenerator.normal()
+          .withEnumOption(EnumOption.RANDOM)
+          .withBooleanOption(BooleanOption.RANDOM);
+      CompiledJsonSchema compiled = generator.compile(SCHEMA);
+      SchemaNodeIndex index = compiled.getNodeIndex();
+
+      assertFalse(index.get(property(compiled, "status")).isReusable(new HashMap<>(), 3));
+      assertFalse(index.get(property(compiled, "meta")).isReusable(new HashMap<>(), 3));
+      assertTrue(index.get(property(compiled, "kind")).isReusable(new HashMap<>(), 3));
+    }
+
+    @Test
+    void build_indexesFingerprintsOfEveryNode() throws Exception {
+      CompiledJsonSchema compiled = JsonSchemaDataGenerator.normal().compile(SCHEMA);
+      JsonNode meta = property(compiled, "meta");
+
+      assertEquals(SchemaNodeIndex.fingerprint(meta),
+          compiled.getNodeIndex().get(meta).fingerprint());
+      assertEquals(9, compiled.getNodeIndex().size());
+    }
+
+    @Test
+    void build_partitionsPropertiesOfObjectSchemas() throws Exception {
+      String schema = SCHEMA.replace("\"properties\": {\n    \"kind\"",
+          "\"required\": [\"paid\"], \"maxProperties\": 4, \"properties\": { \"kind\"");
+      assertNotEquals(SCHEMA, schema);
+      CompiledJsonSchema compiled = JsonSchemaDataGenerator.normal().compile(schema);
+      SchemaNodeIndex index = compiled.getNodeIndex();
+      PropertyPartition partition = index.get(compiled.getRootSchema()).partition();
+
+      assertEquals(5, partition.size());
+      assertEquals(1, partition.requiredCount());
+      assertEquals("paid", partition.name(0));
+      assertEquals("kind", partition.name(1));
+      assertSame(property(compiled, "paid"), partition.schema(0));
+      assertEquals(4, partition.maxProperties());
+      assertNull(index.get(property(compiled, "note")).partition());
+    }
+
+    @Test
+    void lazyRefResolution_buildsNoIndex() throws Exception {
+      var lazy = JsonSchemaDataGenerator.normal()
+          .withRefResolutionOption(RefResolutionOption.LAZY);
+
+      assertNull(lazy.compile(SCHEMA).getNodeIndex());
+    }
+  }
+
+  @Nested
+  class MemoizationTests {
+
+    @Test
+    void generate_reusesDeterministicSubtreeValues() throws Exception {
+      var generator = JsonSchemaDataGenerator.normal();
+      CompiledJsonSchema compiled = generator.compile(SCHEMA);
+      SchemaNodeIndex.Entry meta = compiled.getNodeIndex().get(property(compiled, "meta"));
+
+      JsonNode first = generator.generate(compiled);
+      JsonNode memoized = meta.value();
+      JsonNode second = generator.generate(compiled);
+
+      assertEquals(first.get("meta"), memoized);
+      assertSame(memoized, meta.value());
+      assertEquals(first.get("meta"), second.get("meta"));
+      assertNotSame(first.get("meta"), second.get("meta"));
+      assertEquals("order", second.get("kind").asString());
+      assertEquals("NEW", second.get("status").asString());
+    }
+
+    @Test
+    void generate_randomLeavesStayRandom() throws Exception {
+      var generator = JsonSchemaDataGenerator.normal();
+      CompiledJsonSchema compiled = generator.compile(SCHEMA);
+
+      generator.generate(compiled);
+
+      assertNull(compiled.getNodeIndex().get(property(compiled, "note")).value());
+    }
+  }
+
+  @Nested
+  class RecursionTests {
+
+    private static final String NESTED = """
+        {
+          "type": "object",
+          "title": "Node",
+          "properties": {
+            "child": {
+              "type": "object",
+              "title": "Node",
+              "properties": {
+                "child": {
+                  "type": "object",
+                  "title": "Node",
+                  "properties": { "child": { "const": 1 } }
+                }
+              }
+            },
+            "wrapped": { "anyOf": [{ "anyOf": [{ "const": 2 }] }] }
+          }
+        }
+        """;
+
+    @Test
+    void generate_matchesUnindexedGenerationAtEveryDepth() throws Exception {
+      for (RecursionDepthOption depth : RecursionDepthOption.values()) {
+        // Tree-based flattening keeps the number node types LAZY generation produces
+        var generator = JsonSchemaDataGenerator.normal().withRecursionDepthOption(depth)
+            .withRefResolutionOption(RefResolutionOption.NATIVE);
+        var unindexed = generator.withRefResolutionOption(RefResolutionOption.LAZY);
+        CompiledJsonSchema compiled = generator.compile(NESTED);
+
+        JsonNode expected = unindexed.generate(NESTED);
+
+        assertEquals(expected, generator.generate(compiled), depth.name());
+        assertEquals(expected, generator.generate(compiled), depth.name());
+      }
+    }
+
+    @Test
+    void isReusable_respectsEnclosingRecursionDepth() throws Exception {
+      // A random sibling keeps the root from being memoized as a whole
+      String schema =
+          NESTED.replace("\"wrapped\"", "\"note\": { \"type\": \"string\" }, \"wrapped\"");
+      CompiledJsonSchema compiled = JsonSchemaDataGenerator.normal().compile(schema);
+      SchemaNodeIndex.Entry child = compiled.getNodeIndex().get(property(compiled, "child"));
+      var tracker = new HashMap<String, Integer>();
+
+      assertTrue(child.isReusable(tracker, 1));
+      tracker.put(child.fingerprint(), 1);
+      assertFalse(child.isReusable(tracker, 1));
+      assertTrue(child.isReusable(tracker, 2));
+    }
+  }
+
+}